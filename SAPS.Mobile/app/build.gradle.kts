@@ -18,6 +18,10 @@ android {
             )
             buildConfigField("String", "API_BASE_URL", "\"https://192.168.1.23:7040/\"")
             buildConfigField("boolean", "ENABLE_LOGGING", "true")
+            buildConfigField("int", "HTTP_MAX_IDLE_CONNECTIONS", "5")
+            buildConfigField("long", "HTTP_KEEP_ALIVE_SECONDS", "60L")
+            buildConfigField("String", "HTTP_LOG_MODE", "\"SAMPLED_BODY\"")
+            buildConfigField("int", "HTTP_LOG_BODY_SAMPLE_PERCENT", "100")
 
         }
         release {
@@ -33,6 +37,10 @@ android {
                 "\"https://anemosnguyen2409.southeastasia.cloudapp.azure.com/\""
             )
             buildConfigField("boolean", "ENABLE_LOGGING", "false")
+            buildConfigField("int", "HTTP_MAX_IDLE_CONNECTIONS", "8")
+            buildConfigField("long", "HTTP_KEEP_ALIVE_SECONDS", "300L")
+            buildConfigField("String", "HTTP_LOG_MODE", "\"NONE\"")
+            buildConfigField("int", "HTTP_LOG_BODY_SAMPLE_PERCENT", "0")
         }
     }
 
@@ -53,6 +61,16 @@ android {
             "\"https://anemosnguyen2409.southeastasia.cloudapp.azure.com/\""
         )
         buildConfigField("boolean", "ENABLE_LOGGING", "true")
+
+        // Shared OkHttp core (see HttpClientProvider)
+        buildConfigField("int", "HTTP_MAX_REQUESTS", "64")
+        buildConfigField("int", "HTTP_MAX_REQUESTS_PER_HOST", "10")
+        buildConfigField("int", "HTTP_MAX_IDLE_CONNECTIONS", "5")
+        buildConfigField("long", "HTTP_KEEP_ALIVE_SECONDS", "300L")
+
+        // Network logging (see NetworkLoggingInterceptor): NONE, HEADERS or SAMPLED_BODY
+        buildConfigField("String", "HTTP_LOG_MODE", "\"HEADERS\"")
+        buildConfigField("int", "HTTP_LOG_BODY_SAMPLE_PERCENT", "10")
     }
 
     buildTypes {
@@ -68,6 +86,12 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Local tests touch android.util.Log through the network code
+        unitTests.isReturnDefaultValues = true
+        // Robolectric tests (token refresh, upload queue) read resources and SharedPreferences
+        unitTests.isIncludeAndroidResources = true
+    }
 }
 
 dependencies {
@@ -78,7 +102,7 @@ dependencies {
     implementation("com.squareup.retrofit2:retrofit:2.9.0")
     implementation("com.squareup.retrofit2:converter-gson:2.9.0")
     implementation("com.google.code.gson:gson:2.10.1")
-    implementation("com.squareup.okhttp3:logging-interceptor:4.11.0")
+    implementation("com.squareup.okhttp3:okhttp:4.11.0")
     implementation("com.journeyapps:zxing-android-embedded:4.3.0")
     implementation("androidx.swiperefreshlayout:swiperefreshlayout:1.1.0")
     implementation("com.auth0.android:jwtdecode:2.0.2")
@@ -89,6 +113,8 @@ dependencies {
     implementation(libs.constraintlayout)
     implementation(libs.swiperefreshlayout)
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.11.0")
+    testImplementation("org.robolectric:robolectric:4.14.1")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
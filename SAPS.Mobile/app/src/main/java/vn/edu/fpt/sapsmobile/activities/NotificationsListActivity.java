@@ -19,8 +19,10 @@ import vn.edu.fpt.sapsmobile.network.api.OcrService;
 import vn.edu.fpt.sapsmobile.network.client.ApiClient;
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.adapters.NotificationAdapter;
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
 import vn.edu.fpt.sapsmobile.models.Notification;
 import vn.edu.fpt.sapsmobile.dtos.profile.NotificationsResponse;
+import vn.edu.fpt.sapsmobile.utils.TokenManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +32,9 @@ public class NotificationsListActivity extends AppCompatActivity {
     private NotificationAdapter adapter;
     private List<Notification> notificationList;
     private SharedPreferences sharedPreferences;
+    private AppDatabase db;
+    private String userId;
+    private boolean receivedFresh;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,39 +53,26 @@ public class NotificationsListActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.recycler_view);
         notificationList = new ArrayList<>();
         sharedPreferences = getSharedPreferences("NotificationsPrefs", MODE_PRIVATE);
-
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        db = AppDatabase.getInstance(this);
+        userId = new TokenManager(this).getUserData().getId();
+
+        // Last downloaded list first, replaced once the request below answers
+        db.read(() -> db.notifications().findAll(userId), stored -> {
+            if (isFinishing() || receivedFresh || stored.isEmpty()) return;
+            showNotifications(stored);
+        });
 
        OcrService ocrService =  ApiClient.getServiceLast(this).create(OcrService.class);
 
         ocrService.getNotifications().enqueue(new Callback<NotificationsResponse>() {
             @Override
             public void onResponse(Call<NotificationsResponse> call, Response<NotificationsResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    notificationList = response.body().getNotifications();
-
-                    // Lấy trạng thái "đã đọc" từ SharedPreferences và cập nhật
-                    for (Notification notification : notificationList) {
-                       sharedPreferences.getBoolean("isRead_" + notification.getId(), false);
-                        boolean isRead = sharedPreferences.getBoolean("isRead_" + notification.getId(), false);
-                        notification.setRead(isRead);
-                    }
-
-                    // Cập nhật adapter và RecyclerView
-                    adapter = new NotificationAdapter(notificationList, NotificationsListActivity.this,  (notification, position) ->{
-                        notification.setRead(true);
-                        sharedPreferences.edit().putBoolean("isRead_" + notification.getId(), true).apply();
-
-                        Log.i("check", "onResponse: " + notification.isRead());
-
-
-                        // update ui
-                        adapter.notifyItemChanged(position);
-
-                        // open detaild scree or show toast
-                        Toast.makeText(NotificationsListActivity.this,notification.getHeader() ,Toast.LENGTH_SHORT ).show();
-                    });
-                    recyclerView.setLayoutManager(new LinearLayoutManager(NotificationsListActivity.this));
-                    recyclerView.setAdapter(adapter);
+                if (response.isSuccessful() && response.body() != null && response.body().getNotifications() != null) {
+                    List<Notification> fresh = response.body().getNotifications();
+                    receivedFresh = true;
+                    db.write(() -> db.notifications().replaceAll(userId, fresh));
+                    showNotifications(fresh);
 
 //                    adapter = new NotificationAdapter(notificationList, (notification, position) -> {
 //                        // Mark as read
@@ -109,6 +101,32 @@ public class NotificationsListActivity extends AppCompatActivity {
 
     }
 
+    private void showNotifications(List<Notification> notifications) {
+        notificationList = notifications;
+
+        // Lấy trạng thái "đã đọc" từ SharedPreferences và cập nhật
+        for (Notification notification : notificationList) {
+            boolean isRead = sharedPreferences.getBoolean("isRead_" + notification.getId(), false);
+            notification.setRead(isRead);
+        }
+
+        // Cập nhật adapter và RecyclerView
+        adapter = new NotificationAdapter(notificationList, NotificationsListActivity.this,  (notification, position) ->{
+            notification.setRead(true);
+            sharedPreferences.edit().putBoolean("isRead_" + notification.getId(), true).apply();
+
+            Log.i("check", "onResponse: " + notification.isRead());
+
+
+            // update ui
+            adapter.notifyItemChanged(position);
+
+            // open detaild scree or show toast
+            Toast.makeText(NotificationsListActivity.this,notification.getHeader() ,Toast.LENGTH_SHORT ).show();
+        });
+        recyclerView.setAdapter(adapter);
+    }
+
     private void markAllAsRead(){
         // Logic to mark all notifications as read
         for (Notification notification : notificationList) {
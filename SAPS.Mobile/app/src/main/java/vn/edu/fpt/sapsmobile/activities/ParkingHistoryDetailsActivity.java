@@ -27,6 +27,7 @@ import vn.edu.fpt.sapsmobile.dtos.parkingsession.ParkingSessionDetailsResponse;
 import vn.edu.fpt.sapsmobile.network.client.ApiClient;
 import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
 import vn.edu.fpt.sapsmobile.R;
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
 import vn.edu.fpt.sapsmobile.models.ParkingLot;
 import vn.edu.fpt.sapsmobile.models.ParkingSession;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
@@ -195,6 +196,9 @@ public class ParkingHistoryDetailsActivity extends AppCompatActivity {
             parkingLot.setId(data.getParkingLot().getId());
             parkingLot.setName(data.getParkingLot().getName());
             parkingLot.setAddress(data.getParkingLot().getAddress());
+            AppDatabase db = AppDatabase.getInstance(this);
+            ParkingLot lot = parkingLot;
+            db.write(() -> db.parkingLots().upsert(lot));
         }
         
         // Initialize UI with the data
@@ -1,12 +1,8 @@
 package vn.edu.fpt.sapsmobile.activities.auth;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.MenuItem;
@@ -24,25 +20,16 @@ import com.google.android.material.snackbar.Snackbar;
 
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
-import okhttp3.RequestBody;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-import vn.edu.fpt.sapsmobile.network.client.ApiClient;
-import vn.edu.fpt.sapsmobile.network.api.OcrService;
-import vn.edu.fpt.sapsmobile.network.api.IVehicleRegistraionCertOrcApi;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.MessageServerResponse;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleResponse;
+import vn.edu.fpt.sapsmobile.services.UploadQueue;
+import vn.edu.fpt.sapsmobile.utils.ImagePipeline;
+import vn.edu.fpt.sapsmobile.utils.UploadImageStore;
 import vn.edu.fpt.sapsmobile.utils.LoadingDialog;
 import vn.edu.fpt.sapsmobile.utils.StringUtils;
 
@@ -56,6 +43,7 @@ public class AddVehicleActivity extends AppCompatActivity {
     private static final int MAX_IMAGE_WIDTH = 1024;
     private static final int MAX_IMAGE_HEIGHT = 768;
     private static final int JPEG_QUALITY = 85;
+    private static final int PREVIEW_MAX_SIDE = 800;
 
     private ImageView previewImageFront, previewImageBack;
     private Button btnTakePhoto, btnPickFront, btnPickBack, completeButton;
@@ -64,13 +52,17 @@ public class AddVehicleActivity extends AppCompatActivity {
     private Uri frontImageUri;
     private Uri backImageUri;
 
-    // Cached compressed image data
-    private byte[] frontImageBytes;
-    private byte[] backImageBytes;
+    // Compressed images on disk, streamed to each upload
+    private UploadImageStore.UploadImage frontImage;
+    private UploadImageStore.UploadImage backImage;
+
+    // Last OCR result and the image hashes it was read from
+    private String ocrImagesKey;
+    private VehicleResponse ocrResult;
 
     private LoadingDialog loadingDialog;
-    private final ExecutorService backgroundExecutor = Executors.newCachedThreadPool();
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ImagePipeline.Scope imageJobs;
+    private UploadQueue uploadQueue;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -90,13 +82,9 @@ public class AddVehicleActivity extends AppCompatActivity {
         setupClickListeners();
 
         loadingDialog = new LoadingDialog(this);
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        // Clean up executor to prevent memory leaks
-        backgroundExecutor.shutdown();
+        // Cancelled with the activity
+        imageJobs = ImagePipeline.scope(this);
+        uploadQueue = UploadQueue.getInstance(this);
     }
 
     private void initializeViews() {
@@ -162,30 +150,32 @@ public class AddVehicleActivity extends AppCompatActivity {
         // Show loading for image processing
         loadingDialog.show("Processing image...");
 
-        // Process image asynchronously
+        // Process image asynchronously; re-picking the same side replaces the pending job
         // process image then update ui with image view
-        CompletableFuture
-                .supplyAsync(() -> processImageAsync(imageUri), backgroundExecutor)
-                .thenAcceptAsync(this::handleImageProcessed, mainHandler::post)
-                .exceptionally(throwable -> {
-                    mainHandler.post(() -> {
+        imageJobs.submit(isFront ? "front" : "back", () -> processImageAsync(imageUri),
+                new ImagePipeline.Callback<ImageProcessResult>() {
+                    @Override
+                    public void onSuccess(ImageProcessResult result) {
+                        handleImageProcessed(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
                         loadingDialog.dismiss();
-                        Log.e("IMAGE_PROCESS_ERROR", "Error processing image", throwable);
-                        Toast.makeText(this, getString(R.string.toast_upload_failed, throwable.getMessage()), Toast.LENGTH_SHORT).show();
-                    });
-                    return null;
+                        Log.e("IMAGE_PROCESS_ERROR", "Error processing image", e);
+                        Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_upload_failed, e.getMessage()), Toast.LENGTH_SHORT).show();
+                    }
                 });
     }
 //region handle load, compressImage
     private ImageProcessResult processImageAsync(Uri imageUri) {
         try {
-            // Compress and process image in background
-            byte[] compressedBytes = compressImage(imageUri);
-            Bitmap previewBitmap = createPreviewBitmap(imageUri);
-
-            return new ImageProcessResult(compressedBytes, previewBitmap, imageUri, null);
+            // One decode gives both the upload file and the preview
+            UploadImageStore.UploadImage image = UploadImageStore.getInstance(this).prepare(this, imageUri,
+                    MAX_IMAGE_WIDTH, MAX_IMAGE_HEIGHT, JPEG_QUALITY, PREVIEW_MAX_SIDE);
+            return new ImageProcessResult(image, imageUri, null);
         } catch (Exception e) {
-            return new ImageProcessResult(null, null, imageUri, e);
+            return new ImageProcessResult(null, imageUri, e);
         }
     }
 
@@ -200,134 +190,73 @@ public class AddVehicleActivity extends AppCompatActivity {
         // Update UI with processed image
         boolean isFront = result.uri.equals(frontImageUri);
         if (isFront) {
-            frontImageBytes = result.compressedBytes;
-            previewImageFront.setImageBitmap(result.previewBitmap);
+            frontImage = result.image;
+            previewImageFront.setImageBitmap(result.image.preview);
             previewImageFront.setVisibility(android.view.View.VISIBLE);
         } else {
-            backImageBytes = result.compressedBytes;
-            previewImageBack.setImageBitmap(result.previewBitmap);
+            backImage = result.image;
+            previewImageBack.setImageBitmap(result.image.preview);
             previewImageBack.setVisibility(android.view.View.VISIBLE);
         }
 
         // Auto-trigger OCR when both images are ready
-        if (frontImageBytes != null && backImageBytes != null) {
+        if (frontImage != null && backImage != null) {
             performOcrAsync();
         }
     }
 
-    private byte[] compressImage(Uri uri) throws IOException {
-        // Get image dimensions first
-        BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
-        boundsOptions.inJustDecodeBounds = true;
-
-        try (InputStream is = getContentResolver().openInputStream(uri)) {
-            BitmapFactory.decodeStream(is, null, boundsOptions);
-        }
-
-        // Calculate sample size for efficient memory usage
-        int sampleSize = calculateSampleSize(boundsOptions.outWidth, boundsOptions.outHeight);
-
-        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
-        decodeOptions.inSampleSize = sampleSize;
-        decodeOptions.inJustDecodeBounds = false;
-
-        Bitmap bitmap;
-        try (InputStream is = getContentResolver().openInputStream(uri)) {
-            bitmap = BitmapFactory.decodeStream(is, null, decodeOptions);
-        }
-
-        if (bitmap == null) {
-            throw new IOException("Failed to decode image");
-        }
-
-        // Further resize if still too large
-        bitmap = resizeBitmapIfNeeded(bitmap);
-
-        // Compress to JPEG
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, baos);
-        bitmap.recycle(); // Free memory immediately
-
-        return baos.toByteArray();
-    }
-
-    private Bitmap createPreviewBitmap(Uri uri) throws IOException {
-        // Create a smaller preview bitmap for UI
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inSampleSize = 4; // Much smaller for preview
-        options.inJustDecodeBounds = false;
-
-        try (InputStream is = getContentResolver().openInputStream(uri)) {
-            return BitmapFactory.decodeStream(is, null, options);
-        }
-    }
-
-    private int calculateSampleSize(int width, int height) {
-        int sampleSize = 1;
-        while (width / sampleSize > MAX_IMAGE_WIDTH || height / sampleSize > MAX_IMAGE_HEIGHT) {
-            sampleSize *= 2;
-        }
-        return sampleSize;
-    }
-
-    private Bitmap resizeBitmapIfNeeded(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-
-        if (width <= MAX_IMAGE_WIDTH && height <= MAX_IMAGE_HEIGHT) {
-            return bitmap;
-        }
-
-        float ratio = Math.min((float) MAX_IMAGE_WIDTH / width, (float) MAX_IMAGE_HEIGHT / height);
-        int newWidth = Math.round(width * ratio);
-        int newHeight = Math.round(height * ratio);
-
-        Bitmap resized = Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
-        bitmap.recycle(); // Free original bitmap
-        return resized;
-    }
 //endregion
     private void performOcrAsync() {
-        if (frontImageBytes == null || backImageBytes == null) {
+        if (frontImage == null || backImage == null) {
             Toast.makeText(this, getString(R.string.toast_please_select_both_sides_registration), Toast.LENGTH_SHORT).show();
             return;
         }
 
-        loadingDialog.show("Processing vehicle registration...");
+        // Same pictures as last time (e.g. one side re-picked unchanged): reuse the result
+        String imagesKey = frontImage.sha256 + backImage.sha256;
+        if (imagesKey.equals(ocrImagesKey) && ocrResult != null) {
+            populateFormFields(ocrResult);
+            return;
+        }
 
-        // Create multipart bodies
-        RequestBody frontBody = RequestBody.create(frontImageBytes, MediaType.parse("image/jpeg"));
-        RequestBody backBody = RequestBody.create(backImageBytes, MediaType.parse("image/jpeg"));
+        String message = "Processing vehicle registration...";
+        loadingDialog.show(message);
 
-        MultipartBody.Part frontPart = MultipartBody.Part.createFormData("frontImage", "front.jpg", frontBody);
-        MultipartBody.Part backPart = MultipartBody.Part.createFormData("backImage", "back.jpg", backBody);
+        // Retried through the upload queue; dropped if this screen goes away
+        String jobId = uploadQueue.enqueue(UploadQueue.KIND_VEHICLE_OCR, Collections.emptyMap(),
+                frontImage.file, backImage.file);
+        uploadQueue.observe(this, jobId, new UploadQueue.Observer() {
+            @Override
+            public void onProgress(int percent) {
+                loadingDialog.setMessage(message + " " + percent + "%");
+            }
 
-        // Get OCR API service
-        IVehicleRegistraionCertOrcApi IVehicleRegistraionCertOrcApi = ApiClient.getServiceLast(this).create(IVehicleRegistraionCertOrcApi.class);
+            @Override
+            public void onWaiting(int attempt) {
+                // Let the user give up instead of waiting out the backoff
+                loadingDialog.dismiss();
+                loadingDialog.show(getString(R.string.toast_upload_queued), true, () -> uploadQueue.cancel(jobId));
+            }
 
-        // Make API call
-        Call<VehicleResponse> call = IVehicleRegistraionCertOrcApi.uploadVehicleRegistration(frontPart, backPart);
-        call.enqueue(new Callback<VehicleResponse>() {
             @Override
-            public void onResponse(Call<VehicleResponse> call, Response<VehicleResponse> response) {
+            public void onFinished(UploadQueue.Outcome outcome) {
                 loadingDialog.dismiss();
 
-                if (response.isSuccessful() && response.body() != null) {
-                    VehicleResponse vehicleResponse = response.body();
+                if (outcome.isSuccessful() && outcome.body != null) {
+                    VehicleResponse vehicleResponse = (VehicleResponse) outcome.body;
                     Log.i(TAG, "onResponse: " +vehicleResponse );
+                    ocrImagesKey = imagesKey;
+                    ocrResult = vehicleResponse;
                     populateFormFields(vehicleResponse);
                     Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_auto_filled_from_registration), Toast.LENGTH_SHORT).show();
+                } else if (outcome.code != 0) {
+                    handleApiError("OCR failed", outcome.code, outcome.errorBody);
                 } else {
-                    handleApiError("OCR failed", response);
+                    String error = outcome.error != null ? outcome.error.getMessage() : null;
+                    Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_upload_failed, error), Toast.LENGTH_SHORT).show();
+                    Log.e("VEHICLE_OCR_UPLOAD_ERROR", "Error uploading images: " + error);
                 }
             }
-
-            @Override
-            public void onFailure(Call<VehicleResponse> call, Throwable t) {
-                loadingDialog.dismiss();
-                Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_upload_failed, t.getMessage()), Toast.LENGTH_SHORT).show();
-                Log.e("VEHICLE_OCR_UPLOAD_ERROR", "Error uploading images: " + t.getMessage());
-            }
         });
     }
 
@@ -351,7 +280,7 @@ public class AddVehicleActivity extends AppCompatActivity {
 
     private void completeRegistration() {
         // Validate required fields
-        if (frontImageBytes == null || backImageBytes == null) {
+        if (frontImage == null || backImage == null) {
             Toast.makeText(this, R.string.edit_profile_toast_notification_1, Toast.LENGTH_SHORT).show();
             return;
         }
@@ -378,48 +307,46 @@ public class AddVehicleActivity extends AppCompatActivity {
     private void registerVehicleAsync(String licensePlate, String model, String color, String ownerName,
                                       String brand, String engineNumber, String chassisNumber,String vehicleType) {
 
-        // Create multipart request body for images (using cached compressed data)
-        RequestBody frontBody = RequestBody.create(frontImageBytes, MediaType.parse("image/jpeg"));
-        RequestBody backBody = RequestBody.create(backImageBytes, MediaType.parse("image/jpeg"));
-
-        MultipartBody.Part frontPart = MultipartBody.Part.createFormData("FrontVehicleRegistrationCertImage", "front.jpg", frontBody);
-        MultipartBody.Part backPart = MultipartBody.Part.createFormData("BackVehicleRegistrationCertImage", "back.jpg", backBody);
-
-        // Create text request bodies
-        RequestBody licensePlateBody = RequestBody.create(licensePlate, MediaType.parse("text/plain"));
-        RequestBody modelBody = RequestBody.create(model, MediaType.parse("text/plain"));
-        RequestBody colorBody = RequestBody.create(color, MediaType.parse("text/plain"));
-        RequestBody ownerNameBody = RequestBody.create(ownerName, MediaType.parse("text/plain"));
-        RequestBody brandBody = RequestBody.create(brand, MediaType.parse("text/plain"));
-        RequestBody engineNumberBody = RequestBody.create(engineNumber, MediaType.parse("text/plain"));
-        RequestBody chassisNumberBody = RequestBody.create(chassisNumber, MediaType.parse("text/plain"));
-        RequestBody vehicleTypeBody = RequestBody.create(vehicleType, MediaType.parse("text/plain"));
-
-        // Get API service
-        OcrService ocrService = ApiClient.getServiceLast(this).create(OcrService.class);
-
-        // Make API call
-        Call<MessageServerResponse> call = ocrService.registerVehicle(
-                frontPart, backPart, licensePlateBody, brandBody, modelBody,
-                engineNumberBody, chassisNumberBody, colorBody, ownerNameBody, vehicleTypeBody
-        );
-
-        call.enqueue(new Callback<MessageServerResponse>() {
+        // Text parts keyed by their multipart name
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("LicensePlate", licensePlate);
+        fields.put("Brand", brand);
+        fields.put("Model", model);
+        fields.put("EngineNumber", engineNumber);
+        fields.put("ChassisNumber", chassisNumber);
+        fields.put("Color", color);
+        fields.put("OwnerVehicleFullName", ownerName);
+        fields.put("VehicleType", vehicleType);
+
+        // Persistent: survives a dropped connection or this screen being closed
+        String jobId = uploadQueue.enqueue(UploadQueue.KIND_REGISTER_VEHICLE, fields,
+                frontImage.file, backImage.file);
+        uploadQueue.observe(this, jobId, new UploadQueue.Observer() {
+            @Override
+            public void onProgress(int percent) {
+                loadingDialog.setMessage("Registering vehicle... " + percent + "%");
+            }
+
+            @Override
+            public void onWaiting(int attempt) {
+                // No need to keep the user here, the queue finishes the job and toasts the result
+                loadingDialog.dismiss();
+                Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_upload_queued), Toast.LENGTH_LONG).show();
+                finish();
+            }
+
             @Override
-            public void onResponse(Call<MessageServerResponse> call, Response<MessageServerResponse> response) {
+            public void onFinished(UploadQueue.Outcome outcome) {
                 loadingDialog.dismiss();
 
-                if (response.isSuccessful() && response.body() != null) {
-                    MessageServerResponse vehicleResponse = response.body();
+                if (outcome.isSuccessful() && outcome.body != null) {
+                    MessageServerResponse vehicleResponse = (MessageServerResponse) outcome.body;
                     if(vehicleResponse.getMessage() != null){
                         String message = StringUtils.getErrorMessage(AddVehicleActivity.this, vehicleResponse.getMessage());
                         Snackbar.make(findViewById(android.R.id.content), message, Snackbar.LENGTH_LONG).show();
                     } else {
                         Snackbar.make(findViewById(android.R.id.content), "Vehicle registered successfully", Snackbar.LENGTH_LONG).show();
                     }
-//                    Toast.makeText(AddVehicleActivity.this,
-//                            vehicleResponse.getMessage() != null ? vehicleResponse.getMessage() : "",
-//                            Toast.LENGTH_LONG).show();
 
                     // Return success result
                     Intent resultIntent = new Intent();
@@ -427,64 +354,54 @@ public class AddVehicleActivity extends AppCompatActivity {
                     resultIntent.putExtra("message", vehicleResponse.getMessage());
                     setResult(RESULT_OK, resultIntent);
                     finish();
+                } else if (outcome.code != 0) {
+                    handleApiError("Registration failed", outcome.code, outcome.errorBody);
                 } else {
-                    handleApiError("Registration failed", response);
+                    String error = outcome.error != null ? outcome.error.getMessage() : null;
+                    Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_registration_failed, error), Toast.LENGTH_LONG).show();
+                    Log.e("VEHICLE_REGISTRATION_ERROR", "Error registering vehicle: " + error);
                 }
             }
-
-            @Override
-            public void onFailure(Call<MessageServerResponse> call, Throwable t) {
-                loadingDialog.dismiss();
-                Toast.makeText(AddVehicleActivity.this, getString(R.string.toast_registration_failed, t.getMessage()), Toast.LENGTH_LONG).show();
-                Log.e("VEHICLE_REGISTRATION_ERROR", "Error registering vehicle: " + t.getMessage());
-            }
         });
     }
 
-    private void handleApiError(String prefix, Response<?> response) {
+    private void handleApiError(String prefix, int code, @Nullable String errorBody) {
         String errorMessage = "";
         String userFriendlyMessage = "";
 
-        try {
-            if (response.errorBody() != null) {
-                String errorBody = response.errorBody().string();
-
-                // Try to parse the JSON error response
-                if (errorBody.contains("VEHICLE_ALREADY_EXISTS")) {
-                    userFriendlyMessage = "This vehicle is already registered in the system. Please check your license plate number.";
-                } else if (errorBody.contains("INVALID_LICENSE_PLATE")) {
-                    userFriendlyMessage = "Invalid license plate format. Please check and try again.";
-                } else if (errorBody.contains("MISSING_REQUIRED_FIELD")) {
-                    userFriendlyMessage = "Some required information is missing. Please fill all fields.";
-                } else if (errorBody.contains("INVALID_IMAGE")) {
-                    userFriendlyMessage = "Invalid image format. Please upload valid JPEG images.";
-                } else {
-                    // Try to parse JSON for a generic message
-                    try {
-                        JSONObject errorJson = new JSONObject(errorBody);
-                        String message = errorJson.optString("message", "");
-                        if (!message.isEmpty()) {
-                            userFriendlyMessage = "Registration failed: " + message.replace("_", " ").toLowerCase();
-                        }
-                    } catch (Exception e) {
-                        userFriendlyMessage = "Registration failed. Please try again.";
+        if (errorBody != null) {
+            // Try to parse the JSON error response
+            if (errorBody.contains("VEHICLE_ALREADY_EXISTS")) {
+                userFriendlyMessage = "This vehicle is already registered in the system. Please check your license plate number.";
+            } else if (errorBody.contains("INVALID_LICENSE_PLATE")) {
+                userFriendlyMessage = "Invalid license plate format. Please check and try again.";
+            } else if (errorBody.contains("MISSING_REQUIRED_FIELD")) {
+                userFriendlyMessage = "Some required information is missing. Please fill all fields.";
+            } else if (errorBody.contains("INVALID_IMAGE")) {
+                userFriendlyMessage = "Invalid image format. Please upload valid JPEG images.";
+            } else {
+                // Try to parse JSON for a generic message
+                try {
+                    JSONObject errorJson = new JSONObject(errorBody);
+                    String message = errorJson.optString("message", "");
+                    if (!message.isEmpty()) {
+                        userFriendlyMessage = "Registration failed: " + message.replace("_", " ").toLowerCase();
                     }
+                } catch (Exception e) {
+                    userFriendlyMessage = "Registration failed. Please try again.";
                 }
-                errorMessage = errorBody;
             }
-        } catch (IOException e) {
-            errorMessage = "Error reading error response";
-            userFriendlyMessage = "Registration failed. Please check your connection and try again.";
+            errorMessage = errorBody;
         }
 
         // Show user-friendly message
         Toast.makeText(this, userFriendlyMessage, Toast.LENGTH_LONG).show();
 
         // Log technical details for debugging
-        Log.e("API_ERROR", prefix + ": " + response.code() + " - " + errorMessage);
+        Log.e("API_ERROR", prefix + ": " + code + " - " + errorMessage);
 
         // Handle specific error codes
-        switch (response.code()) {
+        switch (code) {
             case 400:
                 // Bad Request - usually validation errors or business logic errors like VEHICLE_ALREADY_EXISTS
                 Log.w("API_ERROR", "Bad Request (400): " + errorMessage);
@@ -507,21 +424,19 @@ public class AddVehicleActivity extends AppCompatActivity {
                 Log.e("API_ERROR", "Server Error (500): " + errorMessage);
                 break;
             default:
-                Log.e("API_ERROR", "HTTP " + response.code() + ": " + errorMessage);
+                Log.e("API_ERROR", "HTTP " + code + ": " + errorMessage);
                 break;
         }
     }
 
     // Helper class for async image processing results
     private static class ImageProcessResult {
-        final byte[] compressedBytes;
-        final Bitmap previewBitmap;
+        final UploadImageStore.UploadImage image;
         final Uri uri;
         final Exception error;
 
-        ImageProcessResult(byte[] compressedBytes, Bitmap previewBitmap, Uri uri, Exception error) {
-            this.compressedBytes = compressedBytes;
-            this.previewBitmap = previewBitmap;
+        ImageProcessResult(UploadImageStore.UploadImage image, Uri uri, Exception error) {
+            this.image = image;
             this.uri = uri;
             this.error = error;
         }
@@ -9,6 +9,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -17,6 +18,7 @@ import androidx.core.view.WindowInsetsCompat;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
 
 import androidx.core.app.NavUtils;
 
@@ -32,6 +34,7 @@ import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.models.ParkingLot;
 import vn.edu.fpt.sapsmobile.models.ParkingSession;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
+import vn.edu.fpt.sapsmobile.services.PaymentPrefetcher;
 import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
 import vn.edu.fpt.sapsmobile.utils.StringUtils;
 import vn.edu.fpt.sapsmobile.dtos.payment.CheckoutRequest;
@@ -50,6 +53,8 @@ public class CheckoutActivity extends AppCompatActivity {
     private Vehicle vehicle;
     private ParkingSession parkingSessionToCheckOut;
     private ParkingLot parkingLotCheckOut;
+    // One key per checkout attempt, reused when the user taps again after a network error
+    private String checkoutKey;
 
     // Constants
     private static final String DEFAULT_ENTRY_TIME = "N/A";
@@ -57,6 +62,7 @@ public class CheckoutActivity extends AppCompatActivity {
     private static final String DEFAULT_DURATION = "N/A";
     private static final String DEFAULT_LOCATION = "N/A";
     private static final String DEFAULT_VEHICLE_INFO = "N/A";
+    private static final String STATE_CHECKOUT_KEY = "checkoutKey";
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
@@ -72,6 +78,9 @@ public class CheckoutActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_checkout);
+        if (savedInstanceState != null) {
+            checkoutKey = savedInstanceState.getString(STATE_CHECKOUT_KEY);
+        }
 
         initializeViews();
         setupActionBar();
@@ -80,6 +89,12 @@ public class CheckoutActivity extends AppCompatActivity {
         setupWindowInsets();
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_CHECKOUT_KEY, checkoutKey);
+    }
+
 
     private void initializeViews() {
         tvVehicle = findViewById(R.id.tvVehicle);
@@ -271,11 +286,15 @@ public class CheckoutActivity extends AppCompatActivity {
             Toast.makeText(this, R.string.activity_check_out_not_available, Toast.LENGTH_SHORT).show();
             return;
         }
+        if (checkoutKey == null) checkoutKey = UUID.randomUUID().toString();
+        btnConfirmCheckout.setEnabled(false);
         IParkingSessionApiService api = ApiClient.getServiceLast(this).create(IParkingSessionApiService.class);
         CheckoutRequest request = new CheckoutRequest(parkingSessionToCheckOut.getId(), "Bank");
-        api.checkout(request).enqueue(new Callback<CheckoutResponse>() {
+        // Transport failures are retried by RetryInterceptor under the same key
+        api.checkout(checkoutKey, request).enqueue(new Callback<CheckoutResponse>() {
             @Override
             public void onResponse(Call<CheckoutResponse> call, Response<CheckoutResponse> response) {
+                btnConfirmCheckout.setEnabled(true);
                 if (response.isSuccessful() && response.body() != null) {
                     // Handle successful response (199-299 status codes)
                     CheckoutResponse body = response.body();
@@ -315,6 +334,7 @@ public class CheckoutActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Call<CheckoutResponse> call, Throwable t) {
+                btnConfirmCheckout.setEnabled(true);
                 Log.e(TAG, "Checkout API error", t);
                 Toast.makeText(CheckoutActivity.this, getString(R.string.toast_network_error_checkout), Toast.LENGTH_SHORT).show();
             }
@@ -323,6 +343,8 @@ public class CheckoutActivity extends AppCompatActivity {
 
     private void navigateToPayment() {
         if (parkingSessionToCheckOut == null) return;
+        // Payment info and its QR load while the payment screen is being created
+        PaymentPrefetcher.getInstance(this).prefetch(parkingSessionToCheckOut.getId());
         Intent intent = new Intent(this, PaymentActivity.class);
         intent.putExtra("vehicleId", parkingSessionToCheckOut.getVehicleId());
         intent.putExtra("sessionId", parkingSessionToCheckOut.getId());
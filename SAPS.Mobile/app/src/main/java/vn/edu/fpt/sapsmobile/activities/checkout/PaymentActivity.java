@@ -5,7 +5,6 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -18,6 +17,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -25,9 +25,10 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.elevation.SurfaceColors;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.UUID;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -42,10 +43,15 @@ import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
 import vn.edu.fpt.sapsmobile.dtos.payment.PaymentResponseDTO;
 import vn.edu.fpt.sapsmobile.dtos.payment.PaymentDataDTO;
 import vn.edu.fpt.sapsmobile.R;
+import vn.edu.fpt.sapsmobile.services.PaymentPrefetcher;
+import vn.edu.fpt.sapsmobile.services.PaymentStatusWatcher;
+import vn.edu.fpt.sapsmobile.utils.ImagePipeline;
+import vn.edu.fpt.sapsmobile.utils.QrCodeRenderer;
 import vn.edu.fpt.sapsmobile.utils.StringUtils;
 
 public class PaymentActivity extends AppCompatActivity {
     private static String TAG = "PaymentActivity";
+    private static final String STATE_CANCEL_KEY = "cancelKey";
 
     ImageView imgQrCode;
     Button btnIHavePaid, btnBrowser, btnCancel, btnSaveQr;
@@ -53,18 +59,32 @@ public class PaymentActivity extends AppCompatActivity {
     ImageView btnCopyAccount, btnCopyName, btnCopyRef;
     String vehicleID, sessionID;
     PaymentResponseDTO payment;
+    private PaymentStatusWatcher statusWatcher;
+    private ImagePipeline.Scope imageJobs;
+    // Cached PNG of the QR on screen, copied by "save to gallery"
+    private File qrPng;
+    // Set by "I have paid" so the next non-final status is explained to the user
+    private boolean statusRequestedByUser;
+    // Reused when cancelling again after a network error; the server ignores it for now, so a
+    // failed cancel is confirmed against the payment status (see confirmCancelled)
+    private String cancelKey;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_payment);
+        if (savedInstanceState != null) {
+            cancelKey = savedInstanceState.getString(STATE_CANCEL_KEY);
+        }
+        imageJobs = ImagePipeline.scope(this);
 
         initializeViews();
         setupActionBar();
         handleIntentData();
-        loadRequireData();
         setupButtonListeners();
+        // After the listeners: prefetched data is applied synchronously
+        loadRequireData();
         setupWindowInsets();
 
     }
@@ -98,9 +118,14 @@ public class PaymentActivity extends AppCompatActivity {
 
     }
     private void setupCheckStatus(String orderCode) {
-        if (orderCode == null || orderCode.isEmpty()) return;
+        if (orderCode == null || orderCode.isEmpty() || statusWatcher != null) return;
+        // Polls on its own while visible; checks immediately when coming back from the browser
+        statusWatcher = PaymentStatusWatcher.watch(this, this, orderCode, this::handlePaymentStatus);
         btnIHavePaid.setEnabled(true);
-        btnIHavePaid.setOnClickListener(v -> fetchCheckStatus(orderCode));
+        btnIHavePaid.setOnClickListener(v -> {
+            statusRequestedByUser = true;
+            statusWatcher.checkNow();
+        });
     }
 
     private void setupButtonListeners() {
@@ -169,6 +194,12 @@ public class PaymentActivity extends AppCompatActivity {
     //endregion
 
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_CANCEL_KEY, cancelKey);
+    }
+
     // region load data from intent
     private void handleIntentData() {
         vehicleID = getIntent().getStringExtra("vehicleId");
@@ -181,6 +212,19 @@ public class PaymentActivity extends AppCompatActivity {
     private void loadRequireData() {
         if (sessionID == null || sessionID.isEmpty()) return;
 
+        // Started by CheckoutActivity; if it is ready the QR shows on the first frame
+        boolean prefetched = PaymentPrefetcher.getInstance(this).take(this, sessionID, prefetchedPayment -> {
+            if (prefetchedPayment != null) {
+                payment = prefetchedPayment;
+                updatePaymentData();
+            } else {
+                fetchPaymentInfo();
+            }
+        });
+        if (!prefetched) fetchPaymentInfo();
+    }
+
+    private void fetchPaymentInfo() {
         IParkingSessionApiService api = ApiClient.getServiceLast(this).create(IParkingSessionApiService.class);
         api.getPaymentInfo(sessionID).enqueue(new Callback<PaymentApiResponseDTO>() {
             @Override
@@ -249,45 +293,52 @@ public class PaymentActivity extends AppCompatActivity {
             Log.e(TAG, "ImageView imgQrCode is null");
             return;
         }
-        Log.d(TAG, "Generating QR code for payload: " + payload);
-        BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-        try {
-            Bitmap bitmap = barcodeEncoder.encodeBitmap(
-                    payload,
-                    BarcodeFormat.QR_CODE,
-                    400, 400
-            );
-            // Make sure we're on the main thread
-            runOnUiThread(() -> {
-                imgQrCode.setImageBitmap(bitmap);
-                imgQrCode.setVisibility(View.VISIBLE);
-                if (btnSaveQr != null) btnSaveQr.setEnabled(true);
-            });
-        } catch (WriterException e) {
-            Log.e(TAG, "Error generating QR code: " + e.getMessage());
-            e.printStackTrace();
+        int sizePx = qrSizePx();
+        QrCodeRenderer.Rendered cached = QrCodeRenderer.peek(payload, sizePx);
+        if (cached != null) {
+            showQr(cached);
+            return;
         }
+        // Encoding (or reading the cached PNG) happens on the image pool
+        imageJobs.submit("qr", () -> QrCodeRenderer.render(this, payload, sizePx),
+                new ImagePipeline.Callback<QrCodeRenderer.Rendered>() {
+                    @Override
+                    public void onSuccess(QrCodeRenderer.Rendered result) {
+                        showQr(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Error generating QR code: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    private void showQr(QrCodeRenderer.Rendered rendered) {
+        qrPng = rendered.png;
+        imgQrCode.setImageBitmap(rendered.bitmap);
+        imgQrCode.setVisibility(View.VISIBLE);
+        if (btnSaveQr != null) btnSaveQr.setEnabled(true);
+    }
+
+    /** The QR view's real pixel size, so the bitmap is drawn 1:1 instead of scaled. */
+    private int qrSizePx() {
+        int width = imgQrCode.getLayoutParams() != null ? imgQrCode.getLayoutParams().width : 0;
+        if (width <= 0) width = imgQrCode.getWidth();
+        if (width <= 0) width = getResources().getDimensionPixelSize(R.dimen.payment_qr_size);
+        return width;
     }
 
     private void saveQrToGallery() {
-        if (imgQrCode.getDrawable() == null) {
+        File png = qrPng;
+        if (png == null || !png.exists()) {
             Toast.makeText(this, "No QR image to save", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        Bitmap bitmap;
-        if (imgQrCode.getDrawable() instanceof android.graphics.drawable.BitmapDrawable) {
-            bitmap = ((android.graphics.drawable.BitmapDrawable) imgQrCode.getDrawable()).getBitmap();
-        } else {
-            bitmap = Bitmap.createBitmap(imgQrCode.getWidth(), imgQrCode.getHeight(), Bitmap.Config.ARGB_8888);
-            android.graphics.Canvas canvas = new android.graphics.Canvas(bitmap);
-            imgQrCode.getDrawable().setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-            imgQrCode.getDrawable().draw(canvas);
-        }
-
         String fileName = "QR_" + System.currentTimeMillis() + ".png";
-        try {
-            Uri uri;
+        // Copies the cached PNG; nothing is compressed again, and no disk work on the main thread
+        imageJobs.submit("save-qr", () -> {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
                 android.content.ContentValues values = new android.content.ContentValues();
                 values.put(MediaStore.Images.Media.DISPLAY_NAME, fileName);
@@ -295,56 +346,38 @@ public class PaymentActivity extends AppCompatActivity {
                 values.put(MediaStore.Images.Media.RELATIVE_PATH, "Pictures/SAPS");
                 values.put(MediaStore.Images.Media.IS_PENDING, 1);
 
-                uri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+                Uri uri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
                 if (uri == null) throw new IllegalStateException("Failed to create new MediaStore record");
 
                 try (java.io.OutputStream out = getContentResolver().openOutputStream(uri)) {
                     if (out == null) throw new IllegalStateException("Failed to open output stream");
-                    bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+                    Files.copy(png.toPath(), out);
                 }
 
                 values.clear();
                 values.put(MediaStore.Images.Media.IS_PENDING, 0);
                 getContentResolver().update(uri, values, null, null);
+                return uri;
             } else {
                 String savedImageURL = MediaStore.Images.Media.insertImage(
-                        getContentResolver(), bitmap, fileName, "Payment QR Code");
-                uri = Uri.parse(savedImageURL);
+                        getContentResolver(), png.getPath(), fileName, "Payment QR Code");
+                if (savedImageURL == null) throw new IllegalStateException("Failed to insert image");
+                return Uri.parse(savedImageURL);
             }
-
-            Toast.makeText(this, "Saved to gallery", Toast.LENGTH_SHORT).show();
-        } catch (Exception e) {
-            Log.e(TAG, "saveQrToGallery: ", e);
-            Toast.makeText(this, "Save failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
-    }
-    private void fetchCheckStatus(String orderCode){
-        TransactionApiService txApi = ApiClient.getServiceLast(this).create(TransactionApiService.class);
-        txApi.getTransactionPayOs(orderCode).enqueue(new Callback<PaymentStatusResponseDTO>() {
+        }, new ImagePipeline.Callback<Uri>() {
             @Override
-            public void onResponse(Call<PaymentStatusResponseDTO> call, Response<PaymentStatusResponseDTO> response) {
-                if (response.isSuccessful() && response.body() != null && response.body().getData() != null) {
-                    String statusString = response.body().getData().getStatus();
-                    PaymentStatus status = PaymentStatus.fromString(statusString);
-
-                    Log.i(TAG, "onResponse: " + response.body().getData().toString());
-
-                    handlePaymentStatus(status);
-                } else {
-                    // API call successful but no valid data
-//                        navigateToResultActivity(PaymentStatus.FAILED);
-                }
+            public void onSuccess(Uri result) {
+                Toast.makeText(PaymentActivity.this, "Saved to gallery", Toast.LENGTH_SHORT).show();
             }
 
             @Override
-            public void onFailure(Call<PaymentStatusResponseDTO> call, Throwable t) {
-//                    navigateToResultActivity("Failure");
+            public void onError(Exception e) {
+                Log.e(TAG, "saveQrToGallery: ", e);
+                Toast.makeText(PaymentActivity.this, "Save failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-
-
     private void handlePaymentStatus(PaymentStatus status) {
         switch (status) {
             case PAID:
@@ -360,7 +393,10 @@ public class PaymentActivity extends AppCompatActivity {
             case PENDING:
             case PROCESSING:
             case UNDERPAID:
-                showPaymentStatusToast(status);
+                if (statusRequestedByUser) {
+                    statusRequestedByUser = false;
+                    showPaymentStatusToast(status);
+                }
                 break;
 
             case UNKNOWN:
@@ -417,21 +453,50 @@ public class PaymentActivity extends AppCompatActivity {
             return;
         }
 
+        if (cancelKey == null) cancelKey = UUID.randomUUID().toString();
+        btnCancel.setEnabled(false);
         TransactionApiService txApi = ApiClient.getServiceLast(this).create(TransactionApiService.class);
         PaymentCancelRequestDTO body = new PaymentCancelRequestDTO("User cancelled from app");
-        txApi.cancelPayment(sessionID, body).enqueue(new Callback<PaymentStatusResponseDTO>() {
+        txApi.cancelPayment(cancelKey, sessionID, body).enqueue(new Callback<PaymentStatusResponseDTO>() {
             @Override
             public void onResponse(Call<PaymentStatusResponseDTO> call, Response<PaymentStatusResponseDTO> response) {
+                btnCancel.setEnabled(true);
                 if (response.isSuccessful() && response.body() != null && response.body().getData() != null) {
                     navigateToResultActivity(PaymentStatus.CANCELLED);
                 } else {
-                    Toast.makeText(PaymentActivity.this, "Cancel failed", Toast.LENGTH_SHORT).show();
+                    confirmCancelled(txApi, "Cancel failed");
+                }
+            }
+
+            @Override
+            public void onFailure(Call<PaymentStatusResponseDTO> call, Throwable t) {
+                btnCancel.setEnabled(true);
+                confirmCancelled(txApi, "Cancel error: " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * A resent cancel whose first attempt went through (only the response was lost) gets
+     * an error back, so ask for the status before reporting the failure.
+     */
+    private void confirmCancelled(TransactionApiService txApi, String failureMessage) {
+        txApi.getTransactionPayOs(sessionID).enqueue(new Callback<PaymentStatusResponseDTO>() {
+            @Override
+            public void onResponse(Call<PaymentStatusResponseDTO> call, Response<PaymentStatusResponseDTO> response) {
+                if (isFinishing() || isDestroyed()) return;
+                if (response.isSuccessful() && response.body() != null && response.body().getData() != null
+                        && PaymentStatus.fromString(response.body().getData().getStatus()) == PaymentStatus.CANCELLED) {
+                    navigateToResultActivity(PaymentStatus.CANCELLED);
+                } else {
+                    Toast.makeText(PaymentActivity.this, failureMessage, Toast.LENGTH_SHORT).show();
                 }
             }
 
             @Override
             public void onFailure(Call<PaymentStatusResponseDTO> call, Throwable t) {
-                Toast.makeText(PaymentActivity.this, "Cancel error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                if (isFinishing() || isDestroyed()) return;
+                Toast.makeText(PaymentActivity.this, failureMessage, Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -0,0 +1,66 @@
+package vn.edu.fpt.sapsmobile.activities.debug;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.ActionBar;
+import androidx.appcompat.app.AppCompatActivity;
+
+import vn.edu.fpt.sapsmobile.R;
+import vn.edu.fpt.sapsmobile.network.metrics.NetworkMetrics;
+
+/**
+ * Debug-only screen showing {@link NetworkMetrics#dump()}; reachable by long-pressing
+ * the name on the profile tab when ENABLE_LOGGING is on.
+ */
+public class NetworkMetricsActivity extends AppCompatActivity {
+    private TextView tvMetricsDump;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_network_metrics);
+
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar != null) {
+            actionBar.setTitle(getString(R.string.network_metrics_title));
+            actionBar.setDisplayHomeAsUpEnabled(true);
+        }
+
+        tvMetricsDump = findViewById(R.id.tvMetricsDump);
+        Button btnRefresh = findViewById(R.id.btnRefreshMetrics);
+        Button btnReset = findViewById(R.id.btnResetMetrics);
+        Button btnShare = findViewById(R.id.btnShareMetrics);
+
+        btnRefresh.setOnClickListener(v -> render());
+        btnReset.setOnClickListener(v -> {
+            NetworkMetrics.getInstance().reset();
+            render();
+        });
+        btnShare.setOnClickListener(v -> {
+            Intent send = new Intent(Intent.ACTION_SEND);
+            send.setType("text/plain");
+            send.putExtra(Intent.EXTRA_TEXT, NetworkMetrics.getInstance().dump());
+            startActivity(Intent.createChooser(send, getString(R.string.network_metrics_title)));
+        });
+
+        render();
+    }
+
+    private void render() {
+        tvMetricsDump.setText(NetworkMetrics.getInstance().dump());
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
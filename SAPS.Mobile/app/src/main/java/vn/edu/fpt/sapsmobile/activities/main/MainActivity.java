@@ -27,6 +27,7 @@ import vn.edu.fpt.sapsmobile.fragments.ProfileFragment;
 import vn.edu.fpt.sapsmobile.fragments.VehicleFragment;
 import vn.edu.fpt.sapsmobile.models.User;
 import vn.edu.fpt.sapsmobile.services.AuthenticationService;
+import vn.edu.fpt.sapsmobile.services.UploadQueue;
 import vn.edu.fpt.sapsmobile.utils.TokenManager;
 
 public class MainActivity extends AppCompatActivity implements AuthenticationService.AuthCallback {
@@ -59,6 +60,9 @@ public class MainActivity extends AppCompatActivity implements AuthenticationSer
         }
 
 
+        // Picks up uploads interrupted by a dropped connection or process death
+        UploadQueue.getInstance(this);
+
         authService = new AuthenticationService(this, this);
         
         // Fetch client profile if user is already logged in
@@ -2,8 +2,6 @@ package vn.edu.fpt.sapsmobile.activities.profile;
 
 import android.annotation.SuppressLint;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -22,19 +20,17 @@ import com.bumptech.glide.Glide;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.elevation.SurfaceColors;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import retrofit2.Callback;
 import retrofit2.Response;
 import vn.edu.fpt.sapsmobile.network.api.OcrService;
 import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.network.client.UploadRequestBody;
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.models.ClientProfile;
 import vn.edu.fpt.sapsmobile.dtos.profile.IdCardResponse;
@@ -42,6 +38,10 @@ import vn.edu.fpt.sapsmobile.dtos.profile.IdCardResponse;
 import vn.edu.fpt.sapsmobile.models.User;
 
 import vn.edu.fpt.sapsmobile.services.AuthenticationService;
+import vn.edu.fpt.sapsmobile.services.UploadQueue;
+import vn.edu.fpt.sapsmobile.utils.ImagePipeline;
+import vn.edu.fpt.sapsmobile.utils.UploadImageStore;
+import vn.edu.fpt.sapsmobile.utils.UploadImageStore.UploadImage;
 import vn.edu.fpt.sapsmobile.utils.LoadingDialog;
 import vn.edu.fpt.sapsmobile.utils.TokenManager;
 
@@ -51,6 +51,8 @@ public class EditProfileActivity extends AppCompatActivity {
     private TokenManager tokenManager;
     private AuthenticationService authenticationService;
     private LoadingDialog loadingDialog;
+    private ImagePipeline.Scope imageJobs;
+    private UploadQueue uploadQueue;
     // component
     private MaterialToolbar toolbar;
     private EditText phoneInput;
@@ -62,9 +64,15 @@ public class EditProfileActivity extends AppCompatActivity {
     private ImageView previewImage, previewImageBack;
     private Uri frontImageUri;
     private Uri backImageUri;
+    // Last OCR result and the image hashes it was read from
+    private String ocrImagesKey;
+    private IdCardResponse ocrResult;
     // config
     private static final int REQUEST_PICK_FRONT = 2001;
     private static final int REQUEST_PICK_BACK = 2002;
+    // About what the old half-size decode gave for a 12MP photo, without the full-size pass
+    private static final int ID_CARD_MAX_SIDE = 2048;
+    private static final int ID_CARD_JPEG_QUALITY = 80;
 
 
     @SuppressLint("MissingInflatedId")
@@ -78,6 +86,8 @@ public class EditProfileActivity extends AppCompatActivity {
 
         tokenManager = new TokenManager(this);
         loadingDialog = new LoadingDialog(this);
+        imageJobs = ImagePipeline.scope(this);
+        uploadQueue = UploadQueue.getInstance(this);
         authenticationService = new AuthenticationService(this);
 
         loadUserAndFill();
@@ -124,7 +134,7 @@ public class EditProfileActivity extends AppCompatActivity {
     }
 
     private void loadUserAndFill() {
-        currentUser = tokenManager.getUserData();
+        currentUser = tokenManager.getUserDataCopy();
         if (currentUser == null) {
             Toast.makeText(this, getString(R.string.toast_no_user_data_sign_in), Toast.LENGTH_LONG).show();
             finish();
@@ -171,115 +181,98 @@ public class EditProfileActivity extends AppCompatActivity {
     }
     
     private void submitClientProfileRequest() {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            try {
-                // Heavy work on background thread
-                byte[] frontBytes = readAllBytesFromUri(frontImageUri);
-                byte[] backBytes = readAllBytesFromUri(backImageUri);
-
-                // Continue with API call on main thread
-                runOnUiThread(() -> {
-                    // Create RequestBody for text fields
-                    RequestBody citizenIdBody = RequestBody.create(getText(idNoInput), MediaType.parse("text/plain"));
-                    RequestBody dateOfBirthBody = RequestBody.create(getText(dobInput), MediaType.parse("text/plain"));
-                    RequestBody sexBody = RequestBody.create(String.valueOf("Nam".equalsIgnoreCase(getText(sexInput))), MediaType.parse("text/plain"));
-                    RequestBody nationalityBody = RequestBody.create(getText(nationalityInput), MediaType.parse("text/plain"));
-                    RequestBody placeOfOriginBody = RequestBody.create(getText(placeOriginInput), MediaType.parse("text/plain"));
-                    RequestBody placeOfResidenceBody = RequestBody.create(getText(placeResidenceInput), MediaType.parse("text/plain"));
-                    RequestBody fullNameBody = RequestBody.create(getText(nameInput), MediaType.parse("text/plain"));
-                    RequestBody phoneBody = RequestBody.create("0375357288", MediaType.parse("text/plain"));
-                    RequestBody idBody = RequestBody.create(tokenManager.getUserData().getId(), MediaType.parse("text/plain"));
-
-
-                    // Create multipart parts for images
-                    RequestBody frontImageBody = RequestBody.create(frontBytes, MediaType.parse("image/jpeg"));
-                    RequestBody backImageBody = RequestBody.create(backBytes, MediaType.parse("image/jpeg"));
-
-                    MultipartBody.Part frontPart = MultipartBody.Part.createFormData("FrontCitizenCardImage", "front.jpg", frontImageBody);
-                    MultipartBody.Part backPart = MultipartBody.Part.createFormData("BackCitizenCardImage", "back.jpg", backImageBody);
-
-
-
-
-                    Log.i(TAG, "submitClientProfileRequest: Updating client profile with new API");
-                    OcrService ocrService = ApiClient.getServiceLast(this).create(OcrService.class);
-                    retrofit2.Call<User> call = ocrService.updateClientProfile(
-                            frontPart,
-                            backPart,
-                            citizenIdBody,
-                            dateOfBirthBody,
-                            sexBody,
-                            nationalityBody,
-                            placeOfOriginBody,
-                            placeOfResidenceBody,
-                            fullNameBody,
-                            phoneBody,
-                            idBody
-                    );
-
-
-                    call.enqueue(new retrofit2.Callback<User>() {
-                        @Override
-                        public void onResponse(retrofit2.Call<User> call, retrofit2.Response<User> response) {
-                            loadingDialog.dismiss();
-
-                            if (response.isSuccessful() && response.body() != null) {
-                                User updatedUser = authenticationService.getCurrentUser();
-                                // Update the stored user data
-                                tokenManager.saveUserData(updatedUser);
-                                Toast.makeText(EditProfileActivity.this, getString(R.string.toast_profile_request_submitted), Toast.LENGTH_SHORT).show();
-                                // Add 2-second delay before navigating to ProfileFragment
-                                new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        // Navigate to MainActivity with ProfileFragment selected
-                                        Intent intent = new Intent(EditProfileActivity.this, vn.edu.fpt.sapsmobile.activities.main.MainActivity.class);
-                                        intent.putExtra("selected_fragment", "profile");
-                                        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                                        startActivity(intent);
-                                        finish();
-                                    }
-                                }, 2000); // 2000 milliseconds = 2 seconds
-//                                finish();
-                            } else {
-                                String errorMessage = "Failed to update client profile";
-                                if (response.code() == 400) {
-                                    errorMessage = "Invalid data provided";
-                                } else if (response.code() == 401) {
-                                    errorMessage = "Unauthorized. Please login again.";
-                                } else if (response.code() == 500) {
-                                    errorMessage = "Server error occurred";
-                                }
-                                Toast.makeText(EditProfileActivity.this, errorMessage, Toast.LENGTH_LONG).show();
-                                Log.e("CLIENT_PROFILE_UPDATE_ERROR", "Code: " + response.code() + ", Message: " + response.message());
-                            }
-                        }
+        Uri frontUri = frontImageUri;
+        Uri backUri = backImageUri;
+        // Usually no decode here: the OCR step already stored these files
+        imageJobs.submit("profile", () -> new UploadImage[]{prepareUpload(frontUri), prepareUpload(backUri)},
+                new ImagePipeline.Callback<UploadImage[]>() {
+                    @Override
+                    public void onSuccess(UploadImage[] images) {
+                        sendClientProfile(images[0], images[1]);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        loadingDialog.dismiss();
+                        Log.e("PROFILE_UPDATE_ERROR", "Error reading images: " + e.getMessage(), e);
+                        Toast.makeText(EditProfileActivity.this, getString(R.string.toast_error_reading_images), Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    private void sendClientProfile(UploadImage front, UploadImage back) {
+        // Text parts keyed by their multipart name
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("CitizenId", getText(idNoInput));
+        fields.put("DateOfBirth", getText(dobInput));
+        fields.put("Sex", String.valueOf("Nam".equalsIgnoreCase(getText(sexInput))));
+        fields.put("Nationality", getText(nationalityInput));
+        fields.put("PlaceOfOrigin", getText(placeOriginInput));
+        fields.put("PlaceOfResidence", getText(placeResidenceInput));
+        fields.put("FullName", getText(nameInput));
+        fields.put("Phone", "0375357288");
+        fields.put("Id", tokenManager.getUserData().getId());
+
+        Log.i(TAG, "submitClientProfileRequest: Updating client profile with new API");
+        // Persistent: survives a dropped connection or this screen being closed
+        String jobId = uploadQueue.enqueue(UploadQueue.KIND_UPDATE_CLIENT_PROFILE, fields, front.file, back.file);
+        uploadQueue.observe(this, jobId, new UploadQueue.Observer() {
+            @Override
+            public void onProgress(int percent) {
+                loadingDialog.setMessage("Verifying client... " + percent + "%");
+            }
 
+            @Override
+            public void onWaiting(int attempt) {
+                // The queue finishes the job and toasts the result
+                loadingDialog.dismiss();
+                Toast.makeText(EditProfileActivity.this, getString(R.string.toast_upload_queued), Toast.LENGTH_LONG).show();
+                finish();
+            }
+
+            @Override
+            public void onFinished(UploadQueue.Outcome outcome) {
+                loadingDialog.dismiss();
+
+                if (outcome.isSuccessful() && outcome.body != null) {
+                    User updatedUser = authenticationService.getCurrentUser();
+                    // Update the stored user data
+                    tokenManager.saveUserData(updatedUser);
+                    Toast.makeText(EditProfileActivity.this, getString(R.string.toast_profile_request_submitted), Toast.LENGTH_SHORT).show();
+                    // Add 2-second delay before navigating to ProfileFragment
+                    new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
                         @Override
-                        public void onFailure(retrofit2.Call<User> call, Throwable t) {
-                            loadingDialog.dismiss();
-                            String errorMessage = "Network error occurred";
-                            if (t instanceof java.net.SocketTimeoutException) {
-                                errorMessage = "Request timed out. Please try again.";
-                            } else if (t.getMessage() != null && t.getMessage().contains("Broken pipe")) {
-                                errorMessage = "Connection lost. Please check your internet and try again.";
-                            } else if (t instanceof java.net.ConnectException) {
-                                errorMessage = "Cannot connect to server. Please check your connection.";
-                            }
-                            Toast.makeText(EditProfileActivity.this, errorMessage, Toast.LENGTH_LONG).show();
-                            Log.e("CLIENT_PROFILE_UPDATE_ERROR", "Error updating client profile: " + t.getMessage(), t);
+                        public void run() {
+                            // Navigate to MainActivity with ProfileFragment selected
+                            Intent intent = new Intent(EditProfileActivity.this, vn.edu.fpt.sapsmobile.activities.main.MainActivity.class);
+                            intent.putExtra("selected_fragment", "profile");
+                            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+                            startActivity(intent);
+                            finish();
                         }
-                    });
-                });
-            } catch (IOException e) {
-                runOnUiThread(() -> {
-                    loadingDialog.dismiss();
-                    Log.e("PROFILE_UPDATE_ERROR", "Error reading images: " + e.getMessage(), e);
-                    Toast.makeText(EditProfileActivity.this, getString(R.string.toast_error_reading_images), Toast.LENGTH_SHORT).show();
-                });
-            } finally {
-                executor.shutdown();
+                    }, 2000); // 2000 milliseconds = 2 seconds
+                } else if (outcome.code != 0) {
+                    String errorMessage = "Failed to update client profile";
+                    if (outcome.code == 400) {
+                        errorMessage = "Invalid data provided";
+                    } else if (outcome.code == 401) {
+                        errorMessage = "Unauthorized. Please login again.";
+                    } else if (outcome.code == 500) {
+                        errorMessage = "Server error occurred";
+                    }
+                    Toast.makeText(EditProfileActivity.this, errorMessage, Toast.LENGTH_LONG).show();
+                    Log.e("CLIENT_PROFILE_UPDATE_ERROR", "Code: " + outcome.code + ", Body: " + outcome.errorBody);
+                } else {
+                    Throwable t = outcome.error;
+                    String errorMessage = "Network error occurred";
+                    if (t instanceof java.net.SocketTimeoutException) {
+                        errorMessage = "Request timed out. Please try again.";
+                    } else if (t instanceof java.net.ConnectException) {
+                        errorMessage = "Cannot connect to server. Please check your connection.";
+                    }
+                    Toast.makeText(EditProfileActivity.this, errorMessage, Toast.LENGTH_LONG).show();
+                    Log.e("CLIENT_PROFILE_UPDATE_ERROR", "Error updating client profile", t);
+                }
             }
         });
     }
@@ -374,34 +367,36 @@ public class EditProfileActivity extends AppCompatActivity {
     private void uploadBothImagesToServer(Uri frontUri, Uri backUri) {
         loadingDialog.show("Uploading ID card images...");
 
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            try {
-                // Heavy work on background thread
-                byte[] frontBytes = readAllBytesFromUri(frontUri);
-                byte[] backBytes = readAllBytesFromUri(backUri);
-
-                // Continue with API call on main thread
-                runOnUiThread(() -> fetchOcrData(frontBytes, backBytes));
+        // A second tap replaces the pending job instead of starting another one
+        imageJobs.submit("ocr", () -> new UploadImage[]{prepareUpload(frontUri), prepareUpload(backUri)},
+                new ImagePipeline.Callback<UploadImage[]>() {
+                    @Override
+                    public void onSuccess(UploadImage[] images) {
+                        fetchOcrData(images[0], images[1]);
+                    }
 
-            } catch (IOException e) {
-                runOnUiThread(() -> handleError(e));
-            } finally {
-                executor.shutdown(); // Clean up the executor
-            }
-        });
+                    @Override
+                    public void onError(Exception e) {
+                        handleError(e);
+                    }
+                });
     }
 
 
-    private void fetchOcrData(byte[] frontBytes, byte[] backBytes) {
-        try {
-
-            // Detect actual image format or use appropriate MediaType
-            MediaType imageType = MediaType.parse("image/jpeg"); // or "image/png"
-
+    private void fetchOcrData(UploadImage front, UploadImage back) {
+        // Same pictures as last time: the server already read them
+        String imagesKey = front.sha256 + back.sha256;
+        if (imagesKey.equals(ocrImagesKey) && ocrResult != null) {
+            loadingDialog.dismiss();
+            fillFromOcr(ocrResult);
+            saveButton.setEnabled(true);
+            return;
+        }
 
-            RequestBody frontBody = RequestBody.create(frontBytes, imageType);
-            RequestBody backBody = RequestBody.create(backBytes, imageType);
+        try {
+            UploadRequestBody.Progress progress = uploadProgress("Uploading ID card images...");
+            RequestBody frontBody = UploadRequestBody.jpeg(front.file, progress);
+            RequestBody backBody = UploadRequestBody.jpeg(back.file, progress);
 
             MultipartBody.Part frontPart = MultipartBody.Part.createFormData("FrontImage", "front.jpg", frontBody);
             MultipartBody.Part backPart = MultipartBody.Part.createFormData("BackImage", "back.jpg", backBody);
@@ -431,6 +426,8 @@ public class EditProfileActivity extends AppCompatActivity {
 
                     if (response.isSuccessful() && response.body() != null) {
                         IdCardResponse idCard = response.body();
+                        ocrImagesKey = imagesKey;
+                        ocrResult = idCard;
                         fillFromOcr(idCard);
                         saveButton.setEnabled(true);
                         Toast.makeText(EditProfileActivity.this, getString(R.string.toast_auto_filled_from_id), Toast.LENGTH_SHORT).show();
@@ -467,7 +464,7 @@ public class EditProfileActivity extends AppCompatActivity {
         }
     }
 
-    private void handleError(IOException e) {
+    private void handleError(Exception e) {
         loadingDialog.dismiss();
         Log.e("OCR_IO_ERROR", e.getMessage(), e);
                         Toast.makeText(EditProfileActivity.this, getString(R.string.toast_error_reading_images), Toast.LENGTH_SHORT).show();
@@ -487,18 +484,14 @@ public class EditProfileActivity extends AppCompatActivity {
         issuePlaceInput.setText("Not available from ID card");
     }
 
-    private byte[] readAllBytesFromUri(Uri uri) throws IOException {
-        // Compress image before reading
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inSampleSize = 2; // Reduce size by half
-        options.inJustDecodeBounds = false;
-
-        try (InputStream is = getContentResolver().openInputStream(uri)) {
-            Bitmap bitmap = BitmapFactory.decodeStream(is, null, options);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos); // 80% quality
-            return baos.toByteArray();
-        }
+    private UploadImage prepareUpload(Uri uri) throws IOException {
+        // No preview needed, Glide shows those
+        return UploadImageStore.getInstance(this).prepare(this, uri,
+                ID_CARD_MAX_SIDE, ID_CARD_MAX_SIDE, ID_CARD_JPEG_QUALITY, 0);
+    }
+
+    private UploadRequestBody.Progress uploadProgress(String message) {
+        return new UploadRequestBody.Progress(percent -> loadingDialog.setMessage(message + " " + percent + "%"));
     }
 
 
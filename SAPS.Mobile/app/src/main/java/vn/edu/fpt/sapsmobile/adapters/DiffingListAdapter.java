@@ -0,0 +1,109 @@
+package vn.edu.fpt.sapsmobile.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Base for list adapters that replaces {@code notifyDataSetChanged()} with a
+ * background {@link DiffUtil} pass, so a refresh only rebinds rows that actually changed.
+ * Rows are matched by {@link #getItemKey(Object)}, which also backs stable item IDs.
+ *
+ * Submitted lists are copied and never mutated afterwards. Diffs are applied in order,
+ * but {@link #getItemCount()} only reflects a submission once its diff has landed;
+ * use {@link #getSubmittedCount()} when deciding on e.g. empty states right after a submit.
+ */
+public abstract class DiffingListAdapter<T, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private final AsyncListDiffer<T> differ;
+    private List<T> submitted = Collections.emptyList();
+
+    protected DiffingListAdapter() {
+        differ = new AsyncListDiffer<>(this, new DiffUtil.ItemCallback<T>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+                return Objects.equals(keyOf(oldItem), keyOf(newItem));
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+                return DiffingListAdapter.this.areContentsTheSame(oldItem, newItem);
+            }
+        });
+        setHasStableIds(true);
+    }
+
+    /** Identity of a row across refreshes, usually the server ID. */
+    @Nullable
+    protected abstract Object getItemKey(@NonNull T item);
+
+    /** True when the row would render exactly the same for both items. */
+    protected abstract boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem);
+
+    /** Replaces the list; the diff runs off the main thread. */
+    public void submit(@Nullable List<T> items) {
+        submitted = items == null || items.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(items));
+        differ.submitList(submitted);
+    }
+
+    /** Latest submitted list, possibly ahead of what is on screen. Build the next list from this one. */
+    protected List<T> getSubmitted() {
+        return submitted;
+    }
+
+    public int getSubmittedCount() {
+        return submitted.size();
+    }
+
+    protected List<T> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    protected T getItem(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    // Keys are server UUIDs; a hash collision within one list is unlikely enough to accept
+    @Override
+    public long getItemId(int position) {
+        return keyOf(getItem(position)).hashCode();
+    }
+
+    // Items without a key only match themselves
+    private Object keyOf(T item) {
+        Object key = getItemKey(item);
+        return key != null ? key : new IdentityKey(item);
+    }
+
+    private static final class IdentityKey {
+        private final Object item;
+
+        IdentityKey(Object item) {
+            this.item = item;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).item == item;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(item);
+        }
+    }
+}
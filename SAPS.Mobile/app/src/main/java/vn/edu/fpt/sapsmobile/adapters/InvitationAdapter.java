@@ -16,16 +16,17 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.activities.auth.LoginActivity;
 import vn.edu.fpt.sapsmobile.dtos.sharevehicle.ShareVehicleResponse;
 import vn.edu.fpt.sapsmobile.utils.ColorUtil;
 
-public class InvitationAdapter extends RecyclerView.Adapter<InvitationAdapter.InvitationViewHolder> {
+public class InvitationAdapter extends DiffingListAdapter<ShareVehicleResponse, InvitationAdapter.InvitationViewHolder> {
 
-    private List<ShareVehicleResponse> vehicles;
     private OnVehicleClickListener listener;
 
     public interface OnVehicleClickListener {
@@ -36,7 +37,23 @@ public class InvitationAdapter extends RecyclerView.Adapter<InvitationAdapter.In
     }
 
     public InvitationAdapter(List<ShareVehicleResponse> vehicles) {
-        this.vehicles = vehicles;
+        submit(vehicles);
+    }
+
+    @Override
+    protected Object getItemKey(@NonNull ShareVehicleResponse item) {
+        return item.getShareVehicleId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull ShareVehicleResponse oldItem, @NonNull ShareVehicleResponse newItem) {
+        return Objects.equals(oldItem.getLicensePlate(), newItem.getLicensePlate())
+                && Objects.equals(oldItem.getBrand(), newItem.getBrand())
+                && Objects.equals(oldItem.getModel(), newItem.getModel())
+                && Objects.equals(oldItem.getColor(), newItem.getColor())
+                && Objects.equals(oldItem.getOwnerName(), newItem.getOwnerName())
+                && Objects.equals(oldItem.getOwnerVehicleFullName(), newItem.getOwnerVehicleFullName())
+                && Objects.equals(oldItem.getSharingStatus(), newItem.getSharingStatus());
     }
 
     public void setOnVehicleClickListener(OnVehicleClickListener listener) {
@@ -53,24 +70,20 @@ public class InvitationAdapter extends RecyclerView.Adapter<InvitationAdapter.In
 
     @Override
     public void onBindViewHolder(@NonNull InvitationViewHolder holder, int position) {
-        ShareVehicleResponse vehicle = vehicles.get(position);
-        holder.bind(vehicle, position, holder);
-    }
-
-    @Override
-    public int getItemCount() {
-        return vehicles != null ? vehicles.size() : 0;
+        ShareVehicleResponse vehicle = getItem(position);
+        holder.bind(vehicle, holder);
     }
 
     public void updateVehicles(List<ShareVehicleResponse> newVehicles) {
-        this.vehicles = newVehicles;
-        notifyDataSetChanged();
+        submit(newVehicles);
     }
 
     public void removeVehicle(int position) {
-        if (vehicles != null && position >= 0 && position < vehicles.size()) {
-            vehicles.remove(position);
-            notifyItemRemoved(position);
+        List<ShareVehicleResponse> current = getSubmitted();
+        if (position >= 0 && position < current.size()) {
+            List<ShareVehicleResponse> next = new ArrayList<>(current);
+            next.remove(position);
+            submit(next);
         }
     }
 
@@ -108,14 +121,15 @@ public class InvitationAdapter extends RecyclerView.Adapter<InvitationAdapter.In
                 if (listener != null) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        listener.onVehicleClick(vehicles.get(position), position);
+                        listener.onVehicleClick(getItem(position), position);
                     }
                 }
             });
 
         }
 
-        public void bind(ShareVehicleResponse vehicle, int position, InvitationViewHolder holder) {
+        // Unchanged rows are not rebound after a diff, so read the position at click time
+        public void bind(ShareVehicleResponse vehicle, InvitationViewHolder holder) {
             // License plate (main identifier)
             tvLicensePlate.setText(vehicle.getLicensePlate());
 
@@ -148,9 +162,9 @@ public class InvitationAdapter extends RecyclerView.Adapter<InvitationAdapter.In
 
 
                     if (listener != null) {
-//                                    int position = getAdapterPosition();
+                        int position = getAdapterPosition();
                         if (position != RecyclerView.NO_POSITION) {
-                            listener.onAcceptShareVehicle(vehicles.get(position), position);
+                            listener.onAcceptShareVehicle(getItem(position), position);
                         }
                     }
 //                    String title = "Confirm";
@@ -183,9 +197,9 @@ public class InvitationAdapter extends RecyclerView.Adapter<InvitationAdapter.In
                             .setNegativeButton(android.R.string.cancel, (dialog, which) -> dialog.dismiss())
                             .setPositiveButton(R.string.item_vehicle_invitation_btn_details, (dialog, which) -> {
                                 if (listener != null) {
-//                                    int position = getAdapterPosition();
+                                    int position = getAdapterPosition();
                                     if (position != RecyclerView.NO_POSITION) {
-                                        listener.onRejectShareVehicle(vehicles.get(position), position);
+                                        listener.onRejectShareVehicle(getItem(position), position);
                                     }
                                 }
                                 dialog.dismiss();
@@ -13,10 +13,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.NumberFormat;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.listener.HistoryFragmentVehicleDetailListener;
@@ -24,40 +26,105 @@ import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
 import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
+import vn.edu.fpt.sapsmobile.utils.StringUtils;
 import vn.edu.fpt.sapsmobile.enums.SessionStatus;
 
-public class ParkingSessionAdapter extends RecyclerView.Adapter<ParkingSessionAdapter.ParkingSessionViewHolder> {
+public class ParkingSessionAdapter extends DiffingListAdapter<OwnedSessionResponse.OwnedParkingSessionDto, ParkingSessionAdapter.ParkingSessionViewHolder> {
 
-    private final List<OwnedSessionResponse.OwnedParkingSessionDto> sessions;
     private final HistoryFragmentVehicleDetailListener listener;
     private final Context context;
     private final String fragment;
     private Map<String, Vehicle> vehicleMap = new HashMap<>();
 
     public ParkingSessionAdapter(List<OwnedSessionResponse.OwnedParkingSessionDto> sessions, HistoryFragmentVehicleDetailListener listener, Context context, String fragment) {
-        this.sessions = sessions;
         this.listener = listener;
         this.context = context;
         this.fragment = fragment;
+        submit(sessions);
     }
-    
+
+    @Override
+    protected Object getItemKey(@NonNull OwnedSessionResponse.OwnedParkingSessionDto item) {
+        return item.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull OwnedSessionResponse.OwnedParkingSessionDto oldItem,
+                                         @NonNull OwnedSessionResponse.OwnedParkingSessionDto newItem) {
+        // Open sessions show a running duration, so always rebind them
+        return oldItem.getExitDateTime() != null
+                && Objects.equals(oldItem.getExitDateTime(), newItem.getExitDateTime())
+                && Objects.equals(oldItem.getEntryDateTime(), newItem.getEntryDateTime())
+                && Objects.equals(oldItem.getParkingLotName(), newItem.getParkingLotName())
+                && Objects.equals(oldItem.getLicensePlate(), newItem.getLicensePlate())
+                && Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && Objects.equals(oldItem.getPaymentStatus(), newItem.getPaymentStatus())
+                && oldItem.getCost() == newItem.getCost();
+    }
+
     public void updateItems(List<OwnedSessionResponse.OwnedParkingSessionDto> newList) {
-        this.sessions.clear();
-        this.sessions.addAll(newList);
-        notifyDataSetChanged();
+        submit(newList);
+    }
+
+    /** Adds rows at the end as they arrive from a stream. */
+    public void appendItems(List<OwnedSessionResponse.OwnedParkingSessionDto> more) {
+        if (more.isEmpty()) return;
+        List<OwnedSessionResponse.OwnedParkingSessionDto> next = new ArrayList<>(getSubmitted());
+        next.addAll(more);
+        submit(next);
+    }
+
+    public void prependItems(List<OwnedSessionResponse.OwnedParkingSessionDto> more) {
+        if (more.isEmpty()) return;
+        List<OwnedSessionResponse.OwnedParkingSessionDto> next = new ArrayList<>(more);
+        next.addAll(getSubmitted());
+        submit(next);
+    }
+
+    /** Drops rows from the top when older pages are paged out. */
+    public void removeFirst(int count) {
+        List<OwnedSessionResponse.OwnedParkingSessionDto> current = getSubmitted();
+        count = Math.min(count, current.size());
+        if (count <= 0) return;
+        submit(current.subList(count, current.size()));
+    }
+
+    public void removeLast(int count) {
+        List<OwnedSessionResponse.OwnedParkingSessionDto> current = getSubmitted();
+        count = Math.min(count, current.size());
+        if (count <= 0) return;
+        submit(current.subList(0, current.size() - count));
     }
     
     public void setVehicles(List<VehicleSummaryDto> vehicles) {
-        vehicleMap.clear();
+        Map<String, Vehicle> previous = vehicleMap;
+        vehicleMap = new HashMap<>();
         for (VehicleSummaryDto vehicleDto : vehicles) {
             Vehicle vehicle = new Vehicle();
             vehicle.setId(vehicleDto.getId());
             vehicle.setLicensePlate(vehicleDto.getLicensePlate());
             vehicle.setBrand(vehicleDto.getBrand());
             vehicle.setModel(vehicleDto.getModel());
-            vehicleMap.put(vehicleDto.getLicensePlate(), vehicle);
+            String plateKey = StringUtils.normalizePlate(vehicleDto.getLicensePlate());
+            if (plateKey != null) {
+                vehicleMap.putIfAbsent(plateKey, vehicle);
+            }
+        }
+        // Only rows whose vehicle label changes need a rebind
+        List<OwnedSessionResponse.OwnedParkingSessionDto> current = getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            String plate = StringUtils.normalizePlate(current.get(i).getLicensePlate());
+            if (!sameLabel(previous.get(plate), vehicleMap.get(plate))) {
+                notifyItemChanged(i);
+            }
         }
-        notifyDataSetChanged();
+    }
+
+    private static boolean sameLabel(Vehicle a, Vehicle b) {
+        if (a == null || b == null) return a == b;
+        return Objects.equals(a.getId(), b.getId())
+                && Objects.equals(a.getBrand(), b.getBrand())
+                && Objects.equals(a.getModel(), b.getModel());
     }
 
     @NonNull
@@ -69,15 +136,10 @@ public class ParkingSessionAdapter extends RecyclerView.Adapter<ParkingSessionAd
 
     @Override
     public void onBindViewHolder(@NonNull ParkingSessionViewHolder holder, int position) {
-        OwnedSessionResponse.OwnedParkingSessionDto session = sessions.get(position);
+        OwnedSessionResponse.OwnedParkingSessionDto session = getItem(position);
         holder.bind(session, listener, context);
     }
 
-    @Override
-    public int getItemCount() {
-        return sessions.size();
-    }
-
     class ParkingSessionViewHolder extends RecyclerView.ViewHolder {
 
         TextView tvParkingLotName, tvLocation, tvVehicle, tvDuration, tvDate, tvAmount, tvStatus;
@@ -119,7 +181,7 @@ public class ParkingSessionAdapter extends RecyclerView.Adapter<ParkingSessionAd
             tvStatus.setText(sessionStatus.getDisplayText());
 
             // Get vehicle from map or create a basic one
-            vehicle = vehicleMap.get(session.getLicensePlate());
+            vehicle = vehicleMap.get(StringUtils.normalizePlate(session.getLicensePlate()));
             if (vehicle != null) {
                 tvVehicle.setText(vehicle.getBrand() + " " + vehicle.getModel() + " " + vehicle.getLicensePlate());
             } else {
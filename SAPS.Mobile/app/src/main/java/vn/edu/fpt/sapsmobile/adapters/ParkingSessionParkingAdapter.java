@@ -17,6 +17,7 @@ import java.text.NumberFormat;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.activities.checkout.CheckoutActivity;
@@ -27,26 +28,47 @@ import vn.edu.fpt.sapsmobile.models.ParkingSession;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
 import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
 
-public class ParkingSessionParkingAdapter extends RecyclerView.Adapter<ParkingSessionParkingAdapter.ParkingSessionParkingViewHolder> {
+public class ParkingSessionParkingAdapter extends DiffingListAdapter<ParkingSession, ParkingSessionParkingAdapter.ParkingSessionParkingViewHolder> {
 
 
-    private final List<ParkingSession> sessions;
     private final HistoryFragmentVehicleDetailListener listener;
     private final Context context;
     private final String fragment;
 
     public ParkingSessionParkingAdapter(List<ParkingSession> sessions, HistoryFragmentVehicleDetailListener listener, Context context, String fragment) {
-        this.sessions = sessions;
         this.listener = listener;
         this.context = context;
         this.fragment = fragment;
+        submit(sessions);
+    }
+
+    @Override
+    protected Object getItemKey(@NonNull ParkingSession item) {
+        return item.getId();
+    }
 
+    @Override
+    protected boolean areContentsTheSame(@NonNull ParkingSession oldItem, @NonNull ParkingSession newItem) {
+        // Open sessions show a running duration, so always rebind them
+        return oldItem.getExitDateTime() != null
+                && Objects.equals(oldItem.getExitDateTime(), newItem.getExitDateTime())
+                && Objects.equals(oldItem.getEntryDateTime(), newItem.getEntryDateTime())
+                && Objects.equals(oldItem.getParkingLotName(), newItem.getParkingLotName())
+                && Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && Objects.equals(oldItem.getTransactionId(), newItem.getTransactionId())
+                && oldItem.getCost() == newItem.getCost()
+                && sameVehicleLabel(oldItem.getVehicle(), newItem.getVehicle());
+    }
+
+    private static boolean sameVehicleLabel(Vehicle a, Vehicle b) {
+        if (a == null || b == null) return a == b;
+        return Objects.equals(a.getLicensePlate(), b.getLicensePlate())
+                && Objects.equals(a.getBrand(), b.getBrand())
+                && Objects.equals(a.getModel(), b.getModel());
     }
 
     public void updateItems(List<ParkingSession> newList) {
-        this.sessions.clear();
-        this.sessions.addAll(newList);
-        notifyDataSetChanged();
+        submit(newList);
     }
 
     @NonNull
@@ -58,16 +80,10 @@ public class ParkingSessionParkingAdapter extends RecyclerView.Adapter<ParkingSe
 
     @Override
     public void onBindViewHolder(@NonNull ParkingSessionParkingViewHolder holder, int position) {
-        ParkingSession session = sessions.get(position);
+        ParkingSession session = getItem(position);
         holder.bind(session, listener, context);
     }
 
-
-    @Override
-    public int getItemCount() {
-        return sessions.size();
-    }
-
     class ParkingSessionParkingViewHolder extends RecyclerView.ViewHolder {
 
         private String TAG = "ParkingSessionParkingViewHolder";
@@ -11,12 +11,11 @@ import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.dtos.profile.ClientProfileSummaryDto;
 import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class ShareCodeSearchAdapter extends RecyclerView.Adapter<ShareCodeSearchAdapter.ViewHolder> {
+public class ShareCodeSearchAdapter extends DiffingListAdapter<ClientProfileSummaryDto, ShareCodeSearchAdapter.ViewHolder> {
 
-    private List<ClientProfileSummaryDto> searchResults = new ArrayList<>();
     private OnUserSelectedListener listener;
 
     public interface OnUserSelectedListener {
@@ -27,17 +26,25 @@ public class ShareCodeSearchAdapter extends RecyclerView.Adapter<ShareCodeSearch
         this.listener = listener;
     }
 
+    @Override
+    protected Object getItemKey(@NonNull ClientProfileSummaryDto item) {
+        return item.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull ClientProfileSummaryDto oldItem, @NonNull ClientProfileSummaryDto newItem) {
+        return Objects.equals(oldItem.getFullName(), newItem.getFullName())
+                && Objects.equals(oldItem.getEmail(), newItem.getEmail())
+                && Objects.equals(oldItem.getPhoneNumber(), newItem.getPhoneNumber())
+                && Objects.equals(oldItem.getStatus(), newItem.getStatus());
+    }
+
     public void setSearchResults(List<ClientProfileSummaryDto> results) {
-        this.searchResults.clear();
-        if (results != null) {
-            this.searchResults.addAll(results);
-        }
-        notifyDataSetChanged();
+        submit(results);
     }
 
     public void clearResults() {
-        this.searchResults.clear();
-        notifyDataSetChanged();
+        submit(null);
     }
 
     @NonNull
@@ -50,15 +57,10 @@ public class ShareCodeSearchAdapter extends RecyclerView.Adapter<ShareCodeSearch
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        ClientProfileSummaryDto user = searchResults.get(position);
+        ClientProfileSummaryDto user = getItem(position);
         holder.bind(user);
     }
 
-    @Override
-    public int getItemCount() {
-        return searchResults.size();
-    }
-
     class ViewHolder extends RecyclerView.ViewHolder {
         private MaterialCardView cardView;
         private TextView tvUserName;
@@ -77,7 +79,7 @@ public class ShareCodeSearchAdapter extends RecyclerView.Adapter<ShareCodeSearch
             cardView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onUserSelected(searchResults.get(position));
+                    listener.onUserSelected(getItem(position));
                 }
             });
         }
@@ -14,43 +14,52 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import vn.edu.fpt.sapsmobile.utils.ColorUtil;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
 import vn.edu.fpt.sapsmobile.listener.VehicleFragmentVehicleDetailListener;
 import vn.edu.fpt.sapsmobile.utils.RecyclerUtils;
 
-public class VehicleAdapter extends RecyclerView.Adapter<VehicleAdapter.VehicleViewHolder>
+public class VehicleAdapter extends DiffingListAdapter<Vehicle, VehicleAdapter.VehicleViewHolder>
         implements RecyclerUtils.UpdatableAdapter<Vehicle> {
 
-    private List<Vehicle> vehicles = new ArrayList<>(); // luôn khởi tạo
     private  int TabCurrent = 0;
     @Nullable
     private VehicleFragmentVehicleDetailListener actionListener;
 
     public VehicleAdapter(@Nullable List<Vehicle> vehicles, @Nullable VehicleFragmentVehicleDetailListener listener) {
-        if (vehicles != null) {
-            this.vehicles = new ArrayList<>(vehicles);
-        } else {
-            this.vehicles = new ArrayList<>();
-        }
+        submit(vehicles);
         this.actionListener = listener;
     }
 
     public VehicleAdapter() {
-        this.vehicles = new ArrayList<>();
         this.actionListener = null;
     }
 
+    @Override
+    protected Object getItemKey(@NonNull Vehicle item) {
+        return item.getId();
+    }
+
+    @Override
+    protected boolean areContentsTheSame(@NonNull Vehicle oldItem, @NonNull Vehicle newItem) {
+        return Objects.equals(oldItem.getLicensePlate(), newItem.getLicensePlate())
+                && Objects.equals(oldItem.getBrand(), newItem.getBrand())
+                && Objects.equals(oldItem.getModel(), newItem.getModel())
+                && Objects.equals(oldItem.getColor(), newItem.getColor())
+                && Objects.equals(oldItem.getSharingStatus(), newItem.getSharingStatus());
+    }
+
     public void setListener(@Nullable VehicleFragmentVehicleDetailListener listener) {
         this.actionListener = listener;
     }
 
     public void setCurrentTab(int currentTab) {
+        if (this.TabCurrent == currentTab) return;
         this.TabCurrent = currentTab;
-        notifyDataSetChanged(); // Refresh the adapter to apply tab-specific changes
+        notifyItemRangeChanged(0, getItemCount()); // Rebind rows to apply tab-specific changes
     }
 
     public int getCurrentTab() {
@@ -70,20 +79,14 @@ public class VehicleAdapter extends RecyclerView.Adapter<VehicleAdapter.VehicleV
 
     @Override
     public void onBindViewHolder(@NonNull VehicleViewHolder holder, int position) {
-        if (position < 0 || position >= vehicles.size()) return;
-        Vehicle vehicle = vehicles.get(position);
+        if (position < 0 || position >= getItemCount()) return;
+        Vehicle vehicle = getItem(position);
         holder.bind(vehicle, actionListener, TabCurrent);
     }
 
-    @Override
-    public int getItemCount() {
-        return vehicles == null ? 0 : vehicles.size();
-    }
-
     @Override
     public void updateData(@NonNull List<Vehicle> newData) {
-        this.vehicles = new ArrayList<>(newData == null ? new ArrayList<>() : newData);
-        notifyDataSetChanged();
+        submit(newData);
     }
 
 
@@ -0,0 +1,170 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device copy of what the app last downloaded: owned parking sessions, own/shared
+ * vehicles, notifications and parking lots. Screens render from here first and refresh
+ * from the network afterwards; rows are scoped per user and wiped on logout. Uploads
+ * still waiting to be sent are kept here too, so they survive the process.
+ *
+ * All database work goes through {@link #read} / {@link #write}, which run on one
+ * background thread in submission order, so a read queued after a write sees it.
+ */
+public final class AppDatabase extends SQLiteOpenHelper {
+    private static final String TAG = "AppDatabase";
+    private static final String DB_NAME = "saps.db";
+    private static final int DB_VERSION = 4;
+
+    private static volatile AppDatabase instance;
+
+    public interface Result<T> {
+        void onResult(T value);
+    }
+
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "saps-db");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final SessionDao sessions = new SessionDao(this);
+    private final VehicleDao vehicles = new VehicleDao(this);
+    private final NotificationDao notifications = new NotificationDao(this);
+    private final ParkingLotDao parkingLots = new ParkingLotDao(this);
+    private final SyncStateDao syncState = new SyncStateDao(this);
+    private final UploadJobDao uploadJobs = new UploadJobDao(this);
+
+    private AppDatabase(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    public static AppDatabase getInstance(Context context) {
+        AppDatabase db = instance;
+        if (db == null) {
+            synchronized (AppDatabase.class) {
+                db = instance;
+                if (db == null) {
+                    db = new AppDatabase(context);
+                    instance = db;
+                }
+            }
+        }
+        return db;
+    }
+
+    public SessionDao sessions() {
+        return sessions;
+    }
+
+    public VehicleDao vehicles() {
+        return vehicles;
+    }
+
+    public NotificationDao notifications() {
+        return notifications;
+    }
+
+    public ParkingLotDao parkingLots() {
+        return parkingLots;
+    }
+
+    public SyncStateDao syncState() {
+        return syncState;
+    }
+
+    public UploadJobDao uploadJobs() {
+        return uploadJobs;
+    }
+
+    /** Runs {@code query} on the database thread and delivers the result on the main thread. */
+    public <T> void read(Callable<T> query, Result<T> result) {
+        io.execute(() -> {
+            T value;
+            try {
+                value = query.call();
+            } catch (Exception e) {
+                // A broken cache must never block the screen; the network refresh still runs
+                Log.w(TAG, "Local read failed", e);
+                return;
+            }
+            mainHandler.post(() -> result.onResult(value));
+        });
+    }
+
+    public void write(Runnable work) {
+        io.execute(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Local write failed", e);
+            }
+        });
+    }
+
+    /** Drops every row, e.g. on logout so the next account starts empty. */
+    public void clearAll() {
+        write(() -> {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete(SessionDao.TABLE, null, null);
+                db.delete(VehicleDao.TABLE, null, null);
+                db.delete(NotificationDao.TABLE, null, null);
+                db.delete(ParkingLotDao.TABLE, null, null);
+                db.delete(SyncStateDao.TABLE, null, null);
+                db.delete(UploadJobDao.TABLE, null, null);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createMirroredSchema(db);
+        UploadJobDao.createSchema(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Server-mirrored tables can be downloaded again; queued uploads cannot
+        dropMirroredTables(db);
+        createMirroredSchema(db);
+        UploadJobDao.migrate(db, oldVersion);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        dropMirroredTables(db);
+        createMirroredSchema(db);
+        // upload_jobs is left as the newer version wrote it: its columns are only ever added to
+    }
+
+    private static void createMirroredSchema(SQLiteDatabase db) {
+        SessionDao.createSchema(db);
+        VehicleDao.createSchema(db);
+        NotificationDao.createSchema(db);
+        ParkingLotDao.createSchema(db);
+        SyncStateDao.createSchema(db);
+    }
+
+    private static void dropMirroredTables(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + SessionDao.TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + VehicleDao.TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + NotificationDao.TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + ParkingLotDao.TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + SyncStateDao.TABLE);
+    }
+}
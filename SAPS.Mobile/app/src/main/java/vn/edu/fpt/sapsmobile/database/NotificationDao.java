@@ -0,0 +1,106 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import vn.edu.fpt.sapsmobile.enums.NotificationType;
+import vn.edu.fpt.sapsmobile.models.Notification;
+import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
+
+/**
+ * The user's notification list in server order. Read state stays in the
+ * "NotificationsPrefs" preferences, as before. Call from the {@link AppDatabase} thread only.
+ */
+public class NotificationDao {
+    static final String TABLE = "notifications";
+
+    private static final String COL_ID = "id";
+    private static final String COL_USER_ID = "user_id";
+    private static final String COL_POSITION = "position";
+    private static final String COL_HEADER = "header";
+    private static final String COL_SUMMARY = "summary";
+    private static final String COL_CONTENT = "content";
+    private static final String COL_SEND_DATE = "send_date";
+    private static final String COL_SEND_EPOCH = "send_epoch";
+    private static final String COL_SENDER_ID = "sender_id";
+    private static final String COL_TYPE = "notification_type";
+
+    private static final String[] COLUMNS = {
+            COL_ID, COL_HEADER, COL_SUMMARY, COL_CONTENT, COL_SEND_DATE, COL_SENDER_ID, COL_TYPE
+    };
+
+    private final AppDatabase helper;
+
+    NotificationDao(AppDatabase helper) {
+        this.helper = helper;
+    }
+
+    static void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " INTEGER NOT NULL, "
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_POSITION + " INTEGER NOT NULL, "
+                + COL_HEADER + " TEXT, "
+                + COL_SUMMARY + " TEXT, "
+                + COL_CONTENT + " TEXT, "
+                + COL_SEND_DATE + " TEXT, "
+                + COL_SEND_EPOCH + " INTEGER NOT NULL, "
+                + COL_SENDER_ID + " INTEGER NOT NULL, "
+                + COL_TYPE + " TEXT, "
+                + "PRIMARY KEY (" + COL_USER_ID + ", " + COL_ID + "))");
+        db.execSQL("CREATE INDEX idx_notifications_user_sent ON " + TABLE
+                + " (" + COL_USER_ID + ", " + COL_SEND_EPOCH + ")");
+    }
+
+    public void replaceAll(String userId, List<Notification> notifications) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE, COL_USER_ID + " = ?", new String[]{userId});
+            ContentValues values = new ContentValues();
+            int position = 0;
+            for (Notification n : notifications) {
+                values.clear();
+                values.put(COL_ID, n.getId());
+                values.put(COL_USER_ID, userId);
+                values.put(COL_POSITION, position++);
+                values.put(COL_HEADER, n.getHeader());
+                values.put(COL_SUMMARY, n.getSummary());
+                values.put(COL_CONTENT, n.getContent());
+                values.put(COL_SEND_DATE, n.getSendDate());
+                values.put(COL_SEND_EPOCH, DateTimeHelper.toEpochMillis(n.getSendDate()));
+                values.put(COL_SENDER_ID, n.getSenderId());
+                values.put(COL_TYPE, n.getNotificationType() != null ? n.getNotificationType().name() : null);
+                db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public List<Notification> findAll(String userId) {
+        List<Notification> result = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().query(TABLE, COLUMNS, COL_USER_ID + " = ?",
+                new String[]{userId}, null, null, COL_POSITION + " ASC")) {
+            while (c.moveToNext()) {
+                Notification n = new Notification(
+                        c.getInt(0), c.getString(1), c.getString(2), c.getString(3), c.getString(4), c.getInt(5));
+                String type = c.getString(6);
+                if (type != null) {
+                    try {
+                        n.setNotificationType(NotificationType.valueOf(type));
+                    } catch (IllegalArgumentException e) {
+                        // enum renamed since the row was written; show it without a type
+                    }
+                }
+                result.add(n);
+            }
+        }
+        return result;
+    }
+}
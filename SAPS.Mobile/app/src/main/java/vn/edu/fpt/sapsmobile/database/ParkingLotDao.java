@@ -0,0 +1,92 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import vn.edu.fpt.sapsmobile.models.ParkingLot;
+
+/**
+ * Parking lots seen in session details. Lots are public data, so rows are not scoped
+ * to a user. Call from the {@link AppDatabase} thread only.
+ */
+public class ParkingLotDao {
+    static final String TABLE = "parking_lots";
+
+    private static final String COL_ID = "id";
+    private static final String COL_NAME = "name";
+    private static final String COL_DESCRIPTION = "description";
+    private static final String COL_ADDRESS = "address";
+    private static final String COL_TOTAL_SLOTS = "total_parking_slot";
+    private static final String COL_CREATED_AT = "created_at";
+    private static final String COL_UPDATED_AT = "updated_at";
+    private static final String COL_STATUS = "status";
+    private static final String COL_OWNER_ID = "parking_lot_owner_id";
+
+    private static final String[] COLUMNS = {
+            COL_ID, COL_NAME, COL_DESCRIPTION, COL_ADDRESS, COL_TOTAL_SLOTS,
+            COL_CREATED_AT, COL_UPDATED_AT, COL_STATUS, COL_OWNER_ID
+    };
+
+    private final AppDatabase helper;
+
+    ParkingLotDao(AppDatabase helper) {
+        this.helper = helper;
+    }
+
+    static void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " TEXT PRIMARY KEY, "
+                + COL_NAME + " TEXT, "
+                + COL_DESCRIPTION + " TEXT, "
+                + COL_ADDRESS + " TEXT, "
+                + COL_TOTAL_SLOTS + " INTEGER NOT NULL, "
+                + COL_CREATED_AT + " TEXT, "
+                + COL_UPDATED_AT + " TEXT, "
+                + COL_STATUS + " TEXT, "
+                + COL_OWNER_ID + " TEXT)");
+        db.execSQL("CREATE INDEX idx_parking_lots_status ON " + TABLE + " (" + COL_STATUS + ")");
+    }
+
+    public void upsert(ParkingLot lot) {
+        if (lot.getId() == null) return;
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, lot.getId());
+        values.put(COL_NAME, lot.getName());
+        values.put(COL_DESCRIPTION, lot.getDescription());
+        values.put(COL_ADDRESS, lot.getAddress());
+        values.put(COL_TOTAL_SLOTS, lot.getTotalParkingSlot());
+        values.put(COL_CREATED_AT, lot.getCreatedAt());
+        values.put(COL_UPDATED_AT, lot.getUpdatedAt());
+        values.put(COL_STATUS, lot.getStatus());
+        values.put(COL_OWNER_ID, lot.getParkingLotOwnerId());
+        helper.getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Nullable
+    public ParkingLot findById(String id) {
+        List<ParkingLot> lots = query(COL_ID + " = ?", new String[]{id});
+        return lots.isEmpty() ? null : lots.get(0);
+    }
+
+    public List<ParkingLot> findByStatus(String status) {
+        return query(COL_STATUS + " = ?", new String[]{status});
+    }
+
+    private List<ParkingLot> query(String where, String[] args) {
+        List<ParkingLot> result = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().query(TABLE, COLUMNS, where, args, null, null, COL_NAME + " ASC")) {
+            while (c.moveToNext()) {
+                result.add(new ParkingLot(
+                        c.getString(0), c.getString(1), c.getString(2), c.getString(3), c.getInt(4),
+                        c.getString(5), c.getString(6), c.getString(7), c.getString(8)));
+            }
+        }
+        return result;
+    }
+}
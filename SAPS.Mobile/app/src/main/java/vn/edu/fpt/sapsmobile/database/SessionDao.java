@@ -0,0 +1,231 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse.OwnedParkingSessionDto;
+import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
+import vn.edu.fpt.sapsmobile.utils.StringUtils;
+
+/**
+ * Owned parking sessions, keyed by server ID. Indexed by (user, status), (user, entry time)
+ * and normalized plate for the Home, History and vehicle screens. Call from the
+ * {@link AppDatabase} thread only.
+ */
+public class SessionDao {
+    static final String TABLE = "parking_sessions";
+
+    private static final String COL_ID = "id";
+    private static final String COL_USER_ID = "user_id";
+    private static final String COL_PARKING_LOT_NAME = "parking_lot_name";
+    private static final String COL_LICENSE_PLATE = "license_plate";
+    private static final String COL_PLATE_KEY = "plate_key";
+    private static final String COL_ENTRY_DATE_TIME = "entry_date_time";
+    private static final String COL_ENTRY_EPOCH = "entry_epoch"; // -1 if unparseable
+    private static final String COL_EXIT_DATE_TIME = "exit_date_time";
+    private static final String COL_COST = "cost";
+    private static final String COL_STATUS = "status";
+    private static final String COL_PAYMENT_STATUS = "payment_status";
+    private static final String COL_STALE = "stale"; // 1 once the row left its status on the server
+
+    private static final String[] COLUMNS = {
+            COL_ID, COL_PARKING_LOT_NAME, COL_LICENSE_PLATE, COL_ENTRY_DATE_TIME,
+            COL_EXIT_DATE_TIME, COL_COST, COL_STATUS, COL_PAYMENT_STATUS
+    };
+
+    private final AppDatabase helper;
+
+    SessionDao(AppDatabase helper) {
+        this.helper = helper;
+    }
+
+    static void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " TEXT PRIMARY KEY, "
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_PARKING_LOT_NAME + " TEXT, "
+                + COL_LICENSE_PLATE + " TEXT, "
+                + COL_PLATE_KEY + " TEXT, "
+                + COL_ENTRY_DATE_TIME + " TEXT, "
+                + COL_ENTRY_EPOCH + " INTEGER NOT NULL, "
+                + COL_EXIT_DATE_TIME + " TEXT, "
+                + COL_COST + " REAL NOT NULL, "
+                + COL_STATUS + " TEXT, "
+                + COL_PAYMENT_STATUS + " TEXT, "
+                + COL_STALE + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_sessions_user_status ON " + TABLE
+                + " (" + COL_USER_ID + ", " + COL_STATUS + ")");
+        db.execSQL("CREATE INDEX idx_sessions_user_entry ON " + TABLE
+                + " (" + COL_USER_ID + ", " + COL_ENTRY_EPOCH + ")");
+        db.execSQL("CREATE INDEX idx_sessions_plate ON " + TABLE + " (" + COL_PLATE_KEY + ")");
+    }
+
+    /** Inserts or overwrites by ID, so replaying the same rows is harmless. */
+    public void upsertAll(String userId, List<OwnedParkingSessionDto> sessions) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            insertAll(db, userId, sessions);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Makes {@code sessions} the complete set of fresh rows with {@code status}. Rows that
+     * left the status on the server (e.g. CheckedOut -> Finished) keep their old values but
+     * are marked stale until a sync downloads them again; status queries skip them.
+     */
+    public void replaceStatus(String userId, String status, List<OwnedParkingSessionDto> sessions) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues stale = new ContentValues();
+            stale.put(COL_STALE, 1);
+            db.update(TABLE, stale, COL_USER_ID + " = ? AND " + COL_STATUS + " = ?", new String[]{userId, status});
+            insertAll(db, userId, sessions);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Sessions in any of {@code statuses}, oldest entry first (the Home order). */
+    public List<OwnedParkingSessionDto> findByStatus(String userId, String... statuses) {
+        StringBuilder where = new StringBuilder(COL_USER_ID + " = ? AND " + COL_STALE + " = 0 AND "
+                + COL_STATUS + " IN (");
+        String[] args = new String[statuses.length + 1];
+        args[0] = userId;
+        for (int i = 0; i < statuses.length; i++) {
+            where.append(i == 0 ? "?" : ", ?");
+            args[i + 1] = statuses[i];
+        }
+        where.append(')');
+        return query(where.toString(), args, COL_ENTRY_EPOCH + " ASC");
+    }
+
+    /** Position after the last row of a history page; the next page starts there. */
+    public static final class PageKey {
+        final long entryEpochMillis;
+        final String id;
+
+        private PageKey(long entryEpochMillis, String id) {
+            this.entryEpochMillis = entryEpochMillis;
+            this.id = id;
+        }
+
+        /** Key after {@code last}, which must be a row returned by {@link #findHistoryPage}. */
+        public static PageKey after(OwnedParkingSessionDto last) {
+            return new PageKey(DateTimeHelper.toEpochMillis(last.getEntryDateTime()), last.getId());
+        }
+    }
+
+    /**
+     * Up to {@code limit} sessions entered since {@code fromEpochMillis} ({@code -1} for all
+     * time), newest first, starting after {@code after} ({@code null} for the first page).
+     * Keyset paging on (entry time, ID) over the (user, entry time) index, so a deep page
+     * costs the same as the first one.
+     */
+    public List<OwnedParkingSessionDto> findHistoryPage(String userId, long fromEpochMillis,
+                                                        @Nullable PageKey after, int limit) {
+        StringBuilder where = new StringBuilder(COL_USER_ID + " = ?");
+        List<String> args = new ArrayList<>();
+        args.add(userId);
+        if (fromEpochMillis >= 0) {
+            where.append(" AND ").append(COL_ENTRY_EPOCH).append(" >= ?");
+            args.add(String.valueOf(fromEpochMillis));
+        }
+        if (after != null) {
+            where.append(" AND (").append(COL_ENTRY_EPOCH).append(" < ? OR (")
+                    .append(COL_ENTRY_EPOCH).append(" = ? AND ").append(COL_ID).append(" < ?))");
+            args.add(String.valueOf(after.entryEpochMillis));
+            args.add(String.valueOf(after.entryEpochMillis));
+            args.add(after.id);
+        }
+        return query(where.toString(), args.toArray(new String[0]),
+                COL_ENTRY_EPOCH + " DESC, " + COL_ID + " DESC", String.valueOf(limit));
+    }
+
+    public int count(String userId) {
+        return (int) DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), TABLE,
+                COL_USER_ID + " = ?", new String[]{userId});
+    }
+
+    /** Earliest entry time among stale rows, or -1 if there are none. */
+    public long oldestStaleEntry(String userId) {
+        return DatabaseUtils.longForQuery(helper.getReadableDatabase(),
+                "SELECT IFNULL(MIN(" + COL_ENTRY_EPOCH + "), -1) FROM " + TABLE
+                        + " WHERE " + COL_USER_ID + " = ? AND " + COL_STALE + " = 1 AND " + COL_ENTRY_EPOCH + " >= 0",
+                new String[]{userId});
+    }
+
+    /**
+     * Drops rows that are still stale after a sync covered their entry time: the server
+     * did not return them, so they no longer exist there. {@code -1} covers every row.
+     */
+    public void deleteStale(String userId, long fromEpochMillis) {
+        helper.getWritableDatabase().delete(TABLE,
+                COL_USER_ID + " = ? AND " + COL_STALE + " = 1 AND " + COL_ENTRY_EPOCH + " >= ?",
+                new String[]{userId, String.valueOf(fromEpochMillis)});
+    }
+
+    public List<OwnedParkingSessionDto> findByPlate(String userId, String licensePlate) {
+        String plateKey = StringUtils.normalizePlate(licensePlate);
+        if (plateKey == null) return new ArrayList<>();
+        return query(COL_USER_ID + " = ? AND " + COL_PLATE_KEY + " = ?",
+                new String[]{userId, plateKey},
+                COL_ENTRY_EPOCH + " DESC");
+    }
+
+    private static void insertAll(SQLiteDatabase db, String userId, List<OwnedParkingSessionDto> sessions) {
+        ContentValues values = new ContentValues();
+        for (OwnedParkingSessionDto dto : sessions) {
+            if (dto.getId() == null) continue;
+            values.clear();
+            values.put(COL_ID, dto.getId());
+            values.put(COL_USER_ID, userId);
+            values.put(COL_PARKING_LOT_NAME, dto.getParkingLotName());
+            values.put(COL_LICENSE_PLATE, dto.getLicensePlate());
+            values.put(COL_PLATE_KEY, StringUtils.normalizePlate(dto.getLicensePlate()));
+            values.put(COL_ENTRY_DATE_TIME, dto.getEntryDateTime());
+            values.put(COL_ENTRY_EPOCH, DateTimeHelper.toEpochMillis(dto.getEntryDateTime()));
+            values.put(COL_EXIT_DATE_TIME, dto.getExitDateTime());
+            values.put(COL_COST, dto.getCost());
+            values.put(COL_STATUS, dto.getStatus());
+            values.put(COL_PAYMENT_STATUS, dto.getPaymentStatus());
+            values.put(COL_STALE, 0);
+            db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+    }
+
+    private List<OwnedParkingSessionDto> query(String where, String[] args, String orderBy) {
+        return query(where, args, orderBy, null);
+    }
+
+    private List<OwnedParkingSessionDto> query(String where, String[] args, String orderBy, @Nullable String limit) {
+        List<OwnedParkingSessionDto> result = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().query(TABLE, COLUMNS, where, args, null, null, orderBy, limit)) {
+            while (c.moveToNext()) {
+                OwnedParkingSessionDto dto = new OwnedParkingSessionDto();
+                dto.setId(c.getString(0));
+                dto.setParkingLotName(c.getString(1));
+                dto.setLicensePlate(c.getString(2));
+                dto.setEntryDateTime(c.getString(3));
+                dto.setExitDateTime(c.getString(4));
+                dto.setCost(c.getDouble(5));
+                dto.setStatus(c.getString(6));
+                dto.setPaymentStatus(c.getString(7));
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Per-user bookkeeping for the session delta sync. Lives next to the rows it describes,
+ * so clearing the database also forgets the high-water marks. Call from the
+ * {@link AppDatabase} thread only.
+ */
+public class SyncStateDao {
+    static final String TABLE = "sync_state";
+
+    private static final String COL_USER_ID = "user_id";
+    private static final String COL_ENTRY_HWM = "entry_hwm";
+    private static final String COL_CHANGE_HWM = "change_hwm";
+    private static final String COL_BYTES_PER_ROW = "bytes_per_row";
+    private static final String COL_BYTES_SAVED = "bytes_saved_total";
+    private static final String COL_LAST_SYNC_AT = "last_sync_at";
+    private static final String COL_COVERED_FROM = "covered_from";
+
+    private static final String[] COLUMNS = {
+            COL_ENTRY_HWM, COL_CHANGE_HWM, COL_BYTES_PER_ROW, COL_BYTES_SAVED, COL_LAST_SYNC_AT, COL_COVERED_FROM
+    };
+
+    public static final class State {
+        /** Latest entry time seen, epoch millis. */
+        public long entryHighWaterMark;
+        /** Latest entry or exit time seen; exits after the last sync are later than this. */
+        public long changeHighWaterMark;
+        /** Average response bytes per session measured on the last full sync. */
+        public long bytesPerRow;
+        public long bytesSavedTotal;
+        public long lastSyncAt;
+        /** Every session entered from here on is stored, epoch millis; -1 if the whole history is. */
+        public long coveredFrom;
+    }
+
+    private final AppDatabase helper;
+
+    SyncStateDao(AppDatabase helper) {
+        this.helper = helper;
+    }
+
+    static void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_USER_ID + " TEXT PRIMARY KEY, "
+                + COL_ENTRY_HWM + " INTEGER NOT NULL, "
+                + COL_CHANGE_HWM + " INTEGER NOT NULL, "
+                + COL_BYTES_PER_ROW + " INTEGER NOT NULL, "
+                + COL_BYTES_SAVED + " INTEGER NOT NULL, "
+                + COL_LAST_SYNC_AT + " INTEGER NOT NULL, "
+                + COL_COVERED_FROM + " INTEGER NOT NULL)");
+    }
+
+    /** Null until the first full sync for the user has been merged. */
+    @Nullable
+    public State get(String userId) {
+        try (Cursor c = helper.getReadableDatabase().query(TABLE, COLUMNS, COL_USER_ID + " = ?",
+                new String[]{userId}, null, null, null)) {
+            if (!c.moveToFirst()) return null;
+            State state = new State();
+            state.entryHighWaterMark = c.getLong(0);
+            state.changeHighWaterMark = c.getLong(1);
+            state.bytesPerRow = c.getLong(2);
+            state.bytesSavedTotal = c.getLong(3);
+            state.lastSyncAt = c.getLong(4);
+            state.coveredFrom = c.getLong(5);
+            return state;
+        }
+    }
+
+    public void put(String userId, State state) {
+        ContentValues values = new ContentValues();
+        values.put(COL_USER_ID, userId);
+        values.put(COL_ENTRY_HWM, state.entryHighWaterMark);
+        values.put(COL_CHANGE_HWM, state.changeHighWaterMark);
+        values.put(COL_BYTES_PER_ROW, state.bytesPerRow);
+        values.put(COL_BYTES_SAVED, state.bytesSavedTotal);
+        values.put(COL_LAST_SYNC_AT, state.lastSyncAt);
+        values.put(COL_COVERED_FROM, state.coveredFrom);
+        helper.getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
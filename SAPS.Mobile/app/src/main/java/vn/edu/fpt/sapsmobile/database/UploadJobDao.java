@@ -0,0 +1,132 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multipart uploads waiting to be (re)sent by {@code UploadQueue}. The job ID is sent as
+ * the Idempotency-Key header; the server does not deduplicate on it, so the queue itself
+ * handles a resend of a request that was already applied. Image parts are referenced by path; text parts are stored as a JSON object. Call from
+ * the {@link AppDatabase} thread only.
+ */
+public class UploadJobDao {
+    static final String TABLE = "upload_jobs";
+    // Schema version that introduced the table
+    private static final int SINCE_VERSION = 3;
+
+    private static final String COL_ID = "id";
+    private static final String COL_KIND = "kind";
+    private static final String COL_FIELDS = "fields";
+    private static final String COL_FRONT_PATH = "front_path";
+    private static final String COL_BACK_PATH = "back_path";
+    private static final String COL_ATTEMPTS = "attempts";
+    private static final String COL_CREATED_AT = "created_at";
+
+    private static final String[] COLUMNS = {
+            COL_ID, COL_KIND, COL_FIELDS, COL_FRONT_PATH, COL_BACK_PATH, COL_ATTEMPTS, COL_CREATED_AT
+    };
+
+    public static final class Job {
+        public String id;
+        public String kind;
+        public Map<String, String> fields = new LinkedHashMap<>();
+        public String frontPath;
+        public String backPath;
+        public int attempts;
+        public long createdAt;
+    }
+
+    private final AppDatabase helper;
+
+    UploadJobDao(AppDatabase helper) {
+        this.helper = helper;
+    }
+
+    static void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " TEXT PRIMARY KEY, "
+                + COL_KIND + " TEXT NOT NULL, "
+                + COL_FIELDS + " TEXT NOT NULL, "
+                + COL_FRONT_PATH + " TEXT NOT NULL, "
+                + COL_BACK_PATH + " TEXT NOT NULL, "
+                + COL_ATTEMPTS + " INTEGER NOT NULL, "
+                + COL_CREATED_AT + " INTEGER NOT NULL)");
+    }
+
+    /**
+     * Queued jobs cannot be downloaded again, so unlike the mirrored tables this one is
+     * migrated step by step instead of being dropped on a schema change.
+     */
+    static void migrate(SQLiteDatabase db, int oldVersion) {
+        if (oldVersion < SINCE_VERSION) {
+            createSchema(db);
+        }
+        // Future changes: ALTER TABLE ... ADD COLUMN, guarded by oldVersion
+    }
+
+    public void insert(Job job) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, job.id);
+        values.put(COL_KIND, job.kind);
+        values.put(COL_FIELDS, new JSONObject(job.fields).toString());
+        values.put(COL_FRONT_PATH, job.frontPath);
+        values.put(COL_BACK_PATH, job.backPath);
+        values.put(COL_ATTEMPTS, job.attempts);
+        values.put(COL_CREATED_AT, job.createdAt);
+        helper.getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void updateAttempts(String id, int attempts) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ATTEMPTS, attempts);
+        helper.getWritableDatabase().update(TABLE, values, COL_ID + " = ?", new String[]{id});
+    }
+
+    public void delete(String id) {
+        helper.getWritableDatabase().delete(TABLE, COL_ID + " = ?", new String[]{id});
+    }
+
+    /** Oldest first, the order they were submitted in. */
+    public List<Job> findAll() {
+        List<Job> result = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().query(TABLE, COLUMNS, null, null, null, null,
+                COL_CREATED_AT + " ASC")) {
+            while (c.moveToNext()) {
+                Job job = new Job();
+                job.id = c.getString(0);
+                job.kind = c.getString(1);
+                job.fields = parseFields(c.getString(2));
+                job.frontPath = c.getString(3);
+                job.backPath = c.getString(4);
+                job.attempts = c.getInt(5);
+                job.createdAt = c.getLong(6);
+                result.add(job);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, String> parseFields(String json) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        try {
+            JSONObject object = new JSONObject(json);
+            for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                fields.put(key, object.optString(key, ""));
+            }
+        } catch (JSONException e) {
+            // written by insert() above, so only a corrupt row ends up here; send it without fields
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,122 @@
+package vn.edu.fpt.sapsmobile.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
+import vn.edu.fpt.sapsmobile.utils.StringUtils;
+
+/**
+ * The user's own and shared vehicle lists, as last returned by the vehicle endpoints.
+ * Indexed by normalized plate for session joins. Call from the {@link AppDatabase} thread only.
+ */
+public class VehicleDao {
+    static final String TABLE = "vehicles";
+
+    public static final String OWN = "own";
+    public static final String SHARED = "shared";
+
+    private static final String COL_ID = "id";
+    private static final String COL_USER_ID = "user_id";
+    private static final String COL_RELATION = "relation"; // OWN or SHARED
+    private static final String COL_POSITION = "position"; // order the server returned
+    private static final String COL_LICENSE_PLATE = "license_plate";
+    private static final String COL_PLATE_KEY = "plate_key";
+    private static final String COL_BRAND = "brand";
+    private static final String COL_MODEL = "model";
+    private static final String COL_COLOR = "color";
+    private static final String COL_STATUS = "status";
+    private static final String COL_SHARING_STATUS = "sharing_status";
+
+    private static final String[] COLUMNS = {
+            COL_ID, COL_LICENSE_PLATE, COL_BRAND, COL_MODEL, COL_COLOR, COL_STATUS, COL_SHARING_STATUS
+    };
+
+    private final AppDatabase helper;
+
+    VehicleDao(AppDatabase helper) {
+        this.helper = helper;
+    }
+
+    static void createSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " TEXT NOT NULL, "
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_RELATION + " TEXT NOT NULL, "
+                + COL_POSITION + " INTEGER NOT NULL, "
+                + COL_LICENSE_PLATE + " TEXT, "
+                + COL_PLATE_KEY + " TEXT, "
+                + COL_BRAND + " TEXT, "
+                + COL_MODEL + " TEXT, "
+                + COL_COLOR + " TEXT, "
+                + COL_STATUS + " TEXT, "
+                + COL_SHARING_STATUS + " TEXT, "
+                + "PRIMARY KEY (" + COL_USER_ID + ", " + COL_RELATION + ", " + COL_ID + "))");
+        db.execSQL("CREATE INDEX idx_vehicles_plate ON " + TABLE
+                + " (" + COL_USER_ID + ", " + COL_PLATE_KEY + ")");
+    }
+
+    /** Makes {@code vehicles} the complete list for the user and relation. */
+    public void replaceAll(String userId, String relation, List<VehicleSummaryDto> vehicles) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE, COL_USER_ID + " = ? AND " + COL_RELATION + " = ?", new String[]{userId, relation});
+            ContentValues values = new ContentValues();
+            int position = 0;
+            for (VehicleSummaryDto v : vehicles) {
+                if (v.getId() == null) continue;
+                values.clear();
+                values.put(COL_ID, v.getId());
+                values.put(COL_USER_ID, userId);
+                values.put(COL_RELATION, relation);
+                values.put(COL_POSITION, position++);
+                values.put(COL_LICENSE_PLATE, v.getLicensePlate());
+                values.put(COL_PLATE_KEY, StringUtils.normalizePlate(v.getLicensePlate()));
+                values.put(COL_BRAND, v.getBrand());
+                values.put(COL_MODEL, v.getModel());
+                values.put(COL_COLOR, v.getColor());
+                values.put(COL_STATUS, v.getStatus());
+                values.put(COL_SHARING_STATUS, v.getSharingStatus());
+                db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public List<VehicleSummaryDto> findAll(String userId, String relation) {
+        return query(COL_USER_ID + " = ? AND " + COL_RELATION + " = ?",
+                new String[]{userId, relation}, COL_POSITION + " ASC");
+    }
+
+    /** Own vehicle with the plate if there is one, else a shared one. */
+    @Nullable
+    public VehicleSummaryDto findByPlate(String userId, String licensePlate) {
+        String plateKey = StringUtils.normalizePlate(licensePlate);
+        if (plateKey == null) return null;
+        // "own" sorts before "shared"
+        List<VehicleSummaryDto> matches = query(COL_USER_ID + " = ? AND " + COL_PLATE_KEY + " = ?",
+                new String[]{userId, plateKey}, COL_RELATION + " ASC");
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    private List<VehicleSummaryDto> query(String where, String[] args, String orderBy) {
+        List<VehicleSummaryDto> result = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().query(TABLE, COLUMNS, where, args, null, null, orderBy)) {
+            while (c.moveToNext()) {
+                result.add(new VehicleSummaryDto(
+                        c.getString(0), c.getString(1), c.getString(2), c.getString(3),
+                        c.getString(4), c.getString(5), c.getString(6)));
+            }
+        }
+        return result;
+    }
+}
@@ -14,45 +14,78 @@ import android.view.Window;
 import android.view.WindowManager;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
+import android.widget.TextView;
 
 import com.google.android.material.textfield.TextInputLayout;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
-import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionRequest;
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
+import vn.edu.fpt.sapsmobile.database.SessionDao;
+import vn.edu.fpt.sapsmobile.database.SyncStateDao;
+import vn.edu.fpt.sapsmobile.database.VehicleDao;
 import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
 import vn.edu.fpt.sapsmobile.network.client.ApiClient;
 import vn.edu.fpt.sapsmobile.network.api.IVehicleApi;
-import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
 import vn.edu.fpt.sapsmobile.R;
 import vn.edu.fpt.sapsmobile.actionhandler.HistoryFragmentHandler;
 import vn.edu.fpt.sapsmobile.adapters.ParkingSessionAdapter;
+import vn.edu.fpt.sapsmobile.services.SessionHistoryPager;
+import vn.edu.fpt.sapsmobile.services.SessionSyncEngine;
 import vn.edu.fpt.sapsmobile.utils.LoadingDialog;
 import vn.edu.fpt.sapsmobile.utils.TokenManager;
 
 public class HistoryFragment extends Fragment {
     private RecyclerView rvParkingHistory;
     private ParkingSessionAdapter parkingSessionAdapter;
-    private List<OwnedSessionResponse.OwnedParkingSessionDto> parkingSessionList;
     private TextInputLayout spinnerFilter;
     private AutoCompleteTextView autoCompleteTextView;
     private LoadingDialog loadingDialog;
     private TokenManager tokenManager;
     private View emptyStateLayout;
-
-    private Call<OwnedSessionResponse> currentCall;
-
-    // Filter constants
-    private static final String FILTER_LAST_30_DAYS = "Last 30 days";
-    private static final String FILTER_LAST_3_MONTHS = "Last 3 months";
-    private static final String FILTER_LAST_YEAR = "Last year";
-    private static final String FILTER_ALL = "All time";
+    private View olderHistoryLayout;
+    private TextView tvOlderHistory;
+
+    private LinearLayoutManager layoutManager;
+    private SessionHistoryPager pager;
+    private Call<List<VehicleSummaryDto>> vehiclesCall;
+    private AppDatabase db;
+    private SessionSyncEngine syncEngine;
+    private String userId;
+    // Once the sync baseline covers the selected range, history is served locally and kept
+    // current by delta syncs
+    private boolean localMode;
+    // Local mode reads the store a page at a time; see SessionDao.findHistoryPage
+    private SessionDao.PageKey localNext;
+    private boolean localEnd;
+    private boolean localLoading;
+    private int localRequest;
+
+    // Stored rows are shown until the first fresh row of the same load arrives
+    private int loadGeneration;
+    private boolean receivedFresh;
+    private boolean showingStored;
+
+    // Start loading the next/previous page when this close to either end of the list
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final int STORED_PAGE_SIZE = 30;
+    private static final DateTimeFormatter SEARCHED_SINCE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Filter options, in the order of R.array.history_view_methods (labels are localized)
+    private static final SessionHistoryPager.Range[] FILTER_RANGES = {
+            SessionHistoryPager.Range.LAST_30_DAYS,
+            SessionHistoryPager.Range.LAST_3_MONTHS,
+            SessionHistoryPager.Range.LAST_YEAR,
+            SessionHistoryPager.Range.ALL_TIME
+    };
+    private int selectedFilter = FILTER_RANGES.length - 1;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -73,6 +106,13 @@ public class HistoryFragment extends Fragment {
         // Initialize views
         rvParkingHistory = view.findViewById(R.id.rvParkingHistory);
         emptyStateLayout = view.findViewById(R.id.emptyStateLayout);
+        olderHistoryLayout = view.findViewById(R.id.olderHistoryLayout);
+        tvOlderHistory = view.findViewById(R.id.tvOlderHistory);
+        view.findViewById(R.id.btnSearchOlder).setOnClickListener(v -> {
+            olderHistoryLayout.setVisibility(View.GONE);
+            loadingDialog.show("");
+            pager.searchOlder();
+        });
 
         parkingSessionAdapter = new ParkingSessionAdapter(
                 new ArrayList<>(),
@@ -82,7 +122,19 @@ public class HistoryFragment extends Fragment {
 
         rvParkingHistory.setAdapter(parkingSessionAdapter);
 
-        rvParkingHistory.setLayoutManager(new LinearLayoutManager(getContext()));
+        layoutManager = new LinearLayoutManager(getContext());
+        rvParkingHistory.setLayoutManager(layoutManager);
+        rvParkingHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                maybePrefetch();
+            }
+        });
+
+        db = AppDatabase.getInstance(requireContext());
+        syncEngine = SessionSyncEngine.getInstance(requireContext());
+        userId = tokenManager.getUserData().getId();
+        pager = new SessionHistoryPager(requireContext(), userId, new HistorySink());
 
         spinnerFilter = view.findViewById(R.id.spinnerFilter);
         autoCompleteTextView = (AutoCompleteTextView) spinnerFilter.getEditText();
@@ -98,9 +150,9 @@ public class HistoryFragment extends Fragment {
 
         autoCompleteTextView.setAdapter(adapter);
 
-        // Set default selection (first item)
-        if (filterOptions.length > 0) {
-            autoCompleteTextView.setText(filterOptions[0], false);
+        // Default to the whole history, like before the filter was wired up
+        if (selectedFilter < filterOptions.length) {
+            autoCompleteTextView.setText(filterOptions[selectedFilter], false);
         }
 
         return view;
@@ -115,22 +167,145 @@ public class HistoryFragment extends Fragment {
 
         // Handle dropdown selection
         autoCompleteTextView.setOnItemClickListener((parent, view1, position, id) -> {
+            selectedFilter = position;
             loadParkingSessionData();
         });
     }
 
     private void loadParkingSessionData() {
-        if (currentCall != null) currentCall.cancel(); // cancel previous request
-
+        parkingSessionAdapter.updateItems(new ArrayList<>());
+        loadGeneration++;
+        receivedFresh = false;
+        showingStored = false;
+        olderHistoryLayout.setVisibility(View.GONE);
         loadingDialog.show("");
-        fetchOwnedSessions();
+        fetchVehicles();
+
+        localRequest++;
+        localNext = null;
+        localEnd = false;
+        localLoading = false;
+
+        String uid = userId;
+        int generation = loadGeneration;
+        long fromMillis = selectedFromMillis();
+        db.read(() -> db.syncState().get(uid), state -> {
+            if (!isAdded() || getContext() == null || generation != loadGeneration) return;
+            localMode = covers(state, fromMillis);
+            if (localMode) {
+                pager.cancel();
+                showLocalHistory(generation);
+            } else {
+                showStoredHistory();
+                pager.reset(selectedRange()); // cancels the previous request
+                // Takes the baseline (or the delta), so recent ranges are served locally
+                syncEngine.sync(uid, null);
+            }
+        });
+    }
+
+    private static boolean covers(SyncStateDao.State state, long fromMillis) {
+        if (state == null) return false;
+        return state.coveredFrom < 0 || (fromMillis >= 0 && fromMillis >= state.coveredFrom);
+    }
+
+    /** Local mode: the store has the whole range, so page it from there and only fetch what changed. */
+    private void showLocalHistory(int generation) {
+        loadLocalHead(generation, STORED_PAGE_SIZE, stored -> {
+            if (!stored.isEmpty()) {
+                loadingDialog.dismiss();
+                hideEmptyState();
+            }
+        });
+        syncEngine.sync(userId, new SessionSyncEngine.Callback() {
+            @Override
+            public void onSynced(SessionSyncEngine.Result result) {
+                // Re-read as many rows as are shown, so the list does not jump back to one page
+                int shown = Math.max(STORED_PAGE_SIZE, parkingSessionAdapter.getSubmittedCount());
+                loadLocalHead(generation, shown, stored -> {
+                    loadingDialog.dismiss();
+                    if (stored.isEmpty()) showEmptyState(); else hideEmptyState();
+                });
+            }
+
+            @Override
+            public void onSyncFailed(Throwable t) {
+                if (!isAdded() || getContext() == null || generation != loadGeneration) return;
+                loadingDialog.dismiss();
+                if (parkingSessionAdapter.getSubmittedCount() == 0) showEmptyState();
+            }
+        });
+    }
+
+    /** Replaces the list with the newest {@code limit} stored rows of the range. */
+    private void loadLocalHead(int generation, int limit,
+                               AppDatabase.Result<List<OwnedSessionResponse.OwnedParkingSessionDto>> shown) {
+        int request = ++localRequest;
+        localLoading = true;
+        queryStored(generation, null, limit, stored -> {
+            if (request != localRequest) return;
+            localLoading = false;
+            localEnd = stored.size() < limit;
+            localNext = stored.isEmpty() ? null : SessionDao.PageKey.after(stored.get(stored.size() - 1));
+            parkingSessionAdapter.updateItems(stored);
+            shown.onResult(stored);
+            // A short page may not fill the screen, so no scroll event would ask for more
+            rvParkingHistory.post(this::maybePrefetch);
+        });
+    }
+
+    private void loadNextLocalPage() {
+        int request = ++localRequest;
+        localLoading = true;
+        queryStored(loadGeneration, localNext, STORED_PAGE_SIZE, stored -> {
+            if (request != localRequest) return;
+            localLoading = false;
+            localEnd = stored.size() < STORED_PAGE_SIZE;
+            if (stored.isEmpty()) return;
+            localNext = SessionDao.PageKey.after(stored.get(stored.size() - 1));
+            parkingSessionAdapter.appendItems(stored);
+        });
+    }
+
+    /** Shows the newest stored rows of the range so the list appears before the first page downloads. */
+    private void showStoredHistory() {
+        queryStored(loadGeneration, null, STORED_PAGE_SIZE, stored -> {
+            if (receivedFresh || stored.isEmpty()) return;
+            showingStored = true;
+            loadingDialog.dismiss();
+            hideEmptyState();
+            parkingSessionAdapter.updateItems(stored);
+        });
+    }
+
+    /** One page of stored sessions in the selected range, newest first; dropped if the filter changed meanwhile. */
+    private void queryStored(int generation, SessionDao.PageKey after, int limit,
+                             AppDatabase.Result<List<OwnedSessionResponse.OwnedParkingSessionDto>> result) {
+        long fromMillis = selectedFromMillis();
+        String uid = userId;
+        db.read(() -> db.sessions().findHistoryPage(uid, fromMillis, after, limit), stored -> {
+            if (!isAdded() || getContext() == null || generation != loadGeneration) return;
+            result.onResult(stored);
+        });
+    }
+
+    /** Start of the selected range in epoch millis, or -1 for all time. */
+    private long selectedFromMillis() {
+        return selectedRange().sinceMillis(LocalDate.now());
+    }
+
+    private SessionHistoryPager.Range selectedRange() {
+        return selectedFilter < FILTER_RANGES.length
+                ? FILTER_RANGES[selectedFilter]
+                : SessionHistoryPager.Range.ALL_TIME;
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
         if (loadingDialog != null) loadingDialog.dismiss();
-        if (currentCall != null) currentCall.cancel(); // explained below
+        if (pager != null) pager.cancel();
+        if (vehiclesCall != null) vehiclesCall.cancel();
     }
 
     public void onStop() {
@@ -138,123 +313,129 @@ public class HistoryFragment extends Fragment {
         if (loadingDialog != null) loadingDialog.dismiss();
     }
 
-    private void fetchOwnedSessions() {
-        IParkingSessionApiService parkingSessionApi = ApiClient.getServiceLast(requireContext())
-                .create(IParkingSessionApiService.class);
+    private void maybePrefetch() {
+        if (!isAdded() || getContext() == null) return;
+        int itemCount = parkingSessionAdapter.getItemCount();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        if (localMode) {
+            if (!localLoading && !localEnd && localNext != null
+                    && lastVisible >= itemCount - PREFETCH_DISTANCE) {
+                loadNextLocalPage();
+            }
+            return;
+        }
+        if (pager.isLoading()) return;
+        if (pager.hasMoreAfter() && lastVisible >= itemCount - PREFETCH_DISTANCE) {
+            pager.loadNext();
+        } else if (pager.hasMoreBefore() && firstVisible != RecyclerView.NO_POSITION
+                && firstVisible <= PREFETCH_DISTANCE) {
+            pager.loadPrevious();
+        }
+    }
 
-        List<OwnedSessionResponse.OwnedParkingSessionDto> sessionDtoList = new ArrayList<>();
+    private class HistorySink implements SessionHistoryPager.Sink {
+        @Override
+        public void onAppended(List<OwnedSessionResponse.OwnedParkingSessionDto> items) {
+            String uid = userId;
+            db.write(() -> db.sessions().upsertAll(uid, items));
+            if (!isAdded() || getContext() == null) return;
+            receivedFresh = true;
+            loadingDialog.dismiss();
+            hideEmptyState();
+            if (showingStored) {
+                // First fresh rows replace the stored ones; the pager's counts start here
+                showingStored = false;
+                parkingSessionAdapter.updateItems(items);
+            } else {
+                parkingSessionAdapter.appendItems(items);
+            }
+        }
 
-        final AtomicInteger completedCalls = new AtomicInteger(0);
-        final int totalCalls = 1;
+        @Override
+        public void onPrepended(List<OwnedSessionResponse.OwnedParkingSessionDto> items) {
+            String uid = userId;
+            db.write(() -> db.sessions().upsertAll(uid, items));
+            if (!isAdded() || getContext() == null) return;
+            parkingSessionAdapter.prependItems(items);
+        }
 
-        Runnable onCallComplete = () -> {
-            if (completedCalls.incrementAndGet() == totalCalls) {
-                loadingDialog.dismiss();
-                if (!sessionDtoList.isEmpty()) {
-                    fetchVehiclesAndBind(sessionDtoList);
-                } else {
-                    // Handle empty results
-                    parkingSessionList = new ArrayList<>();
-                    parkingSessionAdapter.updateItems(parkingSessionList);
-                    showEmptyState();
-                }
-            }
-        };
+        @Override
+        public void onRemovedFirst(int count) {
+            if (!isAdded() || getContext() == null) return;
+            parkingSessionAdapter.removeFirst(count);
+        }
 
-        // Generic callback for both calls
-        Callback<OwnedSessionResponse> sessionCallback = new Callback<OwnedSessionResponse>() {
-            @Override
-            public void onResponse(Call<OwnedSessionResponse> call, Response<OwnedSessionResponse> response) {
-                if (!isAdded() || getContext() == null) {
-                    loadingDialog.dismiss();
-                    return;
-                }
+        @Override
+        public void onRemovedLast(int count) {
+            if (!isAdded() || getContext() == null) return;
+            parkingSessionAdapter.removeLast(count);
+        }
 
-                if (response.isSuccessful() && response.body() != null && response.body().getData() != null) {
-                    synchronized (sessionDtoList) {
-                        addUniqueItems(sessionDtoList, response.body().getData());
-                    }
-                }
-                onCallComplete.run();
+        @Override
+        public void onIdle(boolean failed) {
+            loadingDialog.dismiss();
+            if (!isAdded() || getContext() == null) return;
+            if (showingStored && !failed && !pager.hasMoreAfter() && !pager.isSearchPaused()) {
+                // The server has nothing in this range any more
+                showingStored = false;
+                parkingSessionAdapter.updateItems(new ArrayList<>());
             }
-
-            @Override
-            public void onFailure(Call<OwnedSessionResponse> call, Throwable t) {
-                if (isAdded() && getContext() != null) {
-                    // Continue even if one call fails
-                    onCallComplete.run();
-                } else {
-                    loadingDialog.dismiss();
-                }
+            // On failure stored rows stay up, which is the point when offline
+            if (parkingSessionAdapter.getSubmittedCount() == 0 && !pager.hasMoreAfter()) {
+                showEmptyState();
+            } else {
+                hideEmptyState();
             }
-        };
-
-        // Make the API call
-        String userId = tokenManager.getUserData().getId();
-        OwnedSessionRequest parkingRequest = new OwnedSessionRequest("Desc", "entryDateTime", "Parking");
-        parkingRequest.setStatus(null);
-
-        currentCall = parkingSessionApi.getOwnedSessions(
-                userId,
-                parkingRequest.getStatus(),
-                parkingRequest.getStartEntryDate() != null ? parkingRequest.getStartEntryDate().toString() : null,
-                parkingRequest.getEndEntryDate() != null ? parkingRequest.getEndEntryDate().toString() : null,
-                parkingRequest.getStartExitDate() != null ? parkingRequest.getStartExitDate().toString() : null,
-                parkingRequest.getEndExitDate() != null ? parkingRequest.getEndExitDate().toString() : null,
-                parkingRequest.getOrder(),
-                parkingRequest.getSortBy(),
-                parkingRequest.getSearchCriteria()
-        );
-        currentCall.enqueue(sessionCallback);
+            updateOlderHistoryNote();
+            // A short page may not fill the screen, so no scroll event would ask for more
+            if (!failed) {
+                rvParkingHistory.post(HistoryFragment.this::maybePrefetch);
+            }
+        }
     }
 
-    private void addUniqueItems(List<OwnedSessionResponse.OwnedParkingSessionDto> target,
-                                List<OwnedSessionResponse.OwnedParkingSessionDto> source) {
-        for (OwnedSessionResponse.OwnedParkingSessionDto dto : source) {
-            boolean exists = target.stream()
-                    .anyMatch(existing -> existing.getId() != null && existing.getId().equals(dto.getId()));
-            if (!exists) {
-                target.add(dto);
-            }
+    /** Says so when "all time" stopped searching, rather than presenting it as the end of the list. */
+    private void updateOlderHistoryNote() {
+        LocalDate since = pager.searchedSince();
+        if (pager.isSearchPaused() && !pager.hasMoreAfter() && since != null) {
+            tvOlderHistory.setText(getString(R.string.history_older_not_searched,
+                    since.format(SEARCHED_SINCE_FORMAT)));
+            olderHistoryLayout.setVisibility(View.VISIBLE);
+        } else {
+            olderHistoryLayout.setVisibility(View.GONE);
         }
     }
 
-    private void fetchVehiclesAndBind(List<OwnedSessionResponse.OwnedParkingSessionDto> dtoList) {
-        IVehicleApi vehicleApi = ApiClient.getServiceLast(requireContext()).create(IVehicleApi.class);
-        vehicleApi.getMyVehicles(null, null).enqueue(new Callback<List<VehicleSummaryDto>>() {
+    private void fetchVehicles() {
+        if (vehiclesCall != null) vehiclesCall.cancel();
+        String uid = userId;
+        Call<List<VehicleSummaryDto>> request = ApiClient.getServiceLast(requireContext())
+                .create(IVehicleApi.class)
+                .getMyVehicles(null, null, null);
+        vehiclesCall = request;
+
+        db.read(() -> db.vehicles().findAll(uid, VehicleDao.OWN), stored -> {
+            // Skipped once the network list is in
+            if (!isAdded() || getContext() == null || request != vehiclesCall) return;
+            if (!stored.isEmpty()) parkingSessionAdapter.setVehicles(stored);
+        });
+
+        request.enqueue(new Callback<List<VehicleSummaryDto>>() {
             @Override
             public void onResponse(Call<List<VehicleSummaryDto>> call, Response<List<VehicleSummaryDto>> response) {
-                List<VehicleSummaryDto> vehicles = response.isSuccessful() && response.body() != null ? response.body() : new ArrayList<>();
-
-                // Update the adapter with the DTOs directly
-                parkingSessionList = dtoList;
-                parkingSessionAdapter.updateItems(parkingSessionList);
-                parkingSessionAdapter.setVehicles(vehicles);
-
-                // Show/hide empty state based on data
-                if (parkingSessionList.isEmpty()) {
-                    showEmptyState();
-                } else {
-                    hideEmptyState();
+                if (response.isSuccessful() && response.body() != null) {
+                    List<VehicleSummaryDto> vehicles = response.body();
+                    db.write(() -> db.vehicles().replaceAll(uid, VehicleDao.OWN, vehicles));
+                    if (vehiclesCall == call) vehiclesCall = null;
+                    if (!isAdded() || getContext() == null) return;
+                    parkingSessionAdapter.setVehicles(vehicles);
                 }
             }
 
             @Override
             public void onFailure(Call<List<VehicleSummaryDto>> call, Throwable t) {
-                if (!isAdded() || getContext() == null) {
-                    return;
-                }
-                // Update the adapter with the DTOs directly even if vehicle fetch fails
-                parkingSessionList = dtoList;
-                parkingSessionAdapter.updateItems(parkingSessionList);
-                parkingSessionAdapter.setVehicles(new ArrayList<>());
-
-                // Show/hide empty state based on data
-                if (parkingSessionList.isEmpty()) {
-                    showEmptyState();
-                } else {
-                    hideEmptyState();
-                }
+                // Rows fall back to showing the plate only
             }
         });
     }
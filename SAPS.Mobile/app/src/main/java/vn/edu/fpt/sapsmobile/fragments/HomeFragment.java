@@ -32,6 +32,7 @@ import vn.edu.fpt.sapsmobile.activities.NotificationsListActivity;
 import vn.edu.fpt.sapsmobile.adapters.ParkingSessionParkingAdapter;
 import vn.edu.fpt.sapsmobile.models.ParkingSession;
 import vn.edu.fpt.sapsmobile.models.User;
+import vn.edu.fpt.sapsmobile.services.DashboardLoader;
 import vn.edu.fpt.sapsmobile.services.ParkingSessionService;
 import vn.edu.fpt.sapsmobile.utils.TokenManager;
 
@@ -54,7 +55,7 @@ public class HomeFragment extends Fragment implements
     private List<ParkingSession> parkingSessionList;
 
     // Services
-    private ParkingSessionService parkingSessionService;
+    private DashboardLoader dashboardLoader;
     private TokenManager tokenManager;
 
     private final String TAG = "HomeFragment";
@@ -91,7 +92,6 @@ public class HomeFragment extends Fragment implements
 
     private void initializeComponents(View view) {
         tokenManager = new TokenManager(getActivity());
-        parkingSessionService = new ParkingSessionService(requireContext());
     }
 
     private void setupStatusBar() {
@@ -111,7 +111,7 @@ public class HomeFragment extends Fragment implements
         swipeRefreshLayout.setColorSchemeColors(
                 ContextCompat.getColor(getContext(), R.color.md_theme_primary)
         );
-        swipeRefreshLayout.setOnRefreshListener(() -> loadParkingSessionData());
+        swipeRefreshLayout.setOnRefreshListener(() -> loadParkingSessionData(true));
     }
 
     private void setupRecyclerView(View view) {
@@ -167,7 +167,17 @@ public class HomeFragment extends Fragment implements
     // ================ DATA LOADING METHODS ================
 
     private void loadParkingSessionData() {
-        parkingSessionService.fetchOwnedSessions(this, this);
+        loadParkingSessionData(false);
+    }
+
+    private void loadParkingSessionData(boolean refresh) {
+        // Sessions, vehicles and profile are all requested at once; rows update as each lands
+        if (dashboardLoader != null) dashboardLoader.cancel();
+        dashboardLoader = new DashboardLoader(requireContext());
+        dashboardLoader.start(this, this, user -> {
+            if (!isAdded() || getContext() == null) return;
+            setupUserProfile();
+        }, refresh);
     }
 
     // ================ PARKING SESSION SERVICE CALLBACKS ================
@@ -247,6 +257,12 @@ public class HomeFragment extends Fragment implements
         super.onResume();
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (dashboardLoader != null) dashboardLoader.cancel();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -28,7 +28,9 @@ import androidx.appcompat.app.AlertDialog;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
 
+import vn.edu.fpt.sapsmobile.BuildConfig;
 import vn.edu.fpt.sapsmobile.R;
+import vn.edu.fpt.sapsmobile.activities.debug.NetworkMetricsActivity;
 import vn.edu.fpt.sapsmobile.activities.profile.ChangePasswordActivity;
 import vn.edu.fpt.sapsmobile.activities.profile.EditProfileActivity;
 import vn.edu.fpt.sapsmobile.activities.NotificationsListActivity;
@@ -324,6 +326,14 @@ public class ProfileFragment extends Fragment {
         if (showProfileInfoCardView != null) {
             showProfileInfoCardView.setOnClickListener(v -> showBottomSheet());
         }
+
+        // Hidden network metrics screen for debug builds
+        if (BuildConfig.ENABLE_LOGGING && profileName != null) {
+            profileName.setOnLongClickListener(v -> {
+                startActivity(new Intent(getActivity(), NetworkMetricsActivity.class));
+                return true;
+            });
+        }
     }
 
     private void handleLogout() {
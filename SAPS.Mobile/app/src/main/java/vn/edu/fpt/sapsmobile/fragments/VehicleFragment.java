@@ -39,7 +39,6 @@ import vn.edu.fpt.sapsmobile.models.User;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
 import vn.edu.fpt.sapsmobile.services.vehicle.VehicleService;
-import vn.edu.fpt.sapsmobile.utils.JwtUtils;
 import vn.edu.fpt.sapsmobile.utils.LoadingDialog;
 import vn.edu.fpt.sapsmobile.utils.RecyclerUtils;
 import vn.edu.fpt.sapsmobile.utils.TokenManager;
@@ -154,7 +153,8 @@ public class VehicleFragment extends Fragment implements VehicleService.VehicleC
                     ContextCompat.getColor(getContext(), R.color.md_theme_primary)
             );
             swipeRefreshLayout.setOnRefreshListener(() -> {
-                loadInitialData();
+                loadShareCode();
+                refreshCurrentTabData();
             });
         }
     }
@@ -234,8 +234,7 @@ public class VehicleFragment extends Fragment implements VehicleService.VehicleC
 
     private void loadShareCode() {
         if (!isFragmentValid()) return;
-        String token = tokenManager.getAccessToken();
-        String sharecode = JwtUtils.getShareCodeFromToken(token);
+        String sharecode = tokenManager.getShareCode();
         tv_share_code.setText(sharecode);
 //        Log.i(TAG, "loadShareCode: " + token);
     }
@@ -329,19 +328,21 @@ public class VehicleFragment extends Fragment implements VehicleService.VehicleC
         });
     }
 
+    // Pull-to-refresh and after an action: bypass the HTTP cache so the change shows up
     private void refreshCurrentTabData() {
         // Refresh data based on current tab
         if (currentTab == TAB_MY_VEHICLES) {
             showLoadingDialog();
-            vehicleService.loadMyVehicles(this);
+            vehicleService.loadMyVehicles(this, true);
         } else if (currentTab == TAB_SHARED_VEHICLES) {
             User user = tokenManager.getUserData();
             if (user == null || user.getId() == null) {
+                if (swipeRefreshLayout != null) swipeRefreshLayout.setRefreshing(false);
                 showToast("User data not available");
                 return;
             }
             showLoadingDialog();
-            vehicleService.loadSharedVehicles(user.getId(), this);
+            vehicleService.loadSharedVehicles(user.getId(), this, true);
         }
     }
     //endregion
@@ -1,22 +1,45 @@
 package vn.edu.fpt.sapsmobile.network.api;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 import retrofit2.http.Body;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 import vn.edu.fpt.sapsmobile.dtos.payment.PaymentApiResponseDTO;
 import vn.edu.fpt.sapsmobile.dtos.payment.CheckoutRequest;
 import vn.edu.fpt.sapsmobile.dtos.payment.CheckoutResponse;
 import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse;
 import vn.edu.fpt.sapsmobile.dtos.parkingsession.ParkingSessionDetailsResponse;
+import vn.edu.fpt.sapsmobile.network.interceptor.CoalescingInterceptor;
+import vn.edu.fpt.sapsmobile.network.interceptor.RetryInterceptor;
 
 public interface IParkingSessionApiService {
 
 
     @GET("/api/parkingsession/owned/{clientId}")
     Call<OwnedSessionResponse> getOwnedSessions(
+            @Path("clientId") String clientId,
+            @Query("Status") String status,
+            @Query("StartEntryDate") String startEntryDate,
+            @Query("EndEntryDate") String endEntryDate,
+            @Query("StartExitDate") String startExitDate,
+            @Query("EndExitDate") String endExitDate,
+            @Query("Order") String order,
+            @Query("SortBy") String sortBy,
+            @Query("SearchCriteria") String searchCriteria,
+            @Header("Cache-Control") String cacheControl // HttpCacheProvider.NO_CACHE or null
+    );
+
+    // Same endpoint as getOwnedSessions, left unbuffered for JsonListStreamer
+    @Streaming
+    @Headers(CoalescingInterceptor.HEADER_NO_COALESCE)
+    @GET("/api/parkingsession/owned/{clientId}")
+    Call<ResponseBody> streamOwnedSessions(
             @Path("clientId") String clientId,
             @Query("Status") String status,
             @Query("StartEntryDate") String startEntryDate,
@@ -28,8 +51,13 @@ public interface IParkingSessionApiService {
             @Query("SearchCriteria") String searchCriteria
     );
 
+    // Keep the key for the session so a repeated tap is recognised as the same checkout
+    @Headers(RetryInterceptor.HEADER_RETRY_TRANSPORT)
     @POST("/api/parkingsession/check-out")
-    Call<CheckoutResponse> checkout(@Body CheckoutRequest request);
+    Call<CheckoutResponse> checkout(
+            @Header(RetryInterceptor.IDEMPOTENCY_KEY) String idempotencyKey,
+            @Body CheckoutRequest request
+    );
 
     @GET("/api/parkingSession/{sessionId}/payment-info")
     Call<PaymentApiResponseDTO> getPaymentInfo(@Path("sessionId") String sessionId);
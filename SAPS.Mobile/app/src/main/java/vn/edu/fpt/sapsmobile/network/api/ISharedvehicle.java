@@ -4,13 +4,26 @@ import java.util.List;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.Query;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.ShareCodeReturnDto;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
+import vn.edu.fpt.sapsmobile.network.interceptor.CoalescingInterceptor;
 
 public interface ISharedvehicle {
+    @Headers(CoalescingInterceptor.HEADER_MEMO_SHORT)
     @GET("/api/sharedVehicle")
     Call<List<VehicleSummaryDto>> getShareVehicles(
+            @Query("sharedPersonId") String sharedPersonId,
+            @Header("Cache-Control") String cacheControl // HttpCacheProvider.NO_CACHE or null
+    );
+
+    // Same endpoint, answered from the disk cache only (504 when nothing is cached)
+    @Headers(HttpCacheProvider.HEADER_CACHE_ONLY)
+    @GET("/api/sharedVehicle")
+    Call<List<VehicleSummaryDto>> getShareVehiclesCached(
             @Query("sharedPersonId") String sharedPersonId
     );
 
@@ -4,14 +4,28 @@ import java.util.List;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.Query;
 import retrofit2.http.Path;
 import vn.edu.fpt.sapsmobile.models.Vehicle;
 import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
+import vn.edu.fpt.sapsmobile.network.interceptor.CoalescingInterceptor;
 
 public interface IVehicleApi {
+    @Headers(CoalescingInterceptor.HEADER_MEMO_SHORT)
     @GET("/api/vehicle/my-vehicles")
     Call<List<VehicleSummaryDto>> getMyVehicles(
+        @Query("status") String status,
+        @Query("sharingStatus") String sharingStatus,
+        @Header("Cache-Control") String cacheControl // HttpCacheProvider.NO_CACHE or null
+    );
+
+    // Same endpoint, answered from the disk cache only (504 when nothing is cached)
+    @Headers(HttpCacheProvider.HEADER_CACHE_ONLY)
+    @GET("/api/vehicle/my-vehicles")
+    Call<List<VehicleSummaryDto>> getMyVehiclesCached(
         @Query("status") String status,
         @Query("sharingStatus") String sharingStatus
     );
@@ -3,6 +3,7 @@ import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Headers;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
@@ -31,6 +32,7 @@ public interface OcrService {
     @Multipart
     @POST("api/vehicle/register")
     Call<MessageServerResponse> registerVehicle(
+            @Header("Idempotency-Key") String idempotencyKey,
             @Part MultipartBody.Part FrontVehicleRegistrationCertImage,
             @Part MultipartBody.Part BackVehicleRegistrationCertImage,
             @Part("LicensePlate") RequestBody licensePlate,
@@ -46,6 +48,7 @@ public interface OcrService {
     @Multipart
     @PUT("api/client")
     Call<User> updateClientProfile(
+            @Header("Idempotency-Key") String idempotencyKey,
             @Part MultipartBody.Part frontCitizenCardImage,
             @Part MultipartBody.Part backCitizenCardImage,
             @Part("CitizenId") RequestBody citizenId,
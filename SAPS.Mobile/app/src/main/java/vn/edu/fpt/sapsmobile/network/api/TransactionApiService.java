@@ -2,6 +2,8 @@ package vn.edu.fpt.sapsmobile.network.api;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Body;
@@ -9,13 +11,16 @@ import retrofit2.http.Path;
 import vn.edu.fpt.sapsmobile.dtos.payment.PaymentStatusResponseDTO;
 import vn.edu.fpt.sapsmobile.dtos.payment.PaymentCancelRequestDTO;
 import vn.edu.fpt.sapsmobile.models.Transaction;
+import vn.edu.fpt.sapsmobile.network.interceptor.RetryInterceptor;
 
 public interface TransactionApiService {
     @GET("api/parkingsession/payment/{parkingSessionId}/status")
     Call<PaymentStatusResponseDTO> getTransactionPayOs(@Path("parkingSessionId") String parkingSessionId);
 
+    @Headers(RetryInterceptor.HEADER_RETRY_TRANSPORT)
     @PUT("api/parkingsession/payment/{parkingSessionId}/cancel")
     Call<PaymentStatusResponseDTO> cancelPayment(
+            @Header(RetryInterceptor.IDEMPOTENCY_KEY) String idempotencyKey,
             @Path("parkingSessionId") String parkingSessionId,
             @Body PaymentCancelRequestDTO request
     );
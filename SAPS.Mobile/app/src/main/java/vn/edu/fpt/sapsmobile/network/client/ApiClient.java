@@ -6,12 +6,15 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import vn.edu.fpt.sapsmobile.BuildConfig;
+import vn.edu.fpt.sapsmobile.network.interceptor.CachePolicyInterceptor;
+import vn.edu.fpt.sapsmobile.network.interceptor.CoalescingInterceptor;
+import vn.edu.fpt.sapsmobile.network.interceptor.NetworkLoggingInterceptor;
+import vn.edu.fpt.sapsmobile.network.interceptor.OfflineCacheInterceptor;
+import vn.edu.fpt.sapsmobile.network.interceptor.RetryInterceptor;
 import vn.edu.fpt.sapsmobile.network.interceptor.TokenInterceptor;
-import vn.edu.fpt.sapsmobile.network.ssl.SSLHelper;
 
 public class ApiClient {
     private static final String BASE_URL_LAST = BuildConfig.BASE_URL_PROD;
@@ -27,17 +30,15 @@ public class ApiClient {
 
     private static Retrofit createRetrofitInstance(String baseUrl, Context context) {
         try {
-            HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-            logging.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                    .sslSocketFactory(SSLHelper.getSSLContext().getSocketFactory(), SSLHelper.getTrustManager())
-                    .hostnameVerifier((hostname, session) -> true)
-                    .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-                    .writeTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-                    .readTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-                    .addInterceptor(logging)
+            // Derive from the shared core so Retrofit reuses its pool and dispatcher
+            OkHttpClient okHttpClient = HttpClientProvider.getBaseClient().newBuilder()
+                    .cache(HttpCacheProvider.getCache(context))
+                    .addInterceptor(new OfflineCacheInterceptor())
+                    .addInterceptor(new RetryInterceptor()) // before TokenInterceptor: each attempt re-signed
+                    .addInterceptor(NetworkLoggingInterceptor.fromBuildConfig())
                     .addInterceptor(new TokenInterceptor(context, baseUrl)) // Single interceptor handles everything
+                    .addInterceptor(new CoalescingInterceptor()) // after TokenInterceptor: keyed on Authorization
+                    .addNetworkInterceptor(new CachePolicyInterceptor())
                     .build();
 
             Gson gson = new GsonBuilder()
@@ -0,0 +1,47 @@
+package vn.edu.fpt.sapsmobile.network.client;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Per-endpoint freshness rules for the on-disk HTTP cache.
+ * maxAge: how long a response is served without touching the network.
+ * maxStale: how old a cached copy may be when it is used as an offline fallback
+ * or as the "render first" copy before revalidating.
+ */
+public enum CacheRule {
+    // Vehicles rarely change: serve stale, revalidate in the background
+    MY_VEHICLES("/api/vehicle/my-vehicles", 60, 7 * 24 * 60 * 60),
+    SHARED_VEHICLES("/api/sharedvehicle", 60, 7 * 24 * 60 * 60),
+    // Active sessions change at the gate: short TTL
+    OWNED_SESSIONS("/api/parkingsession/owned/", 10, 24 * 60 * 60);
+
+    private final String pathPrefix;
+    private final int maxAgeSeconds;
+    private final int maxStaleSeconds;
+
+    CacheRule(String pathPrefix, int maxAgeSeconds, int maxStaleSeconds) {
+        this.pathPrefix = pathPrefix;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.maxStaleSeconds = maxStaleSeconds;
+    }
+
+    public int getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public int getMaxStaleSeconds() {
+        return maxStaleSeconds;
+    }
+
+    /** Returns the rule for the given url, or null if the endpoint must not be cached. */
+    public static CacheRule forUrl(HttpUrl url) {
+        // Server routes are case-insensitive (/api/sharedVehicle vs /api/sharedvehicle)
+        String path = url.encodedPath().toLowerCase();
+        for (CacheRule rule : values()) {
+            if (path.startsWith(rule.pathPrefix)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package vn.edu.fpt.sapsmobile.network.client;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+
+/**
+ * Owns the bounded on-disk response cache used by the API client.
+ * Conditional requests (If-None-Match / If-Modified-Since) are issued by OkHttp
+ * automatically once a cached entry with an ETag or Last-Modified goes stale.
+ */
+public final class HttpCacheProvider {
+    private static final String TAG = "HttpCacheProvider";
+    private static final String CACHE_DIR = "http_cache";
+    private static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024; // 10 MB
+
+    /** Retrofit header that asks for the cached copy only (504 if there is none). */
+    public static final String HEADER_CACHE_ONLY = "Cache-Control: only-if-cached, max-stale=604800";
+    /** Value for a {@code @Header("Cache-Control")} parameter: revalidate, e.g. on pull-to-refresh. */
+    public static final String NO_CACHE = "no-cache";
+
+    private static volatile Cache cache;
+
+    private HttpCacheProvider() {
+    }
+
+    public static Cache getCache(Context context) {
+        Cache c = cache;
+        if (c == null) {
+            synchronized (HttpCacheProvider.class) {
+                c = cache;
+                if (c == null) {
+                    File dir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+                    c = new Cache(dir, CACHE_SIZE_BYTES);
+                    cache = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Drops the cached copies of every {@link CacheRule} endpoint. Called after a mutation
+     * succeeds: any of those lists may now be out of date, and their max-age would keep
+     * serving the old one.
+     */
+    public static void evictRuleUrls() {
+        Cache c = cache;
+        if (c == null) return;
+        try {
+            for (Iterator<String> urls = c.urls(); urls.hasNext(); ) {
+                HttpUrl url = HttpUrl.parse(urls.next());
+                if (url != null && CacheRule.forUrl(url) != null) urls.remove();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to evict cached lists", e);
+        }
+    }
+
+    /** Drops every cached response, e.g. on logout so the next user never sees them. */
+    public static void evictAll() {
+        Cache c = cache;
+        if (c == null) return;
+        try {
+            c.evictAll();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to clear http cache", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package vn.edu.fpt.sapsmobile.network.client;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import vn.edu.fpt.sapsmobile.BuildConfig;
+import vn.edu.fpt.sapsmobile.network.metrics.MetricsEventListener;
+import vn.edu.fpt.sapsmobile.network.ssl.SSLHelper;
+
+/**
+ * Holds the single process-wide OkHttpClient. Every client in the app (Retrofit,
+ * token refresh, ...) must derive from it with {@code newBuilder()} so they share
+ * one connection pool, one dispatcher and already-negotiated TLS sessions.
+ * Pool and dispatcher limits come from BuildConfig and differ per build type.
+ */
+public final class HttpClientProvider {
+
+    private static volatile OkHttpClient baseClient;
+
+    private HttpClientProvider() {
+    }
+
+    public static OkHttpClient getBaseClient() {
+        OkHttpClient client = baseClient;
+        if (client == null) {
+            synchronized (HttpClientProvider.class) {
+                client = baseClient;
+                if (client == null) {
+                    client = createBaseClient();
+                    baseClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private static OkHttpClient createBaseClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(BuildConfig.HTTP_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(BuildConfig.HTTP_MAX_REQUESTS_PER_HOST);
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                BuildConfig.HTTP_MAX_IDLE_CONNECTIONS,
+                BuildConfig.HTTP_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS);
+
+        return new OkHttpClient.Builder()
+                .sslSocketFactory(SSLHelper.getSSLContext().getSocketFactory(), SSLHelper.getTrustManager())
+                .hostnameVerifier((hostname, session) -> true)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)) // prefer h2 multiplexing
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .retryOnConnectionFailure(true)
+                .eventListenerFactory(MetricsEventListener.FACTORY)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package vn.edu.fpt.sapsmobile.network.client;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import vn.edu.fpt.sapsmobile.utils.SessionStore;
+
+/**
+ * Reads a JSON list straight off the response stream with {@link JsonReader} and hands
+ * items to the main thread in small batches while the body is still downloading.
+ * Only the current batch is held here, so memory does not grow with the response size.
+ *
+ * Works with a bare array ({@code [...]}) or an envelope ({@code {"data": [...]}}) where
+ * the array sits under {@code arrayField}; other envelope fields are skipped.
+ * The call must be declared {@code @Streaming Call<ResponseBody>} or Retrofit will buffer it.
+ */
+public final class JsonListStreamer<T> {
+    private static final String TAG = "JsonListStreamer";
+    private static final int FIRST_BATCH_SIZE = 10; // small, so the first rows paint early
+    private static final int BATCH_SIZE = 50;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "json-list-stream");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    public interface Listener<T> {
+        /** Next items in document order. Called on the main thread. */
+        void onItems(List<T> items);
+
+        /** Stream finished; {@code total} is the number of items delivered. */
+        void onComplete(int total);
+
+        void onError(Throwable t);
+    }
+
+    private final Call<ResponseBody> call;
+    private final TypeAdapter<T> adapter;
+    private final String arrayField;
+    private final Listener<T> listener;
+    private volatile boolean cancelled;
+
+    private JsonListStreamer(Call<ResponseBody> call, Class<T> type, String arrayField, Listener<T> listener) {
+        this.call = call;
+        this.adapter = SessionStore.gson().getAdapter(type);
+        this.arrayField = arrayField;
+        this.listener = listener;
+    }
+
+    public static <T> JsonListStreamer<T> start(Call<ResponseBody> call, Class<T> type,
+                                                String arrayField, Listener<T> listener) {
+        JsonListStreamer<T> streamer = new JsonListStreamer<>(call, type, arrayField, listener);
+        EXECUTOR.execute(streamer::run);
+        return streamer;
+    }
+
+    /** Stops reading and drops any batch not yet delivered. */
+    public void cancel() {
+        cancelled = true;
+        call.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void run() {
+        try {
+            Response<ResponseBody> response = call.execute();
+            if (!response.isSuccessful()) {
+                throw new HttpException(response);
+            }
+            ResponseBody body = response.body();
+            int total = 0;
+            if (body != null) {
+                try (JsonReader reader = new JsonReader(body.charStream())) {
+                    total = readDocument(reader);
+                }
+            }
+            final int delivered = total;
+            post(() -> listener.onComplete(delivered));
+        } catch (Throwable t) {
+            if (cancelled) return;
+            Log.w(TAG, "Stream failed: " + t.getMessage());
+            post(() -> listener.onError(t));
+        }
+    }
+
+    private int readDocument(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            return readArray(reader);
+        }
+        if (token != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return 0;
+        }
+        int total = 0;
+        reader.beginObject();
+        while (reader.hasNext() && !cancelled) {
+            String name = reader.nextName();
+            if (name.equals(arrayField) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                total += readArray(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        // leave the rest unread if cancelled; closing the reader releases the connection
+        return total;
+    }
+
+    private int readArray(JsonReader reader) throws IOException {
+        int total = 0;
+        int batchSize = FIRST_BATCH_SIZE;
+        List<T> batch = new ArrayList<>(batchSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (cancelled) return total;
+            T item = adapter.read(reader);
+            if (item == null) continue;
+            batch.add(item);
+            if (batch.size() >= batchSize) {
+                deliver(batch);
+                total += batch.size();
+                batchSize = BATCH_SIZE;
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        reader.endArray();
+        if (!batch.isEmpty()) {
+            deliver(batch);
+            total += batch.size();
+        }
+        return total;
+    }
+
+    private void deliver(List<T> batch) {
+        post(() -> listener.onItems(batch));
+    }
+
+    private void post(Runnable action) {
+        MAIN.post(() -> {
+            if (!cancelled) action.run();
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package vn.edu.fpt.sapsmobile.network.client;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request body that streams a file in segments instead of holding it as a byte array,
+ * so a retry or a second upload of the same image reads the file again rather than
+ * keeping it in the heap. Bytes written are reported through an optional {@link Progress}
+ * that can be shared by every file part of one multipart request.
+ */
+public class UploadRequestBody extends RequestBody {
+    private static final long SEGMENT = 8 * 1024;
+    private static final MediaType JPEG = MediaType.parse("image/jpeg");
+
+    public interface Listener {
+        /** Main thread; {@code percent} only moves forward. */
+        void onProgress(int percent);
+    }
+
+    /** Aggregates the bytes of several bodies into one percentage. */
+    public static final class Progress {
+        private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+        private final Listener listener;
+        private long total;
+        private long written;
+        private int lastPercent = -1;
+
+        public Progress(@NonNull Listener listener) {
+            this.listener = listener;
+        }
+
+        void expect(long bytes) {
+            synchronized (this) {
+                total += bytes;
+            }
+        }
+
+        void advance(long bytes) {
+            int percent;
+            synchronized (this) {
+                // A retried body is counted again; clamp rather than go past 100
+                written = Math.min(total, written + bytes);
+                percent = total == 0 ? 100 : (int) (written * 100 / total);
+                if (percent <= lastPercent) return;
+                lastPercent = percent;
+            }
+            MAIN.post(() -> listener.onProgress(percent));
+        }
+    }
+
+    private final File file;
+    private final MediaType contentType;
+    @Nullable private final Progress progress;
+
+    public UploadRequestBody(File file, MediaType contentType, @Nullable Progress progress) {
+        this.file = file;
+        this.contentType = contentType;
+        this.progress = progress;
+        if (progress != null) progress.expect(file.length());
+    }
+
+    public static UploadRequestBody jpeg(File file, @Nullable Progress progress) {
+        return new UploadRequestBody(file, JPEG, progress);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return file.length();
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        try (Source source = Okio.source(file)) {
+            long read;
+            while ((read = source.read(sink.getBuffer(), SEGMENT)) != -1) {
+                sink.flush();
+                if (progress != null) progress.advance(read);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import vn.edu.fpt.sapsmobile.network.client.CacheRule;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
+
+/**
+ * Network interceptor: the API does not send cache headers, so stamp the
+ * per-endpoint max-age from {@link CacheRule} on successful GET responses.
+ * Validators (ETag / Last-Modified) from the server are left untouched.
+ * A successful mutation (share, recall, register, checkout, ...) evicts the cached
+ * lists, so the refresh that follows it goes to the network.
+ */
+public class CachePolicyInterceptor implements Interceptor {
+
+    @NonNull
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!response.isSuccessful()) {
+            return response;
+        }
+        if (!"GET".equals(request.method())) {
+            HttpCacheProvider.evictRuleUrls();
+            return response;
+        }
+        CacheRule rule = CacheRule.forUrl(request.url());
+        if (rule == null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "private, max-age=" + rule.getMaxAgeSeconds())
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Application interceptor that lets identical GETs running at the same time share one
+ * network call. The first caller (leader) goes to the network; the others wait and get
+ * their own copy of the leader's response bytes. Requests are identical when URL
+ * (path + query, i.e. method arguments), Authorization and Cache-Control all match.
+ *
+ * Endpoints can also opt into a short memo window with {@link #HEADER_MEMO_SHORT}:
+ * a successful response is then replayed to identical GETs for that long. Any
+ * non-GET request clears the memo, since it may have changed what those GETs return.
+ *
+ * Must sit after {@link TokenInterceptor} so the Authorization header is part of the key.
+ */
+public class CoalescingInterceptor implements Interceptor {
+    private static final String TAG = "CoalescingInterceptor";
+
+    public static final String MEMO_HEADER = "X-Memo-Millis";
+    public static final String HEADER_MEMO_SHORT = MEMO_HEADER + ": 2000";
+    public static final String NO_COALESCE_HEADER = "X-No-Coalesce";
+    /** For @Streaming endpoints, whose body must not be buffered. */
+    public static final String HEADER_NO_COALESCE = NO_COALESCE_HEADER + ": true";
+
+    // Larger bodies are handed to the leader untouched and followers fetch their own
+    private static final long MAX_SHARED_BODY_BYTES = 512 * 1024;
+    private static final long CANCEL_POLL_MILLIS = 100;
+
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Shared> memo = new ConcurrentHashMap<>();
+
+    /** A finished response that can be replayed to several callers. */
+    private static final class Shared {
+        final Response template; // without body
+        final byte[] body;
+        final MediaType contentType;
+        final long expiresAt;
+
+        Shared(Response template, byte[] body, MediaType contentType, long expiresAt) {
+            this.template = template;
+            this.body = body;
+            this.contentType = contentType;
+            this.expiresAt = expiresAt;
+        }
+
+        Response toResponse(Request request) {
+            return template.newBuilder()
+                    .request(request)
+                    .body(ResponseBody.create(body, contentType))
+                    .build();
+        }
+    }
+
+    private static final class InFlight {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Shared result; // null if the leader failed or the body was not shareable
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String memoHeader = request.header(MEMO_HEADER);
+        boolean optedOut = request.header(NO_COALESCE_HEADER) != null;
+        if (memoHeader != null || optedOut) {
+            request = request.newBuilder()
+                    .removeHeader(MEMO_HEADER)
+                    .removeHeader(NO_COALESCE_HEADER)
+                    .build();
+        }
+
+        if (!"GET".equals(request.method())) {
+            memo.clear();
+            return chain.proceed(request);
+        }
+        if (optedOut) {
+            return chain.proceed(request);
+        }
+
+        String key = keyOf(request);
+        Shared memoized = memo.get(key);
+        if (memoized != null) {
+            if (System.currentTimeMillis() < memoized.expiresAt) {
+                return memoized.toResponse(request);
+            }
+            memo.remove(key, memoized);
+        }
+
+        InFlight mine = new InFlight();
+        InFlight leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            Shared shared = awaitLeader(chain, leader);
+            if (shared != null) {
+                return shared.toResponse(request);
+            }
+            // Leader failed or was cancelled: this caller should not inherit that
+            return chain.proceed(request);
+        }
+
+        try {
+            Response response = chain.proceed(request);
+            Shared shared = share(response, parseMemoMillis(memoHeader));
+            if (shared == null) {
+                return response;
+            }
+            mine.result = shared;
+            if (shared.expiresAt > 0) {
+                memo.put(key, shared);
+            }
+            return shared.toResponse(request);
+        } finally {
+            inFlight.remove(key, mine);
+            mine.done.countDown();
+        }
+    }
+
+    private static String keyOf(Request request) {
+        return request.url() + "|" + request.header("Authorization") + "|" + request.header("Cache-Control");
+    }
+
+    private static Shared awaitLeader(Chain chain, InFlight leader) throws IOException {
+        try {
+            // OkHttp cancellation does not interrupt, so poll for it
+            while (!leader.done.await(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (chain.call().isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a coalesced request", e);
+        }
+        return leader.result;
+    }
+
+    /** Buffers the body if it is small enough; returns null (body untouched) otherwise. */
+    private static Shared share(Response response, long memoMillis) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) return null;
+        long length = body.contentLength();
+        if (length > MAX_SHARED_BODY_BYTES) return null;
+        if (length < 0) {
+            BufferedSource source = body.source();
+            if (source.request(MAX_SHARED_BODY_BYTES + 1)) return null; // peeked bytes stay readable
+        }
+        MediaType contentType = body.contentType();
+        byte[] bytes = body.bytes();
+        long expiresAt = memoMillis > 0 && response.isSuccessful()
+                ? System.currentTimeMillis() + memoMillis
+                : 0;
+        return new Shared(response.newBuilder().body(null).build(), bytes, contentType, expiresAt);
+    }
+
+    private static long parseMemoMillis(String header) {
+        if (header == null) return 0;
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Ignoring bad " + MEMO_HEADER + ": " + header);
+            return 0;
+        }
+    }
+}
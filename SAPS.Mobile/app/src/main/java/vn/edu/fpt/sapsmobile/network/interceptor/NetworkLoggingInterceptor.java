@@ -0,0 +1,159 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import vn.edu.fpt.sapsmobile.BuildConfig;
+import vn.edu.fpt.sapsmobile.utils.LogRingBuffer;
+
+/**
+ * Replacement for HttpLoggingInterceptor at BODY level. Writes to {@link LogRingBuffer}
+ * instead of logcat directly, redacts credentials, and only logs bodies that are
+ * small, textual and picked by the sample rate. Disabled when ENABLE_LOGGING is false.
+ */
+public class NetworkLoggingInterceptor implements Interceptor {
+    private static final String TAG = "HTTP";
+    private static final long MAX_LOGGED_BODY_BYTES = 4 * 1024;
+    private static final String REDACTED = "██";
+    private static final Pattern SECRET_JSON_FIELDS = Pattern.compile(
+            "(\"(?:accessToken|refreshToken|idToken|token|password|newPassword|oldPassword)\"\\s*:\\s*)\"[^\"]*\"",
+            Pattern.CASE_INSENSITIVE);
+
+    public enum Mode {
+        NONE,
+        HEADERS,
+        SAMPLED_BODY
+    }
+
+    private final Mode mode;
+    private final int bodySamplePercent;
+    private final LogRingBuffer sink = LogRingBuffer.getInstance();
+
+    public NetworkLoggingInterceptor(Mode mode, int bodySamplePercent) {
+        this.mode = mode;
+        this.bodySamplePercent = bodySamplePercent;
+    }
+
+    /** Mode and sample rate as configured for the current build type. */
+    public static NetworkLoggingInterceptor fromBuildConfig() {
+        if (!BuildConfig.ENABLE_LOGGING) {
+            return new NetworkLoggingInterceptor(Mode.NONE, 0);
+        }
+        return new NetworkLoggingInterceptor(
+                Mode.valueOf(BuildConfig.HTTP_LOG_MODE), BuildConfig.HTTP_LOG_BODY_SAMPLE_PERCENT);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (mode == Mode.NONE) {
+            return chain.proceed(request);
+        }
+
+        boolean logBodies = mode == Mode.SAMPLED_BODY
+                && ThreadLocalRandom.current().nextInt(100) < bodySamplePercent;
+
+        StringBuilder out = new StringBuilder()
+                .append("--> ").append(request.method()).append(' ').append(request.url());
+        appendHeaders(out, request.headers());
+        if (logBodies) {
+            appendRequestBody(out, request.body());
+        }
+        sink.add(TAG, out.toString());
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            sink.add(TAG, "<-- HTTP FAILED " + request.url() + ": " + e);
+            throw e;
+        }
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        out.setLength(0);
+        out.append("<-- ").append(response.code()).append(' ').append(request.url())
+                .append(" (").append(tookMs).append("ms)");
+        appendHeaders(out, response.headers());
+        if (logBodies) {
+            appendResponseBody(out, response);
+        }
+        sink.add(TAG, out.toString());
+        return response;
+    }
+
+    private void appendHeaders(StringBuilder out, Headers headers) {
+        for (int i = 0; i < headers.size(); i++) {
+            String name = headers.name(i);
+            out.append('\n').append(name).append(": ")
+                    .append(isSecretHeader(name) ? REDACTED : headers.value(i));
+        }
+    }
+
+    private void appendRequestBody(StringBuilder out, RequestBody body) throws IOException {
+        if (body == null) return;
+        long length = body.contentLength();
+        if (!isText(body.contentType()) || length < 0 || length > MAX_LOGGED_BODY_BYTES) {
+            out.append("\n(body omitted: ").append(body.contentType()).append(", ").append(length).append(" bytes)");
+            return;
+        }
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        out.append('\n').append(redact(buffer.readString(charsetOf(body.contentType()))));
+    }
+
+    private void appendResponseBody(StringBuilder out, Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) return;
+        long length = body.contentLength();
+        if (!isText(body.contentType()) || length > MAX_LOGGED_BODY_BYTES) {
+            out.append("\n(body omitted: ").append(body.contentType()).append(", ").append(length).append(" bytes)");
+            return;
+        }
+        // peekBody leaves the real body untouched for Retrofit
+        String text = response.peekBody(MAX_LOGGED_BODY_BYTES).string();
+        out.append('\n').append(redact(text));
+        if (length < 0 || length > text.length()) {
+            out.append(" …");
+        }
+    }
+
+    private static boolean isSecretHeader(String name) {
+        return "Authorization".equalsIgnoreCase(name)
+                || "Proxy-Authorization".equalsIgnoreCase(name)
+                || "Cookie".equalsIgnoreCase(name)
+                || "Set-Cookie".equalsIgnoreCase(name);
+    }
+
+    private static boolean isText(MediaType type) {
+        if (type == null) return false;
+        String subtype = type.subtype().toLowerCase();
+        return "text".equals(type.type())
+                || subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("x-www-form-urlencoded") || subtype.equals("xml");
+    }
+
+    private static Charset charsetOf(MediaType type) {
+        Charset charset = type != null ? type.charset(StandardCharsets.UTF_8) : null;
+        return charset != null ? charset : StandardCharsets.UTF_8;
+    }
+
+    static String redact(String text) {
+        return SECRET_JSON_FIELDS.matcher(text).replaceAll("$1\"" + REDACTED + "\"");
+    }
+}
@@ -0,0 +1,50 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import vn.edu.fpt.sapsmobile.network.client.CacheRule;
+
+/**
+ * Application interceptor: when a cacheable GET fails at the transport level
+ * (no signal in the garage, connection reset, ...) answer it from the disk cache
+ * as long as the cached copy is within the endpoint's max-stale window.
+ */
+public class OfflineCacheInterceptor implements Interceptor {
+    private static final String TAG = "OfflineCacheInterceptor";
+
+    @NonNull
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        CacheRule rule = "GET".equals(request.method()) ? CacheRule.forUrl(request.url()) : null;
+        if (rule == null || request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+
+        try {
+            return chain.proceed(request);
+        } catch (IOException networkError) {
+            Request cachedRequest = request.newBuilder()
+                    .cacheControl(new CacheControl.Builder()
+                            .onlyIfCached()
+                            .maxStale(rule.getMaxStaleSeconds(), java.util.concurrent.TimeUnit.SECONDS)
+                            .build())
+                    .build();
+            Response cached = chain.proceed(cachedRequest);
+            if (cached.code() == 504) { // nothing usable in cache
+                cached.close();
+                throw networkError;
+            }
+            Log.i(TAG, "Served from cache while offline: " + request.url().encodedPath());
+            return cached;
+        }
+    }
+}
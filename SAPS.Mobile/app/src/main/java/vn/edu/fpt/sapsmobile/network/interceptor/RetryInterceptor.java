@@ -0,0 +1,102 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Application interceptor that resends a request after a transport failure (timeout,
+ * connection reset, DNS, ...), a few times with jittered exponential backoff. HTTP
+ * responses, errors included, are returned as they are.
+ *
+ * Opt-in per endpoint with {@link #HEADER_RETRY_TRANSPORT}. A failure can happen after
+ * the server applied the request, and SAPS.Api does not deduplicate on
+ * {@link #IDEMPOTENCY_KEY}, so a resend may be applied a second time. A mutation is only
+ * resent when it carries the key, which marks a caller that treats the "already done"
+ * answer to a resend as success (checkout: PARKING_SESSION_ALREADY_CHECKED_OUT; payment
+ * cancel: the status turns out CANCELLED); without one it fails as before.
+ *
+ * Must sit before {@link TokenInterceptor} so every attempt gets a current token.
+ */
+public class RetryInterceptor implements Interceptor {
+    private static final String TAG = "RetryInterceptor";
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String RETRY_HEADER = "X-Retry-Transport";
+    public static final String HEADER_RETRY_TRANSPORT = RETRY_HEADER + ": 3";
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_DELAY_MS = 300;
+    private static final long MAX_DELAY_MS = 3_000;
+
+    @NonNull
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String retries = request.header(RETRY_HEADER);
+        if (retries == null) {
+            return chain.proceed(request);
+        }
+        request = request.newBuilder().removeHeader(RETRY_HEADER).build();
+
+        boolean safe = "GET".equals(request.method()) || request.header(IDEMPOTENCY_KEY) != null;
+        if (!safe || (request.body() != null && request.body().isOneShot())) {
+            Log.w(TAG, "Not retrying " + request.method() + " " + request.url().encodedPath()
+                    + ": no idempotency key or one-shot body");
+            return chain.proceed(request);
+        }
+
+        int maxAttempts = Math.min(MAX_ATTEMPTS, 1 + parseRetries(retries));
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return chain.proceed(request);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !isRetryable(chain, e)) throw e;
+                long delay = delayFor(attempt);
+                Log.w(TAG, request.url().encodedPath() + " attempt " + attempt + " failed (" + e.getMessage()
+                        + "), retrying in " + delay + " ms");
+                sleep(delay, e);
+            }
+        }
+    }
+
+    private static boolean isRetryable(Chain chain, IOException e) {
+        if (chain.call().isCanceled()) return false;
+        // A plain InterruptedIOException is the whole-call timeout running out; socket
+        // timeouts are per attempt and worth another try
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    private static int parseRetries(String value) {
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Jittered between a quarter of the exponential ceiling and the ceiling, so clients
+    // that lost the same gateway connection do not all come back at once
+    private static long delayFor(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt - 1, 10));
+        return ThreadLocalRandom.current().nextLong(ceiling / 4, ceiling + 1);
+    }
+
+    private static void sleep(long millis, IOException cause) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw cause; // call cancelled while waiting
+        }
+    }
+}
@@ -18,12 +18,16 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import vn.edu.fpt.sapsmobile.BuildConfig;
 import vn.edu.fpt.sapsmobile.activities.auth.LoginActivity;
 import vn.edu.fpt.sapsmobile.dtos.auth.AuthenticateUserResponse;
 import vn.edu.fpt.sapsmobile.dtos.auth.RefreshTokenRequest;
-import vn.edu.fpt.sapsmobile.network.ssl.SSLHelper;
+import vn.edu.fpt.sapsmobile.network.client.HttpClientProvider;
+import vn.edu.fpt.sapsmobile.services.SessionTeardown;
 import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
 import vn.edu.fpt.sapsmobile.utils.JwtUtils;
+import vn.edu.fpt.sapsmobile.utils.LogRingBuffer;
+import vn.edu.fpt.sapsmobile.utils.SessionStore;
 import vn.edu.fpt.sapsmobile.utils.TokenManager;
 
 public class TokenInterceptor implements Interceptor {
@@ -32,18 +36,23 @@ public class TokenInterceptor implements Interceptor {
     private final String baseUrl;
     private final TokenManager tokenManager;
     private final Gson gson;
+    private final OkHttpClient refreshClient;
     private final String TAG = "TokenInterceptor";
 
-    // Synchronization objects
-    private final Object refreshLock = new Object();
-    private volatile boolean isRefreshing = false;
-    private volatile String refreshingToken = null; // Track which token is being refreshed
+    private final TokenRefreshCoordinator refreshCoordinator;
+    private final TokenRenewalScheduler renewalScheduler = TokenRenewalScheduler.getInstance();
 
     public TokenInterceptor(Context context, String baseUrl) {
         this.context = context;
         this.baseUrl = baseUrl;
         this.tokenManager = new TokenManager(context);
-        this.gson = new Gson();
+        this.gson = SessionStore.gson();
+        // Shares the connection pool with the main client (no interceptors, avoids recursion)
+        this.refreshClient = HttpClientProvider.getBaseClient().newBuilder().build();
+        this.refreshCoordinator = new TokenRefreshCoordinator(
+                tokenManager, this::tryRefreshToken, LEEWAY_SECONDS * 1000L);
+        renewalScheduler.attach(refreshCoordinator);
+        renewalScheduler.schedule(tokenManager.getAccessToken());
     }
 
     @NonNull
@@ -53,81 +62,46 @@ public class TokenInterceptor implements Interceptor {
         String accessToken = tokenManager.getAccessToken();
 
         if (accessToken != null) {
+            // Renew before sending instead of paying for a 401 round trip
+            if (refreshCoordinator.shouldRefreshProactively(accessToken)) {
+                String renewed = refreshCoordinator.refreshProactively(accessToken);
+                if (renewed != null && !renewed.equals(accessToken)) {
+                    accessToken = renewed;
+                    renewalScheduler.recordInlineRenewal();
+                }
+            }
+            renewalScheduler.recordRequest(accessToken);
+
             // Add token to request if available
             Request requestWithToken = addTokenToRequest(originalRequest, accessToken);
             Response response = chain.proceed(requestWithToken);
 
-            try {
-                String expiredAt = JwtUtils.getExpired(accessToken);
-                ZonedDateTime expireAtUTC7 = DateTimeHelper.changeToUCT7Flexible(expiredAt);
-                Log.i(TAG, "intercept: expired at " + expireAtUTC7);
-            } catch (Exception e) {
-                Log.w(TAG, "Failed to parse token expiration", e);
+            if (BuildConfig.ENABLE_LOGGING) {
+                try {
+                    String expiredAt = JwtUtils.getExpired(accessToken);
+                    ZonedDateTime expireAtUTC7 = DateTimeHelper.changeToUCT7Flexible(expiredAt);
+                    LogRingBuffer.getInstance().add(TAG, "intercept: expired at " + expireAtUTC7);
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to parse token expiration", e);
+                }
             }
 
-            // Handle 401 - try refresh token once with synchronization
+            // Handle 401 - refresh once (shared by all concurrent callers) and retry
             if (response.code() == 401) {
                 HttpUrl url = originalRequest.url();
                 Log.w(TAG, "Request returned 401: " + url);
                 response.close(); // Close the original response
 
-                String refreshToken = tokenManager.getRefreshToken();
-                if (refreshToken != null) {
-                    // Use synchronized block to prevent concurrent refresh attempts
-                    synchronized (refreshLock) {
-                        if (isRefreshing && refreshToken.equals(refreshingToken)) {
-                            Log.i(TAG, "Already refreshing token, waiting...");
-                            try {
-                                // Wait for the ongoing refresh to complete
-                                refreshLock.wait(30000); // 30 second timeout
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                Log.w(TAG, "Thread interrupted while waiting for token refresh");
-                                return createUnauthorizedResponse(originalRequest);
-                            }
-                        }
-
-                        // Check if token was refreshed while waiting
-                        String currentAccessToken = tokenManager.getAccessToken();
-                        if (currentAccessToken != null && !currentAccessToken.equals(accessToken)) {
-                            Log.i(TAG, "Token was refreshed by another thread, retrying request");
-                            Request retryRequest = addTokenToRequest(originalRequest, currentAccessToken);
-                            return chain.proceed(retryRequest);
-                        }
-
-                        // Check if we should attempt refresh
-                        String currentRefreshToken = tokenManager.getRefreshToken();
-                        if (currentRefreshToken != null && !isRefreshing) {
-                            isRefreshing = true;
-                            refreshingToken = currentRefreshToken;
-
-                            try {
-                                if (tryRefreshToken(currentRefreshToken, accessToken)) {
-                                    // Refresh successful, retry with new token
-                                    String newAccessToken = tokenManager.getAccessToken();
-                                    Request retryRequest = addTokenToRequest(originalRequest, newAccessToken);
-                                    return chain.proceed(retryRequest);
-                                } else {
-                                    // Refresh failed, redirect to login
-                                    redirectToLogin();
-                                    return createUnauthorizedResponse(originalRequest);
-                                }
-                            } finally {
-                                isRefreshing = false;
-                                refreshingToken = null;
-                                refreshLock.notifyAll(); // Wake up waiting threads
-                            }
-                        } else {
-                            // No refresh token or already refreshing, redirect to login
-                            redirectToLogin();
-                            return createUnauthorizedResponse(originalRequest);
-                        }
-                    }
-                } else {
-                    // No refresh token, redirect to login
-                    redirectToLogin();
-                    return createUnauthorizedResponse(originalRequest);
+                renewalScheduler.recordReactiveRefresh();
+                String newAccessToken = refreshCoordinator.refresh(accessToken);
+                if (newAccessToken != null) {
+                    Request retryRequest = addTokenToRequest(originalRequest, newAccessToken);
+                    return chain.proceed(retryRequest);
                 }
+
+                // Refresh failed or no refresh token, redirect to login
+                redirectToLogin();
+                return createUnauthorizedResponse(originalRequest);
             }
 
             return response; // Return the original response if no 401
@@ -141,24 +115,15 @@ public class TokenInterceptor implements Interceptor {
 
     private Request addTokenToRequest(Request request, String accessToken) {
         if (accessToken != null && !JwtUtils.isExpired(accessToken, LEEWAY_SECONDS)) {
-            String cleanToken = accessToken.replaceFirst("(?i)^Bearer\\s+", "");
             return request.newBuilder()
-                    .header("Authorization", "Bearer " + cleanToken)
+                    .header("Authorization", JwtUtils.toBearer(accessToken))
                     .build();
         }
         return request;
     }
 
-    private boolean tryRefreshToken(String refreshToken, String accessToken) {
+    private String tryRefreshToken(String refreshToken, String accessToken) {
         try {
-            OkHttpClient refreshClient = new OkHttpClient.Builder()
-                    .sslSocketFactory(SSLHelper.getSSLContext().getSocketFactory(), SSLHelper.getTrustManager())
-                    .hostnameVerifier((hostname, session) -> true)
-                    .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-                    .writeTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-                    .readTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-                    .build();
-
             String json = gson.toJson(new RefreshTokenRequest(refreshToken));
             RequestBody body = RequestBody.create(MediaType.parse("application/json; charset=utf-8"), json);
 
@@ -169,42 +134,40 @@ public class TokenInterceptor implements Interceptor {
 
             // Add access token to header if available and not expired
             if (accessToken != null) {
-                String cleanToken = accessToken.replaceFirst("(?i)^Bearer\\s+", "");
-                String bearerToken = "Bearer " + cleanToken;
-                Log.i(TAG, "bearer: " + bearerToken );
+                String bearerToken = JwtUtils.toBearer(accessToken);
                 requestBuilder.header("Authorization", bearerToken);
             } else {
-                return false;
+                return null;
             }
 
             Request refreshRequest = requestBuilder.build();
 
-            Log.i(TAG, "tryRefreshToken: " + refreshToken);
-            Log.i(TAG, "tryHeaderToken: " + refreshRequest.header("Authorization"));
+            Log.i(TAG, "tryRefreshToken: refreshing access token");
 
             try (Response refreshResponse = refreshClient.newCall(refreshRequest).execute()) {
                 if (refreshResponse.isSuccessful() && refreshResponse.body() != null) {
                     String responseBody = refreshResponse.body().string();
                     AuthenticateUserResponse authenticateUserResponse = gson.fromJson(responseBody, AuthenticateUserResponse.class);
                     if (authenticateUserResponse != null && authenticateUserResponse.getAccessToken() != null) {
-                        Log.i(TAG, "get new refreshToken: " + authenticateUserResponse.getRefreshToken());
+                        Log.i(TAG, "tryRefreshToken: received new token pair");
 
                         tokenManager.saveTokens(authenticateUserResponse.getAccessToken(), authenticateUserResponse.getRefreshToken());
-                        return true;
+                        return authenticateUserResponse.getAccessToken();
                     }
                 } else {
-                    Log.i(TAG, "ErrorResult:tryRefreshToken " + refreshResponse.code() + " - " +
-                            (refreshResponse.body() != null ? refreshResponse.body().string() : "No body"));
+                    Log.i(TAG, "ErrorResult:tryRefreshToken " + refreshResponse.code());
                 }
             }
         } catch (Exception e) {
             Log.e(TAG, "Error in tryRefreshToken", e);
         }
-        return false;
+        return null;
     }
 
     private void redirectToLogin() {
-        tokenManager.clearTokens();
+        // Only the first failing caller redirects; the others find the tokens already cleared
+        if (tokenManager.getAccessToken() == null) return;
+        SessionTeardown.run(context, "token refresh failed");
         Intent loginIntent = new Intent(context, LoginActivity.class);
         loginIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         context.startActivity(loginIntent);
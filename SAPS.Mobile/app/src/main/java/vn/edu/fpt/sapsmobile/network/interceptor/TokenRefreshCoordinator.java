@@ -0,0 +1,143 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import vn.edu.fpt.sapsmobile.utils.JwtUtils;
+import vn.edu.fpt.sapsmobile.utils.TokenManager;
+
+/**
+ * Single-flight token refresh. The first caller that needs a new access token
+ * runs the refresh; every concurrent caller joins the same future instead of
+ * parking on a monitor, so dispatcher threads are only blocked as long as the
+ * one refresh call actually takes.
+ *
+ * A proactive refresh (token still valid, but close to expiry) that fails is not
+ * tried again before a backoff of {@link #PROACTIVE_BACKOFF_MS}, doubling up to
+ * {@link #MAX_PROACTIVE_BACKOFF_MS}; requests go out with the current token meanwhile
+ * and a 401 still refreshes right away.
+ */
+public class TokenRefreshCoordinator {
+    private static final String TAG = "TokenRefreshCoordinator";
+    private static final long JOIN_TIMEOUT_SECONDS = 30;
+    static final long PROACTIVE_BACKOFF_MS = 5_000;
+    static final long MAX_PROACTIVE_BACKOFF_MS = 60_000;
+
+    /** Performs the refresh call and persists the result; returns the new access token or null. */
+    public interface Refresher {
+        String refresh(String refreshToken, String staleAccessToken);
+    }
+
+    private final TokenManager tokenManager;
+    private final Refresher refresher;
+    private final long proactiveLeewayMillis;
+    private final LongSupplier clock;
+    private final AtomicReference<CompletableFuture<String>> inFlight = new AtomicReference<>();
+
+    // Guarded by this
+    private int proactiveFailures;
+    private long proactiveRetryAt;
+
+    public TokenRefreshCoordinator(TokenManager tokenManager, Refresher refresher, long proactiveLeewayMillis) {
+        this(tokenManager, refresher, proactiveLeewayMillis, System::currentTimeMillis);
+    }
+
+    // Tests drive the backoff with their own clock
+    TokenRefreshCoordinator(TokenManager tokenManager, Refresher refresher, long proactiveLeewayMillis,
+                            LongSupplier clock) {
+        this.tokenManager = tokenManager;
+        this.refresher = refresher;
+        this.proactiveLeewayMillis = proactiveLeewayMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * True when the token is close enough to expiry that it should be renewed before use.
+     * False for a token without exp (nothing to renew ahead of) and while backing off
+     * after a failed proactive refresh.
+     */
+    public boolean shouldRefreshProactively(String accessToken) {
+        if (accessToken == null) return false;
+        long untilExpiry = JwtUtils.millisUntilExpiry(accessToken);
+        if (untilExpiry == JwtUtils.UNKNOWN_EXPIRY || untilExpiry >= proactiveLeewayMillis) return false;
+        synchronized (this) {
+            return clock.getAsLong() >= proactiveRetryAt;
+        }
+    }
+
+    /** {@link #refresh} for a token that is still usable; a failure starts the backoff. */
+    public String refreshProactively(String accessToken) {
+        String result = refresh(accessToken);
+        long now = clock.getAsLong();
+        synchronized (this) {
+            if (result != null) {
+                proactiveFailures = 0;
+                proactiveRetryAt = 0;
+            } else if (now >= proactiveRetryAt) {
+                // Callers that shared the failed flight only count once
+                proactiveFailures++;
+                long backoff = PROACTIVE_BACKOFF_MS << Math.min(proactiveFailures - 1, 10);
+                proactiveRetryAt = now + Math.min(MAX_PROACTIVE_BACKOFF_MS, backoff);
+                Log.w(TAG, "Proactive refresh failed, next try in " + (proactiveRetryAt - now) + " ms");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an access token newer than {@code staleAccessToken}, refreshing at most once
+     * for all concurrent callers. Returns null if the refresh failed.
+     */
+    public String refresh(String staleAccessToken) {
+        String current = tokenManager.getAccessToken();
+        if (current != null && !current.equals(staleAccessToken)) {
+            return current; // someone already refreshed
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        while (!inFlight.compareAndSet(null, mine)) {
+            CompletableFuture<String> existing = inFlight.get();
+            if (existing != null) {
+                return join(existing);
+            }
+        }
+
+        try {
+            // Re-check: a refresh may have finished between the first check and the CAS
+            current = tokenManager.getAccessToken();
+            if (current != null && !current.equals(staleAccessToken)) {
+                mine.complete(current);
+                return current;
+            }
+
+            String refreshToken = tokenManager.getRefreshToken();
+            String result = refreshToken != null ? refresher.refresh(refreshToken, staleAccessToken) : null;
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Token refresh failed", e);
+            mine.complete(null);
+            return null;
+        } finally {
+            inFlight.compareAndSet(mine, null);
+        }
+    }
+
+    private String join(CompletableFuture<String> future) {
+        try {
+            return future.get(JOIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while waiting for token refresh");
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(TAG, "Waiting for token refresh failed", e);
+        }
+        return null;
+    }
+}
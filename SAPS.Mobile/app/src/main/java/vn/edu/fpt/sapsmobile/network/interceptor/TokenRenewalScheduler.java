@@ -0,0 +1,136 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import vn.edu.fpt.sapsmobile.utils.JwtUtils;
+
+/**
+ * Renews the access token in the background shortly before it expires, so requests
+ * on the hot path almost never go out with an expired token and come back 401.
+ * Armed by TokenManager.saveTokens, cancelled by TokenManager.clearTokens.
+ */
+public final class TokenRenewalScheduler {
+    private static final String TAG = "TokenRenewalScheduler";
+    // Must be larger than the interceptor's inline leeway so the background renewal wins
+    private static final long RENEW_LEEWAY_MILLIS = 60_000L;
+
+    private static final TokenRenewalScheduler INSTANCE = new TokenRenewalScheduler();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "token-renewal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile TokenRefreshCoordinator coordinator;
+    private ScheduledFuture<?> pending;
+
+    // Token handed out by an ahead-of-time renewal, and when the token it replaced expired
+    private final AtomicReference<String> renewedToken = new AtomicReference<>();
+    private volatile long replacedTokenExpiresAt;
+
+    // Metrics
+    private final AtomicLong scheduledRenewals = new AtomicLong();
+    private final AtomicLong failedRenewals = new AtomicLong();
+    private final AtomicLong avoided401Retries = new AtomicLong();
+    private final AtomicLong reactive401Refreshes = new AtomicLong();
+
+    private TokenRenewalScheduler() {
+    }
+
+    public static TokenRenewalScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /** Called once the network stack exists; renewals before that are skipped. */
+    public void attach(TokenRefreshCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /** (Re-)arms the renewal for the given access token, replacing any pending one. */
+    public synchronized void schedule(String accessToken) {
+        cancelPending();
+        if (accessToken == null) return;
+
+        long untilExpiry = JwtUtils.millisUntilExpiry(accessToken); // read exp once
+        // Already expired, or no exp (UNKNOWN_EXPIRY is negative too): the interceptor will handle it
+        if (untilExpiry < 0) return;
+
+        long delay = Math.max(0, untilExpiry - RENEW_LEEWAY_MILLIS);
+        long expiresAt = System.currentTimeMillis() + untilExpiry;
+        pending = executor.schedule(() -> renew(accessToken, expiresAt), delay, TimeUnit.MILLISECONDS);
+        Log.i(TAG, "Token renewal scheduled in " + (delay / 1000) + "s");
+    }
+
+    public synchronized void cancel() {
+        cancelPending();
+        renewedToken.set(null);
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void renew(String accessToken, long expiresAt) {
+        TokenRefreshCoordinator c = coordinator;
+        if (c == null) return;
+
+        scheduledRenewals.incrementAndGet();
+        // A successful refresh saves the new tokens, which re-arms this scheduler
+        String newToken = c.refresh(accessToken);
+        if (newToken != null && !newToken.equals(accessToken)) {
+            replacedTokenExpiresAt = expiresAt;
+            renewedToken.set(newToken);
+        } else {
+            failedRenewals.incrementAndGet();
+        }
+    }
+
+    /**
+     * Called by the interceptor for every authenticated request. The first request carrying
+     * the renewed token after the old one expired is the 401 + retry that did not happen
+     * (later ones would have used the reactively refreshed token anyway).
+     */
+    void recordRequest(String accessToken) {
+        if (accessToken == null || System.currentTimeMillis() < replacedTokenExpiresAt) return;
+        String renewed = renewedToken.get();
+        if (accessToken.equals(renewed) && renewedToken.compareAndSet(renewed, null)) {
+            avoided401Retries.incrementAndGet();
+        }
+    }
+
+    /** Counts a token renewed inline by the interceptor right before sending. */
+    void recordInlineRenewal() {
+        avoided401Retries.incrementAndGet();
+    }
+
+    void recordReactiveRefresh() {
+        reactive401Refreshes.incrementAndGet();
+    }
+
+    public long getScheduledRenewals() {
+        return scheduledRenewals.get();
+    }
+
+    public long getFailedRenewals() {
+        return failedRenewals.get();
+    }
+
+    public long getAvoided401Retries() {
+        return avoided401Retries.get();
+    }
+
+    public long getReactive401Refreshes() {
+        return reactive401Refreshes.get();
+    }
+}
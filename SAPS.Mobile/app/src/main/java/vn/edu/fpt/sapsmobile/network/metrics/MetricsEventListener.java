@@ -0,0 +1,149 @@
+package vn.edu.fpt.sapsmobile.network.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * One instance per call; turns OkHttp call events into DNS / connect / TLS / TTFB /
+ * body-read timings, byte counts, connection reuse and retry counts for the route.
+ */
+public class MetricsEventListener extends EventListener {
+
+    public static final EventListener.Factory FACTORY = call -> new MetricsEventListener(routeOf(call.request()));
+
+    private final RouteMetrics metrics;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long bodyStart;
+    private boolean connectedForThisAcquire;
+    private int requestsSent;
+
+    MetricsEventListener(String route) {
+        this.metrics = NetworkMetrics.getInstance().forRoute(route);
+    }
+
+    static String routeOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            Method method = invocation.method();
+            return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+        return request.method() + " " + request.url().encodedPath();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+        metrics.calls.incrementAndGet();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        metrics.dns.record(elapsedMs(dnsStart));
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+        connectedForThisAcquire = true;
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        metrics.tls.record(elapsedMs(secureConnectStart));
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, Protocol protocol) {
+        metrics.connect.record(elapsedMs(connectStart));
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        metrics.connectionsAcquired.incrementAndGet();
+        if (!connectedForThisAcquire) {
+            metrics.connectionsReused.incrementAndGet();
+        }
+        connectedForThisAcquire = false;
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = System.nanoTime();
+        requestsSent++;
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        metrics.bytesOut.addAndGet(byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        metrics.ttfb.record(elapsedMs(requestStart));
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        bodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        metrics.bytesIn.addAndGet(byteCount);
+        metrics.bodyRead.record(elapsedMs(bodyStart));
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        finish();
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        metrics.failures.incrementAndGet();
+        finish();
+    }
+
+    private void finish() {
+        metrics.total.record(elapsedMs(callStart));
+        if (requestsSent > 1) {
+            // Transport retries, redirects and the 401 refresh retry all resend the request
+            metrics.retries.addAndGet(requestsSent - 1);
+        }
+    }
+}
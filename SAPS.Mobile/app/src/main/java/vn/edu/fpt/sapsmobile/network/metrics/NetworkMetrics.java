@@ -0,0 +1,63 @@
+package vn.edu.fpt.sapsmobile.network.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import vn.edu.fpt.sapsmobile.BuildConfig;
+
+/**
+ * Process-wide registry of per-route network metrics, fed by {@link MetricsEventListener}.
+ * Routes are keyed by the Retrofit interface method (e.g. "IVehicleApi.getMyVehicles").
+ * The number of routes is capped so memory stays fixed.
+ */
+public final class NetworkMetrics {
+    private static final int MAX_ROUTES = 64;
+    private static final String OVERFLOW_ROUTE = "(other)";
+    private static final NetworkMetrics INSTANCE = new NetworkMetrics();
+
+    private final ConcurrentHashMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private volatile long startedAt = System.currentTimeMillis();
+
+    private NetworkMetrics() {
+    }
+
+    public static NetworkMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    RouteMetrics forRoute(String route) {
+        RouteMetrics metrics = routes.get(route);
+        if (metrics != null) return metrics;
+        if (routes.size() >= MAX_ROUTES) {
+            route = OVERFLOW_ROUTE;
+        }
+        return routes.computeIfAbsent(route, k -> new RouteMetrics());
+    }
+
+    /**
+     * Zeroes every route rather than dropping it: a {@link MetricsEventListener} holds its
+     * RouteMetrics for the whole call, and a dropped one would lose what it records.
+     */
+    public void reset() {
+        startedAt = System.currentTimeMillis();
+        for (RouteMetrics metrics : routes.values()) {
+            metrics.reset();
+        }
+    }
+
+    /** Plain-text report of every route, stable order, suitable for sharing and diffing. */
+    public String dump() {
+        StringBuilder out = new StringBuilder()
+                .append("SAPS ").append(BuildConfig.VERSION_NAME)
+                .append(" (").append(BuildConfig.VERSION_CODE).append(", ").append(BuildConfig.BUILD_TYPE).append(")\n")
+                .append("collecting for ").append((System.currentTimeMillis() - startedAt) / 1000).append("s\n\n");
+        Map<String, RouteMetrics> sorted = new TreeMap<>(routes);
+        for (Map.Entry<String, RouteMetrics> entry : sorted.entrySet()) {
+            out.append(entry.getKey()).append('\n');
+            entry.getValue().appendTo(out);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
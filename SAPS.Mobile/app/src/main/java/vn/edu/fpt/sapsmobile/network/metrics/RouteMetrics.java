@@ -0,0 +1,74 @@
+package vn.edu.fpt.sapsmobile.network.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counters and latency histograms for one API route. */
+public class RouteMetrics {
+    final LatencyHistogram total = new LatencyHistogram();
+    final LatencyHistogram dns = new LatencyHistogram();
+    final LatencyHistogram connect = new LatencyHistogram();
+    final LatencyHistogram tls = new LatencyHistogram();
+    final LatencyHistogram ttfb = new LatencyHistogram();
+    final LatencyHistogram bodyRead = new LatencyHistogram();
+
+    final AtomicLong calls = new AtomicLong();
+    final AtomicLong failures = new AtomicLong();
+    final AtomicLong bytesOut = new AtomicLong();
+    final AtomicLong bytesIn = new AtomicLong();
+    final AtomicLong connectionsAcquired = new AtomicLong();
+    final AtomicLong connectionsReused = new AtomicLong();
+    final AtomicLong retries = new AtomicLong();
+
+    public double getReuseRatio() {
+        long acquired = connectionsAcquired.get();
+        return acquired == 0 ? 0 : (double) connectionsReused.get() / acquired;
+    }
+
+    /** Zeroes everything in place; listeners of calls still in flight keep recording here. */
+    void reset() {
+        total.reset();
+        dns.reset();
+        connect.reset();
+        tls.reset();
+        ttfb.reset();
+        bodyRead.reset();
+        calls.set(0);
+        failures.set(0);
+        bytesOut.set(0);
+        bytesIn.set(0);
+        connectionsAcquired.set(0);
+        connectionsReused.set(0);
+        retries.set(0);
+    }
+
+    void appendTo(StringBuilder out) {
+        out.append("  calls=").append(calls.get())
+                .append(" failed=").append(failures.get())
+                .append(" retries=").append(retries.get())
+                .append('\n')
+                .append("  bytes out=").append(bytesOut.get())
+                .append(" in=").append(bytesIn.get())
+                .append('\n')
+                .append("  reuse=").append(connectionsReused.get()).append('/').append(connectionsAcquired.get())
+                .append(String.format(java.util.Locale.US, " (%.0f%%)", getReuseRatio() * 100))
+                .append('\n');
+        appendHistogram(out, "total", total);
+        appendHistogram(out, "dns", dns);
+        appendHistogram(out, "connect", connect);
+        appendHistogram(out, "tls", tls);
+        appendHistogram(out, "ttfb", ttfb);
+        appendHistogram(out, "body", bodyRead);
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, LatencyHistogram h) {
+        long count = h.getCount();
+        if (count == 0) return;
+        out.append("  ").append(name)
+                .append(" n=").append(count)
+                .append(" p50=").append(h.getPercentile(50))
+                .append(" p90=").append(h.getPercentile(90))
+                .append(" p99=").append(h.getPercentile(99))
+                .append(" max=").append(h.getPercentile(100))
+                .append("ms\n");
+    }
+}
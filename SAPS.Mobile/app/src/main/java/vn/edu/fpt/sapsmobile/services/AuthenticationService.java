@@ -283,7 +283,7 @@ public class AuthenticationService implements SessionActions {
     // ============================================================================
     public void signOut(Runnable onComplete) {
         googleSignInClient.signOut().addOnCompleteListener(task -> {
-            tokenManager.clearTokens();
+            SessionTeardown.run(context, "sign out");
             if (onComplete != null) onComplete.run();
         });
     }
@@ -293,7 +293,7 @@ public class AuthenticationService implements SessionActions {
         Log.w(TAG, "Logging out: " + reason);
 
         googleSignInClient.signOut().addOnCompleteListener(task -> {
-            tokenManager.clearTokens();
+            SessionTeardown.run(context, reason);
 
             Intent i = new Intent(context, LoginActivity.class);
             i.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
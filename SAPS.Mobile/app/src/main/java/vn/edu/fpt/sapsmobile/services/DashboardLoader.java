@@ -0,0 +1,297 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
+import vn.edu.fpt.sapsmobile.database.VehicleDao;
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionRequest;
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse;
+import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
+import vn.edu.fpt.sapsmobile.models.User;
+import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
+import vn.edu.fpt.sapsmobile.network.api.ISharedvehicle;
+import vn.edu.fpt.sapsmobile.network.api.IVehicleApi;
+import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
+import vn.edu.fpt.sapsmobile.utils.TokenManager;
+
+/**
+ * Loads everything the Home tab shows in one round trip: Parking and CheckedOut
+ * sessions, own and shared vehicles, and the client profile are all requested at once.
+ * The session list is re-emitted as each piece lands, so rows show up with just the
+ * plate and pick up brand/model once the vehicle lists arrive.
+ *
+ * Before any of that, the stored copy from the last load is shown, and every successful
+ * response is written back to {@link AppDatabase}. A list whose call fails keeps its stored
+ * copy, so going offline never empties the screen; "no sessions" is only reported after
+ * both session calls succeeded with nothing in them.
+ *
+ * One instance per load; callbacks run on the main thread (Retrofit enqueue).
+ */
+public class DashboardLoader {
+    private static final String TAG = "DashboardLoader";
+    private static final int LIST_CALLS = 4; // 2 session statuses + own + shared vehicles
+    private static final String STATUS_PARKING = "Parking";
+    private static final String STATUS_CHECKED_OUT = "CheckedOut";
+
+    public interface ProfileCallback {
+        void onProfileLoaded(User user);
+    }
+
+    private final Context context;
+    private final TokenManager tokenManager;
+    private final ParkingSessionService sessionService;
+    private final AppDatabase db;
+    private final List<Call<?>> calls = new ArrayList<>();
+
+    // null until the matching call succeeded; until then the stored rows stand in
+    private List<OwnedSessionResponse.OwnedParkingSessionDto> parkingSessions;
+    private List<OwnedSessionResponse.OwnedParkingSessionDto> checkedOutSessions;
+    private List<VehicleSummaryDto> ownVehicles;
+    private List<VehicleSummaryDto> sharedVehicles;
+    private String userId;
+    private int pendingCalls;
+    private boolean cancelled;
+    private boolean noSessionsReported;
+    @Nullable private Stored stored;
+
+    private ParkingSessionService.ParkingSessionCallback callback;
+    private ParkingSessionService.DataLoadingCallback loadingCallback;
+
+    public DashboardLoader(Context context) {
+        this.context = context;
+        this.tokenManager = new TokenManager(context);
+        this.sessionService = new ParkingSessionService(context);
+        this.db = AppDatabase.getInstance(context);
+    }
+
+    public void start(@NonNull ParkingSessionService.ParkingSessionCallback callback,
+                      @NonNull ParkingSessionService.DataLoadingCallback loadingCallback,
+                      @Nullable ProfileCallback profileCallback) {
+        start(callback, loadingCallback, profileCallback, false);
+    }
+
+    /** {@code refresh}: pull-to-refresh, so revalidate instead of trusting the HTTP cache's max-age. */
+    public void start(@NonNull ParkingSessionService.ParkingSessionCallback callback,
+                      @NonNull ParkingSessionService.DataLoadingCallback loadingCallback,
+                      @Nullable ProfileCallback profileCallback, boolean refresh) {
+        this.callback = callback;
+        this.loadingCallback = loadingCallback;
+        pendingCalls = LIST_CALLS;
+        loadingCallback.onDataLoadingStarted();
+
+        IParkingSessionApiService parkingSessionApi = ApiClient.getServiceLast(context)
+                .create(IParkingSessionApiService.class);
+        IVehicleApi vehicleApi = ApiClient.getServiceLast(context).create(IVehicleApi.class);
+        ISharedvehicle sharedApi = ApiClient.getServiceLast(context).create(ISharedvehicle.class);
+        userId = tokenManager.getUserData().getId();
+
+        showStored();
+        String cacheControl = refresh ? HttpCacheProvider.NO_CACHE : null;
+        enqueue(ownedSessions(parkingSessionApi, userId, STATUS_PARKING, cacheControl), new SessionsCallback(true));
+        enqueue(ownedSessions(parkingSessionApi, userId, STATUS_CHECKED_OUT, cacheControl), new SessionsCallback(false));
+        enqueue(vehicleApi.getMyVehicles(null, null, cacheControl), new VehiclesCallback(true));
+        enqueue(sharedApi.getShareVehicles(userId, cacheControl), new VehiclesCallback(false));
+
+        if (profileCallback != null) {
+            new AuthenticationService(context).fetchClientProfile(new AuthenticationService.ClientProfileCallback() {
+                @Override
+                public void onSuccess(User user) {
+                    if (!cancelled) profileCallback.onProfileLoaded(user);
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    // Home keeps showing the stored profile
+                }
+            });
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (Call<?> call : calls) {
+            call.cancel();
+        }
+    }
+
+    private static final class Stored {
+        List<OwnedSessionResponse.OwnedParkingSessionDto> parkingSessions;
+        List<OwnedSessionResponse.OwnedParkingSessionDto> checkedOutSessions;
+        List<VehicleSummaryDto> ownVehicles;
+        List<VehicleSummaryDto> sharedVehicles;
+    }
+
+    private void showStored() {
+        String uid = userId;
+        db.read(() -> {
+            Stored stored = new Stored();
+            stored.parkingSessions = db.sessions().findByStatus(uid, STATUS_PARKING);
+            stored.checkedOutSessions = db.sessions().findByStatus(uid, STATUS_CHECKED_OUT);
+            stored.ownVehicles = db.vehicles().findAll(uid, VehicleDao.OWN);
+            stored.sharedVehicles = db.vehicles().findAll(uid, VehicleDao.SHARED);
+            return stored;
+        }, stored -> {
+            if (cancelled) return;
+            this.stored = stored;
+            // Fills in whatever the network has not (successfully) answered yet
+            render();
+        });
+    }
+
+    private <T> void enqueue(Call<T> call, Callback<T> cb) {
+        calls.add(call);
+        call.enqueue(cb);
+    }
+
+    private static Call<OwnedSessionResponse> ownedSessions(IParkingSessionApiService api, String userId, String status,
+                                                            @Nullable String cacheControl) {
+        OwnedSessionRequest request = new OwnedSessionRequest("Asc", "entryDateTime", status);
+        return api.getOwnedSessions(
+                userId,
+                request.getStatus(),
+                request.getStartEntryDate() != null ? request.getStartEntryDate().toString() : null,
+                request.getEndEntryDate() != null ? request.getEndEntryDate().toString() : null,
+                request.getStartExitDate() != null ? request.getStartExitDate().toString() : null,
+                request.getEndExitDate() != null ? request.getEndExitDate().toString() : null,
+                request.getOrder(),
+                request.getSortBy(),
+                request.getSearchCriteria(),
+                cacheControl
+        );
+    }
+
+    private void onPieceLoaded() {
+        render();
+        if (--pendingCalls == 0) {
+            loadingCallback.onDataLoadingFinished();
+        }
+    }
+
+    private void render() {
+        List<OwnedSessionResponse.OwnedParkingSessionDto> parking = orStored(parkingSessions,
+                stored != null ? stored.parkingSessions : null);
+        List<OwnedSessionResponse.OwnedParkingSessionDto> checkedOut = orStored(checkedOutSessions,
+                stored != null ? stored.checkedOutSessions : null);
+        if (parking == null && checkedOut == null) return;
+
+        List<OwnedSessionResponse.OwnedParkingSessionDto> dtos = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+        if (parking != null) {
+            ParkingSessionService.addUniqueItems(dtos, seenIds, parking);
+        }
+        if (checkedOut != null) {
+            ParkingSessionService.addUniqueItems(dtos, seenIds, checkedOut);
+        }
+
+        if (dtos.isEmpty()) {
+            // An empty cache or a failed call proves nothing; only two successful answers do
+            if (parkingSessions != null && checkedOutSessions != null && !noSessionsReported) {
+                noSessionsReported = true;
+                callback.onNoSessions();
+            }
+            return;
+        }
+
+        // Own vehicles win over shared ones with the same plate
+        Map<String, VehicleSummaryDto> plateIndex = new HashMap<>();
+        List<VehicleSummaryDto> own = orStored(ownVehicles, stored != null ? stored.ownVehicles : null);
+        List<VehicleSummaryDto> shared = orStored(sharedVehicles, stored != null ? stored.sharedVehicles : null);
+        if (own != null) ParkingSessionService.indexByPlate(plateIndex, own);
+        if (shared != null) ParkingSessionService.indexByPlate(plateIndex, shared);
+        callback.onSuccess(ParkingSessionService.mapDtosToSessions(dtos, plateIndex));
+    }
+
+    @Nullable
+    private static <T> List<T> orStored(@Nullable List<T> fresh, @Nullable List<T> stored) {
+        return fresh != null ? fresh : stored;
+    }
+
+    private class SessionsCallback implements Callback<OwnedSessionResponse> {
+        private final boolean parking;
+
+        SessionsCallback(boolean parking) {
+            this.parking = parking;
+        }
+
+        private void store(List<OwnedSessionResponse.OwnedParkingSessionDto> data) {
+            if (parking) {
+                parkingSessions = data;
+            } else {
+                checkedOutSessions = data;
+            }
+        }
+
+        @Override
+        public void onResponse(Call<OwnedSessionResponse> call, Response<OwnedSessionResponse> response) {
+            if (cancelled) return;
+            if (response.isSuccessful() && response.body() != null && response.body().getData() != null) {
+                List<OwnedSessionResponse.OwnedParkingSessionDto> data = response.body().getData();
+                store(data);
+                String uid = userId;
+                db.write(() -> db.sessions().replaceStatus(uid, parking ? STATUS_PARKING : STATUS_CHECKED_OUT, data));
+            } else {
+                // Keep showing the stored rows for this status
+                callback.onError(sessionService.parseSessionError(response));
+                Log.i(TAG, "fetchOwnerSessions: " + response.code());
+            }
+            onPieceLoaded();
+        }
+
+        @Override
+        public void onFailure(Call<OwnedSessionResponse> call, Throwable t) {
+            if (cancelled) return;
+            // Continue even if one call fails; the stored rows for this status stay
+            Log.w(TAG, "Owned sessions failed: " + t.getMessage());
+            onPieceLoaded();
+        }
+    }
+
+    private class VehiclesCallback implements Callback<List<VehicleSummaryDto>> {
+        private final boolean own;
+
+        VehiclesCallback(boolean own) {
+            this.own = own;
+        }
+
+        private void store(List<VehicleSummaryDto> data) {
+            if (own) {
+                ownVehicles = data;
+            } else {
+                sharedVehicles = data;
+            }
+        }
+
+        @Override
+        public void onResponse(Call<List<VehicleSummaryDto>> call, Response<List<VehicleSummaryDto>> response) {
+            if (cancelled) return;
+            if (response.isSuccessful() && response.body() != null) {
+                List<VehicleSummaryDto> data = response.body();
+                store(data);
+                String uid = userId;
+                db.write(() -> db.vehicles().replaceAll(uid, own ? VehicleDao.OWN : VehicleDao.SHARED, data));
+            }
+            onPieceLoaded();
+        }
+
+        @Override
+        public void onFailure(Call<List<VehicleSummaryDto>> call, Throwable t) {
+            if (cancelled) return;
+            onPieceLoaded();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import vn.edu.fpt.sapsmobile.R;
+import vn.edu.fpt.sapsmobile.dtos.payment.PaymentApiResponseDTO;
+import vn.edu.fpt.sapsmobile.dtos.payment.PaymentResponseDTO;
+import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
+import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.utils.ImagePipeline;
+import vn.edu.fpt.sapsmobile.utils.QrCodeRenderer;
+
+/**
+ * Overlaps the payment-info round trip and the QR encode with the checkout to payment
+ * screen transition. CheckoutActivity calls {@link #prefetch} as soon as checkout
+ * succeeds; PaymentActivity then {@link #take}s the result, which is already there (QR
+ * included, in {@link QrCodeRenderer}'s memory cache) or still in flight, instead of
+ * starting its own request after it has been created.
+ *
+ * One entry per session, handed out once and dropped after {@link #MAX_AGE_MS} so a
+ * payment screen opened much later still loads fresh data. Main thread only.
+ */
+public class PaymentPrefetcher {
+    private static final String TAG = "PaymentPrefetcher";
+    private static final long MAX_AGE_MS = 60_000;
+
+    private static volatile PaymentPrefetcher instance;
+
+    public interface Listener {
+        /** {@code null} if the prefetch failed; the caller loads the data itself then. */
+        void onPayment(@Nullable PaymentResponseDTO payment);
+    }
+
+    private static final class Entry {
+        final long startedAt = SystemClock.elapsedRealtime();
+        boolean done;
+        PaymentResponseDTO payment;
+        Listener listener;
+    }
+
+    private final Context appContext;
+    private final ImagePipeline.Scope qrJobs = ImagePipeline.detachedScope();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private PaymentPrefetcher(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static PaymentPrefetcher getInstance(Context context) {
+        PaymentPrefetcher p = instance;
+        if (p == null) {
+            synchronized (PaymentPrefetcher.class) {
+                p = instance;
+                if (p == null) {
+                    p = new PaymentPrefetcher(context);
+                    instance = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /** Starts loading the payment info for {@code sessionId} and encoding its QR code. */
+    public void prefetch(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) return;
+        Entry existing = entries.get(sessionId);
+        if (existing != null && !isStale(existing)) return;
+
+        Entry entry = new Entry();
+        entries.put(sessionId, entry);
+        IParkingSessionApiService api = ApiClient.getServiceLast(appContext).create(IParkingSessionApiService.class);
+        api.getPaymentInfo(sessionId).enqueue(new Callback<PaymentApiResponseDTO>() {
+            @Override
+            public void onResponse(@NonNull Call<PaymentApiResponseDTO> call,
+                                   @NonNull Response<PaymentApiResponseDTO> response) {
+                PaymentResponseDTO payment = response.isSuccessful() && response.body() != null
+                        ? response.body().getData() : null;
+                if (payment == null || payment.getData() == null) {
+                    complete(sessionId, entry, null);
+                    return;
+                }
+                String qr = payment.getData().getQrCode();
+                if (qr == null || qr.isEmpty()) {
+                    complete(sessionId, entry, payment);
+                    return;
+                }
+                // Hand the data over only once the QR is in the memory cache, so the
+                // payment screen draws it together with the rest
+                int sizePx = appContext.getResources().getDimensionPixelSize(R.dimen.payment_qr_size);
+                qrJobs.submit(sessionId, () -> QrCodeRenderer.render(appContext, qr, sizePx),
+                        new ImagePipeline.Callback<QrCodeRenderer.Rendered>() {
+                            @Override
+                            public void onSuccess(QrCodeRenderer.Rendered result) {
+                                complete(sessionId, entry, payment);
+                            }
+
+                            @Override
+                            public void onError(Exception e) {
+                                Log.w(TAG, "QR prefetch failed: " + e.getMessage());
+                                complete(sessionId, entry, payment);
+                            }
+                        });
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<PaymentApiResponseDTO> call, @NonNull Throwable t) {
+                Log.w(TAG, "Payment info prefetch failed: " + t.getMessage());
+                complete(sessionId, entry, null);
+            }
+        });
+    }
+
+    /**
+     * Hands over what was prefetched for {@code sessionId}: right away if it is ready,
+     * otherwise when it arrives (unless {@code owner} is destroyed first). Returns false
+     * if nothing usable was prefetched, in which case {@code listener} is never called.
+     */
+    public boolean take(LifecycleOwner owner, String sessionId, Listener listener) {
+        Entry entry = entries.get(sessionId);
+        if (entry == null || isStale(entry) || entry.listener != null) return false;
+        if (entry.done) {
+            entries.remove(sessionId);
+            if (entry.payment == null) return false;
+            listener.onPayment(entry.payment);
+            return true;
+        }
+        entry.listener = listener;
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY && entry.listener == listener) {
+                entry.listener = null;
+                entries.remove(sessionId, entry);
+            }
+        });
+        return true;
+    }
+
+    private void complete(String sessionId, Entry entry, @Nullable PaymentResponseDTO payment) {
+        entry.done = true;
+        entry.payment = payment;
+        Listener listener = entry.listener;
+        if (listener != null) {
+            entry.listener = null;
+            entries.remove(sessionId, entry);
+            listener.onPayment(payment);
+        }
+    }
+
+    private static boolean isStale(Entry entry) {
+        return SystemClock.elapsedRealtime() - entry.startedAt > MAX_AGE_MS;
+    }
+}
@@ -0,0 +1,198 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import vn.edu.fpt.sapsmobile.dtos.payment.PaymentStatusResponseDTO;
+import vn.edu.fpt.sapsmobile.enums.PaymentStatus;
+import vn.edu.fpt.sapsmobile.network.api.TransactionApiService;
+import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+
+/**
+ * Polls the PayOS transaction status while the payment screen is visible, so the user
+ * does not have to keep tapping "I have paid". Polling is fast right after the screen
+ * comes to the foreground (when the bank confirmation is most likely to land) and
+ * slows down the longer the payment stays pending:
+ * <ul>
+ *   <li>1 s for the first 30 s, 2 s until 2 min, then 5 s, then 10 s;</li>
+ *   <li>request failures double the delay, up to the 10 s cap;</li>
+ *   <li>paused in the background, and back to fast with an immediate check on return
+ *       (e.g. from the checkoutUrl browser hand-off).</li>
+ * </ul>
+ * At most one request is in flight; {@link #checkNow} while one is running just asks for
+ * another right after it. Stops for good on a terminal status or when the owner is destroyed.
+ * Main thread only.
+ */
+public class PaymentStatusWatcher {
+    private static final String TAG = "PaymentStatusWatcher";
+
+    private static final long FAST_PHASE_MS = 30_000;
+    private static final long MEDIUM_PHASE_MS = 120_000;
+    private static final long SLOW_PHASE_MS = 300_000;
+    private static final long FAST_DELAY_MS = 1_000;
+    private static final long MEDIUM_DELAY_MS = 2_000;
+    private static final long SLOW_DELAY_MS = 5_000;
+    private static final long MAX_DELAY_MS = 10_000;
+
+    public interface Listener {
+        /** Every status received, terminal or not. */
+        void onStatus(PaymentStatus status);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final TransactionApiService api;
+    private final String orderCode;
+    private final Listener listener;
+    private final Runnable poll = this::poll;
+
+    private long phaseStart;
+    private int consecutiveFailures;
+    private Call<PaymentStatusResponseDTO> inFlight;
+    private boolean checkAgain;
+    private boolean started;
+    private boolean done;
+
+    private PaymentStatusWatcher(Context context, String orderCode, Listener listener) {
+        this.api = ApiClient.getServiceLast(context).create(TransactionApiService.class);
+        this.orderCode = orderCode;
+        this.listener = listener;
+    }
+
+    /** Starts watching once {@code owner} is started; follows it from then on. */
+    public static PaymentStatusWatcher watch(Context context, LifecycleOwner owner, String orderCode,
+                                             Listener listener) {
+        PaymentStatusWatcher watcher = new PaymentStatusWatcher(context, orderCode, listener);
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_START) {
+                watcher.resume();
+            } else if (event == Lifecycle.Event.ON_STOP) {
+                watcher.pause();
+            } else if (event == Lifecycle.Event.ON_DESTROY) {
+                watcher.stop();
+            }
+        });
+        return watcher;
+    }
+
+    /** Checks right away (or right after the request in flight) and restarts the fast phase. */
+    public void checkNow() {
+        if (done || !started) return;
+        phaseStart = SystemClock.elapsedRealtime();
+        handler.removeCallbacks(poll);
+        if (inFlight != null) {
+            checkAgain = true;
+        } else {
+            poll();
+        }
+    }
+
+    private void resume() {
+        if (done) return;
+        started = true;
+        checkNow();
+    }
+
+    private void pause() {
+        started = false;
+        handler.removeCallbacks(poll);
+        checkAgain = false;
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    private void stop() {
+        done = true;
+        pause();
+    }
+
+    private void poll() {
+        if (done || !started) return;
+        Call<PaymentStatusResponseDTO> request = api.getTransactionPayOs(orderCode);
+        inFlight = request;
+        request.enqueue(new Callback<PaymentStatusResponseDTO>() {
+            @Override
+            public void onResponse(@NonNull Call<PaymentStatusResponseDTO> call,
+                                   @NonNull Response<PaymentStatusResponseDTO> response) {
+                if (call != inFlight) return; // paused meanwhile
+                inFlight = null;
+                if (response.isSuccessful() && response.body() != null && response.body().getData() != null) {
+                    consecutiveFailures = 0;
+                    PaymentStatus status = PaymentStatus.fromString(response.body().getData().getStatus());
+                    if (isTerminal(status)) {
+                        Log.i(TAG, "Payment " + orderCode + " ended: " + status);
+                        done = true;
+                        pause();
+                    } else {
+                        scheduleNext();
+                    }
+                    listener.onStatus(status);
+                } else {
+                    consecutiveFailures++;
+                    scheduleNext();
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<PaymentStatusResponseDTO> call, @NonNull Throwable t) {
+                if (call != inFlight) return;
+                inFlight = null;
+                consecutiveFailures++;
+                Log.w(TAG, "Status check failed: " + t.getMessage());
+                scheduleNext();
+            }
+        });
+    }
+
+    private void scheduleNext() {
+        if (done || !started) return;
+        if (checkAgain) {
+            checkAgain = false;
+            poll();
+            return;
+        }
+        handler.postDelayed(poll, nextDelay());
+    }
+
+    private long nextDelay() {
+        long elapsed = SystemClock.elapsedRealtime() - phaseStart;
+        long delay;
+        if (elapsed < FAST_PHASE_MS) {
+            delay = FAST_DELAY_MS;
+        } else if (elapsed < MEDIUM_PHASE_MS) {
+            delay = MEDIUM_DELAY_MS;
+        } else if (elapsed < SLOW_PHASE_MS) {
+            delay = SLOW_DELAY_MS;
+        } else {
+            delay = MAX_DELAY_MS;
+        }
+        if (consecutiveFailures > 0) {
+            delay = Math.min(MAX_DELAY_MS, delay << Math.min(consecutiveFailures, 4));
+        }
+        return delay;
+    }
+
+    /** PENDING, PROCESSING and UNDERPAID can still turn into PAID; everything else is final. */
+    public static boolean isTerminal(PaymentStatus status) {
+        switch (status) {
+            case PENDING:
+            case PROCESSING:
+            case UNDERPAID:
+                return false;
+            default:
+                return true;
+        }
+    }
+}
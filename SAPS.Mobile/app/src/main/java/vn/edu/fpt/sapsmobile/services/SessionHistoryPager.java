@@ -0,0 +1,344 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionRequest;
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse.OwnedParkingSessionDto;
+import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
+import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.network.client.JsonListStreamer;
+
+/**
+ * Loads owned-session history newest first, one date window ("page") at a time.
+ * The endpoint has no page/size parameters, so a page is a {@link #PAGE_DAYS}-day range
+ * of StartEntryDate/EndEntryDate. At most {@link #MAX_PAGES} non-empty pages are kept;
+ * pages scrolled far away are dropped and fetched again by index when the user
+ * scrolls back. All methods and {@link Sink} callbacks run on the main thread.
+ *
+ * "All time" has no lower bound and the server reports neither a total nor the oldest
+ * session, so the search pauses after {@link #MAX_EMPTY_WINDOWS} empty windows in a row
+ * instead of walking back forever. The pause is not the end of the list: the screen
+ * tells the user how far back it looked ({@link #searchedSince}) and can go on with
+ * {@link #searchOlder}.
+ */
+public class SessionHistoryPager {
+
+    public enum Range {
+        LAST_30_DAYS(30),
+        LAST_3_MONTHS(90),
+        LAST_YEAR(365),
+        ALL_TIME(-1);
+
+        private final int days;
+
+        Range(int days) {
+            this.days = days;
+        }
+
+        /** First day the range covers, or null for all time. */
+        @Nullable
+        public LocalDate since(LocalDate today) {
+            return days > 0 ? today.minusDays(days) : null;
+        }
+
+        /** {@link #since} as epoch millis at local midnight, the same day the pager stops at; -1 for all time. */
+        public long sinceMillis(LocalDate today) {
+            LocalDate since = since(today);
+            return since != null ? since.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+        }
+    }
+
+    /** Receives the row changes to apply to the adapter. */
+    public interface Sink {
+        /** Rows appended at the end; may arrive in several batches while a page streams in. */
+        void onAppended(List<OwnedParkingSessionDto> items);
+
+        /** A whole page inserted at the top. */
+        void onPrepended(List<OwnedParkingSessionDto> items);
+
+        void onRemovedFirst(int count);
+
+        void onRemovedLast(int count);
+
+        /** No load is running. {@code failed} is true when the last load errored. */
+        void onIdle(boolean failed);
+    }
+
+    static final int PAGE_DAYS = 30;
+    static final int MAX_PAGES = 4;
+    // "All time" pauses after a full year of empty windows
+    private static final int MAX_EMPTY_WINDOWS = 12;
+
+    private static final class Page {
+        final int index;
+        final Set<String> ids = new HashSet<>();
+        int count;
+
+        Page(int index) {
+            this.index = index;
+        }
+    }
+
+    private final IParkingSessionApiService api;
+    private final String userId;
+    private final Sink sink;
+
+    private final ArrayDeque<Page> pages = new ArrayDeque<>();
+    // Indices of dropped pages; the head of each stack is the one next to the retained window
+    private final ArrayDeque<Integer> evictedFront = new ArrayDeque<>();
+    private final ArrayDeque<Integer> evictedBack = new ArrayDeque<>();
+
+    private LocalDate today;
+    private LocalDate lowerBound;
+    private int nextIndex;
+    private int emptyWindows;
+    private boolean endReached;
+    private boolean searchPaused;
+    private JsonListStreamer<OwnedParkingSessionDto> stream;
+
+    public SessionHistoryPager(Context context, String userId, @NonNull Sink sink) {
+        this.api = ApiClient.getServiceLast(context).create(IParkingSessionApiService.class);
+        this.userId = userId;
+        this.sink = sink;
+    }
+
+    /** Drops everything and starts over with the given range. The caller clears the adapter. */
+    public void reset(Range range) {
+        cancel();
+        pages.clear();
+        evictedFront.clear();
+        evictedBack.clear();
+        today = LocalDate.now();
+        lowerBound = range.since(today);
+        nextIndex = 0;
+        emptyWindows = 0;
+        endReached = false;
+        searchPaused = false;
+        loadNext();
+    }
+
+    public void cancel() {
+        if (stream != null) {
+            stream.cancel();
+            stream = null;
+        }
+    }
+
+    public boolean isLoading() {
+        return stream != null;
+    }
+
+    public boolean hasMoreAfter() {
+        return !evictedBack.isEmpty() || (!endReached && !searchPaused);
+    }
+
+    /** True when "all time" stopped on a run of empty windows; older history was not searched. */
+    public boolean isSearchPaused() {
+        return searchPaused;
+    }
+
+    /** Oldest day searched so far, or null before the first window completed. */
+    @Nullable
+    public LocalDate searchedSince() {
+        return nextIndex > 0 ? windowStart(nextIndex - 1) : null;
+    }
+
+    /** Resumes a paused search with the next {@link #MAX_EMPTY_WINDOWS} windows. */
+    public void searchOlder() {
+        if (!searchPaused) return;
+        searchPaused = false;
+        emptyWindows = 0;
+        loadNext();
+    }
+
+    public boolean hasMoreBefore() {
+        return !evictedFront.isEmpty();
+    }
+
+    public void loadNext() {
+        if (isLoading()) return;
+        if (!evictedBack.isEmpty()) {
+            loadAfter(evictedBack.pop(), false);
+        } else if (!endReached && !searchPaused) {
+            loadAfter(nextIndex, true);
+        }
+    }
+
+    public void loadPrevious() {
+        if (isLoading() || evictedFront.isEmpty()) return;
+        loadBefore(evictedFront.pop());
+    }
+
+    private void loadAfter(int index, boolean frontier) {
+        Page last = pages.peekLast();
+        // Retry of a page that failed half way: keep filling the same page
+        Page page = last != null && last.index == index ? last : new Page(index);
+        if (page != last) pages.addLast(page);
+        Page neighbour = pageBefore(page);
+
+        stream = JsonListStreamer.start(newCall(index), OwnedParkingSessionDto.class, "data",
+                new JsonListStreamer.Listener<OwnedParkingSessionDto>() {
+                    @Override
+                    public void onItems(List<OwnedParkingSessionDto> items) {
+                        List<OwnedParkingSessionDto> fresh = dedupe(items, page, neighbour);
+                        if (fresh.isEmpty()) return;
+                        page.count += fresh.size();
+                        sink.onAppended(fresh);
+                    }
+
+                    @Override
+                    public void onComplete(int total) {
+                        stream = null;
+                        if (frontier) {
+                            nextIndex = index + 1;
+                            emptyWindows = page.count == 0 ? emptyWindows + 1 : 0;
+                            endReached = isLastWindow(index);
+                            searchPaused = !endReached && emptyWindows >= MAX_EMPTY_WINDOWS;
+                        }
+                        if (page.count == 0) {
+                            pages.remove(page);
+                            // nothing to scroll to, so keep going on our own
+                            if (hasMoreAfter()) {
+                                loadNext();
+                                return;
+                            }
+                        }
+                        trimFront();
+                        sink.onIdle(false);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        stream = null;
+                        if (page.count == 0) {
+                            pages.remove(page);
+                        }
+                        if (!frontier) {
+                            evictedBack.push(index);
+                        }
+                        sink.onIdle(true);
+                    }
+                });
+    }
+
+    private void loadBefore(int index) {
+        Page page = new Page(index);
+        Page neighbour = pages.peekFirst();
+        List<OwnedParkingSessionDto> collected = new ArrayList<>();
+
+        stream = JsonListStreamer.start(newCall(index), OwnedParkingSessionDto.class, "data",
+                new JsonListStreamer.Listener<OwnedParkingSessionDto>() {
+                    @Override
+                    public void onItems(List<OwnedParkingSessionDto> items) {
+                        collected.addAll(dedupe(items, page, neighbour));
+                    }
+
+                    @Override
+                    public void onComplete(int total) {
+                        stream = null;
+                        if (collected.isEmpty()) {
+                            if (hasMoreBefore()) {
+                                loadPrevious();
+                                return;
+                            }
+                        } else {
+                            page.count = collected.size();
+                            pages.addFirst(page);
+                            sink.onPrepended(collected);
+                            trimBack();
+                        }
+                        sink.onIdle(false);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        stream = null;
+                        evictedFront.push(index);
+                        sink.onIdle(true);
+                    }
+                });
+    }
+
+    private void trimFront() {
+        while (pages.size() > MAX_PAGES) {
+            Page dropped = pages.pollFirst();
+            evictedFront.push(dropped.index);
+            sink.onRemovedFirst(dropped.count);
+        }
+    }
+
+    private void trimBack() {
+        while (pages.size() > MAX_PAGES) {
+            Page dropped = pages.pollLast();
+            evictedBack.push(dropped.index);
+            sink.onRemovedLast(dropped.count);
+        }
+    }
+
+    private Page pageBefore(Page page) {
+        Page previous = null;
+        for (Iterator<Page> it = pages.iterator(); it.hasNext(); ) {
+            Page p = it.next();
+            if (p == page) return previous;
+            previous = p;
+        }
+        return null;
+    }
+
+    /** Window edges may be inclusive on the server, so a session can show up in two adjacent pages. */
+    private static List<OwnedParkingSessionDto> dedupe(List<OwnedParkingSessionDto> items, Page page, Page neighbour) {
+        List<OwnedParkingSessionDto> fresh = new ArrayList<>(items.size());
+        for (OwnedParkingSessionDto dto : items) {
+            String id = dto.getId();
+            if (id == null) {
+                fresh.add(dto);
+            } else if ((neighbour == null || !neighbour.ids.contains(id)) && page.ids.add(id)) {
+                fresh.add(dto);
+            }
+        }
+        return fresh;
+    }
+
+    private LocalDate windowEnd(int index) {
+        return today.plusDays(1).minusDays((long) index * PAGE_DAYS);
+    }
+
+    private LocalDate windowStart(int index) {
+        LocalDate start = windowEnd(index).minusDays(PAGE_DAYS);
+        return lowerBound != null && start.isBefore(lowerBound) ? lowerBound : start;
+    }
+
+    private boolean isLastWindow(int index) {
+        return lowerBound != null && !windowStart(index).isAfter(lowerBound);
+    }
+
+    private Call<ResponseBody> newCall(int index) {
+        OwnedSessionRequest request = new OwnedSessionRequest("Desc", "entryDateTime", null);
+        request.setStartEntryDate(windowStart(index));
+        request.setEndEntryDate(windowEnd(index));
+        return api.streamOwnedSessions(
+                userId,
+                request.getStatus(),
+                request.getStartEntryDate().toString(),
+                request.getEndEntryDate().toString(),
+                null,
+                null,
+                request.getOrder(),
+                request.getSortBy(),
+                request.getSearchCriteria());
+    }
+}
@@ -0,0 +1,341 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import retrofit2.Call;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
+import vn.edu.fpt.sapsmobile.database.SyncStateDao;
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse.OwnedParkingSessionDto;
+import vn.edu.fpt.sapsmobile.network.api.IParkingSessionApiService;
+import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.utils.DateTimeHelper;
+import vn.edu.fpt.sapsmobile.utils.SessionStore;
+
+/**
+ * Keeps the stored owned-session history current without downloading it again.
+ * The first sync per user fetches the last {@link #BASELINE_RANGE} only, so it stays
+ * small however long the account has been parking; older history is paged from the
+ * server by {@link SessionHistoryPager} when a filter reaches past it (see
+ * {@code SyncStateDao.State.coveredFrom}). Later syncs only ask for sessions that
+ * entered since the entry high-water mark (StartEntryDate) or exited since the change
+ * high-water mark (StartExitDate). Stale rows (left their status, see
+ * {@code SessionDao.replaceStatus}) pull the entry query back far enough to refresh them.
+ *
+ * The filters are whole days, so each delta re-reads the last day; merging is an
+ * upsert by ID, so overlap is harmless. Bytes saved are estimated against the size a
+ * full download would have had, using the bytes per row measured on the baseline sync.
+ *
+ * Call {@link #sync} from the main thread; the callback runs there too.
+ */
+public class SessionSyncEngine {
+    private static final String TAG = "SessionSyncEngine";
+    public static final SessionHistoryPager.Range BASELINE_RANGE = SessionHistoryPager.Range.LAST_3_MONTHS;
+
+    public interface Callback {
+        void onSynced(Result result);
+
+        void onSyncFailed(Throwable t);
+    }
+
+    public static final class Result {
+        public final boolean full;
+        public final int fetched;
+        public final long bytesDownloaded;
+        public final long bytesSaved;
+
+        Result(boolean full, int fetched, long bytesDownloaded, long bytesSaved) {
+            this.full = full;
+            this.fetched = fetched;
+            this.bytesDownloaded = bytesDownloaded;
+            this.bytesSaved = bytesSaved;
+        }
+    }
+
+    private static volatile SessionSyncEngine instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-sync");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Context appContext;
+    private final AppDatabase db;
+
+    // Main thread only: callers waiting on the sync in flight, per user
+    private final Map<String, List<Callback>> inFlight = new HashMap<>();
+
+    private SessionSyncEngine(Context context) {
+        appContext = context.getApplicationContext();
+        db = AppDatabase.getInstance(appContext);
+    }
+
+    public static SessionSyncEngine getInstance(Context context) {
+        SessionSyncEngine e = instance;
+        if (e == null) {
+            synchronized (SessionSyncEngine.class) {
+                e = instance;
+                if (e == null) {
+                    e = new SessionSyncEngine(context);
+                    instance = e;
+                }
+            }
+        }
+        return e;
+    }
+
+    /** Starts a sync, or joins the one already running for this user. */
+    public void sync(String userId, @Nullable Callback callback) {
+        List<Callback> waiting = inFlight.get(userId);
+        if (waiting != null) {
+            if (callback != null) waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        if (callback != null) waiting.add(callback);
+        inFlight.put(userId, waiting);
+
+        db.read(() -> {
+            try {
+                return new Baseline(db.syncState().get(userId), db.sessions().oldestStaleEntry(userId));
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to read sync state", e);
+                return null;
+            }
+        }, baseline -> {
+            if (baseline == null) {
+                finish(userId, null, new IllegalStateException("Sync state unavailable"));
+            } else {
+                executor.execute(() -> download(userId, baseline));
+            }
+        });
+    }
+
+    private static final class Baseline {
+        @Nullable final SyncStateDao.State state;
+        final long oldestStaleEntry;
+
+        Baseline(@Nullable SyncStateDao.State state, long oldestStaleEntry) {
+            this.state = state;
+            this.oldestStaleEntry = oldestStaleEntry;
+        }
+    }
+
+    /** Runs on the sync thread. */
+    private void download(String userId, Baseline baseline) {
+        IParkingSessionApiService api = ApiClient.getServiceLast(appContext).create(IParkingSessionApiService.class);
+        List<OwnedParkingSessionDto> fetched = new ArrayList<>();
+        long bytes;
+        long coveredFrom = -1; // entry times from here on were fully re-read
+        try {
+            if (baseline.state == null) {
+                LocalDate since = BASELINE_RANGE.since(LocalDate.now(ZoneOffset.UTC));
+                coveredFrom = since.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                bytes = fetch(api, userId, since, null, fetched);
+            } else {
+                long entryFrom = baseline.state.entryHighWaterMark;
+                if (baseline.oldestStaleEntry >= 0 && baseline.oldestStaleEntry < entryFrom) {
+                    entryFrom = baseline.oldestStaleEntry;
+                }
+                LocalDate entryDay = dayOf(entryFrom);
+                coveredFrom = entryDay.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                bytes = fetch(api, userId, entryDay, null, fetched);
+                bytes += fetch(api, userId, null, dayOf(baseline.state.changeHighWaterMark), fetched);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Session sync failed", e);
+            mainHandler.post(() -> finish(userId, null, e));
+            return;
+        }
+
+        long downloaded = bytes;
+        long covered = coveredFrom;
+        db.read(() -> {
+            try {
+                return merge(userId, baseline.state, fetched, downloaded, covered);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to store synced sessions", e);
+                return null;
+            }
+        }, result -> finish(userId, result,
+                result == null ? new IllegalStateException("Failed to store synced sessions") : null));
+    }
+
+    /** Runs on the database thread; the high-water marks only move once the rows are stored. */
+    private Result merge(String userId, @Nullable SyncStateDao.State previous,
+                         List<OwnedParkingSessionDto> fetched, long bytesDownloaded, long coveredFrom) {
+        db.sessions().upsertAll(userId, fetched);
+        db.sessions().deleteStale(userId, coveredFrom);
+
+        SyncStateDao.State state = new SyncStateDao.State();
+        boolean full = previous == null;
+        if (full) {
+            state.entryHighWaterMark = -1;
+            state.changeHighWaterMark = -1;
+            state.bytesPerRow = fetched.isEmpty() ? 0 : bytesDownloaded / fetched.size();
+            state.coveredFrom = coveredFrom;
+        } else {
+            state.entryHighWaterMark = previous.entryHighWaterMark;
+            state.changeHighWaterMark = previous.changeHighWaterMark;
+            state.bytesPerRow = previous.bytesPerRow;
+            state.bytesSavedTotal = previous.bytesSavedTotal;
+            state.coveredFrom = previous.coveredFrom;
+            if (state.bytesPerRow == 0 && !fetched.isEmpty()) {
+                // the full sync was empty, so measure on the first rows we see
+                state.bytesPerRow = bytesDownloaded / fetched.size();
+            }
+        }
+        for (OwnedParkingSessionDto dto : fetched) {
+            long entry = DateTimeHelper.toEpochMillis(dto.getEntryDateTime());
+            long exit = DateTimeHelper.toEpochMillis(dto.getExitDateTime());
+            state.entryHighWaterMark = Math.max(state.entryHighWaterMark, entry);
+            state.changeHighWaterMark = Math.max(state.changeHighWaterMark, Math.max(entry, exit));
+        }
+        if (state.entryHighWaterMark < 0) {
+            // Nothing parseable yet: start from now next time, everything older is already here
+            state.entryHighWaterMark = System.currentTimeMillis();
+        }
+        if (state.changeHighWaterMark < 0) {
+            state.changeHighWaterMark = state.entryHighWaterMark;
+        }
+
+        long saved = 0;
+        if (!full) {
+            long fullSize = state.bytesPerRow * db.sessions().count(userId);
+            saved = Math.max(0, fullSize - bytesDownloaded);
+            state.bytesSavedTotal += saved;
+        }
+        state.lastSyncAt = System.currentTimeMillis();
+        db.syncState().put(userId, state);
+
+        Log.i(TAG, (full ? "Full" : "Delta") + " sync: " + fetched.size() + " sessions, "
+                + bytesDownloaded + " bytes, saved " + saved + " (total " + state.bytesSavedTotal + ")");
+        return new Result(full, fetched.size(), bytesDownloaded, saved);
+    }
+
+    private void finish(String userId, @Nullable Result result, @Nullable Throwable error) {
+        List<Callback> waiting = inFlight.remove(userId);
+        if (waiting == null) return;
+        for (Callback cb : waiting) {
+            if (result != null) {
+                cb.onSynced(result);
+            } else {
+                cb.onSyncFailed(error);
+            }
+        }
+    }
+
+    /**
+     * Appends the sessions to {@code into} and returns the response size in bytes. The
+     * body is parsed as it downloads, so only the parsed rows are held, never the raw JSON.
+     */
+    private static long fetch(IParkingSessionApiService api, String userId,
+                              @Nullable LocalDate startEntry, @Nullable LocalDate startExit,
+                              List<OwnedParkingSessionDto> into) throws IOException {
+        Call<ResponseBody> call = api.streamOwnedSessions(
+                userId,
+                null,
+                startEntry != null ? startEntry.toString() : null,
+                null,
+                startExit != null ? startExit.toString() : null,
+                null,
+                "Asc",
+                "entryDateTime",
+                null);
+        Response<ResponseBody> response = call.execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new HttpException(response);
+        }
+        try (ResponseBody body = response.body()) {
+            CountingSource counted = new CountingSource(body.source());
+            try (JsonReader reader = new JsonReader(new InputStreamReader(
+                    Okio.buffer(counted).inputStream(), StandardCharsets.UTF_8))) {
+                readSessions(reader, into);
+            }
+            return counted.bytesRead;
+        }
+    }
+
+    /** Reads the {@code data} array of the envelope (or a bare array); other fields are skipped. */
+    private static void readSessions(JsonReader reader, List<OwnedParkingSessionDto> into) throws IOException {
+        TypeAdapter<OwnedParkingSessionDto> adapter = SessionStore.gson().getAdapter(OwnedParkingSessionDto.class);
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            readArray(reader, adapter, into);
+            return;
+        }
+        if (token != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readArray(reader, adapter, into);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readArray(JsonReader reader, TypeAdapter<OwnedParkingSessionDto> adapter,
+                                  List<OwnedParkingSessionDto> into) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            OwnedParkingSessionDto dto = adapter.read(reader);
+            if (dto != null) into.add(dto);
+        }
+        reader.endArray();
+    }
+
+    /** Counts the body bytes as the parser pulls them. */
+    private static final class CountingSource extends ForwardingSource {
+        long bytesRead;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) bytesRead += read;
+            return read;
+        }
+    }
+
+    private static LocalDate dayOf(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -0,0 +1,45 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
+import vn.edu.fpt.sapsmobile.utils.TokenManager;
+
+/**
+ * Ends the signed-in session: tokens, queued uploads, cached responses and local rows.
+ * Run by {@link AuthenticationService} on sign-out and by TokenInterceptor when the
+ * session cannot be refreshed. Safe from any thread; the disk work is done off the caller.
+ */
+public final class SessionTeardown {
+    private static final String TAG = "SessionTeardown";
+
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "saps-teardown");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SessionTeardown() {
+    }
+
+    public static void run(Context context, String reason) {
+        Context appContext = context.getApplicationContext();
+        Log.i(TAG, "Ending session: " + reason);
+
+        // Synchronous, so requests already under way stop picking up the old token
+        new TokenManager(appContext).clearTokens();
+        // Before the rows go: queued uploads must not be sent with the next account's token
+        UploadQueue.getInstance(appContext).cancelAll();
+
+        io.execute(() -> {
+            // Cached responses belong to the signed-out account
+            HttpCacheProvider.evictAll();
+            AppDatabase.getInstance(appContext).clearAll();
+        });
+    }
+}
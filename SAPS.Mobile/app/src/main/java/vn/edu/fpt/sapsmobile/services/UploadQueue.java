@@ -0,0 +1,534 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import vn.edu.fpt.sapsmobile.R;
+import vn.edu.fpt.sapsmobile.database.AppDatabase;
+import vn.edu.fpt.sapsmobile.database.UploadJobDao;
+import vn.edu.fpt.sapsmobile.dtos.vehicle.MessageServerResponse;
+import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
+import vn.edu.fpt.sapsmobile.network.api.IVehicleApi;
+import vn.edu.fpt.sapsmobile.network.api.IVehicleRegistraionCertOrcApi;
+import vn.edu.fpt.sapsmobile.network.api.OcrService;
+import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
+import vn.edu.fpt.sapsmobile.network.client.UploadRequestBody;
+import vn.edu.fpt.sapsmobile.utils.StringUtils;
+
+/**
+ * Sends image uploads so that a dropped connection does not cost the user the whole flow.
+ * A transport error, 408, 429 or 5xx is retried with exponential backoff and jitter;
+ * while the device is offline the job waits for the default network to come back
+ * instead of burning attempts. Any other response ends the job.
+ *
+ * Vehicle registration and profile updates are persistent: their images are copied to
+ * app storage and the job is kept in {@link UploadJobDao} until it ends, so it resumes
+ * after process death (see {@link #getInstance}, called from MainActivity). Each job ID is
+ * sent as {@code Idempotency-Key}, but the server does not deduplicate on it, so a resend
+ * after a lost response is applied again. For a profile update that rewrites the same
+ * values; for a registration that already went through the server answers
+ * VEHICLE_ALREADY_EXISTS, which counts as success once the plate is among the user's own
+ * vehicles (see {@link #alreadyRegistered}).
+ * OCR uploads are memory-only: their result is only useful to the screen that asked,
+ * so they are dropped when that screen goes away.
+ *
+ * Jobs run one at a time on the queue thread. Observers are called on the main thread.
+ */
+public class UploadQueue {
+    private static final String TAG = "UploadQueue";
+
+    public static final String KIND_REGISTER_VEHICLE = "register_vehicle";
+    public static final String KIND_UPDATE_CLIENT_PROFILE = "update_client_profile";
+    public static final String KIND_VEHICLE_OCR = "vehicle_ocr";
+
+    private static final String DIR = "upload-queue";
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_DELAY_MS = 2_000;
+    private static final long MAX_DELAY_MS = 5 * 60_000;
+    private static final MediaType TEXT = MediaType.parse("text/plain");
+    private static final String VEHICLE_ALREADY_EXISTS = "VEHICLE_ALREADY_EXISTS";
+    private static final String VEHICLE_CREATED_SUCCESSFULLY = "VEHICLE_CREATED_SUCCESSFULLY";
+
+    public interface Observer {
+        void onProgress(int percent);
+
+        /** The job could not be sent yet (attempt failed, or offline) and will be retried. */
+        void onWaiting(int attempt);
+
+        void onFinished(Outcome outcome);
+    }
+
+    public static final class Outcome {
+        public final String jobId;
+        public final String kind;
+        /** HTTP status, or 0 when no response was received. */
+        public final int code;
+        @Nullable public final Object body;
+        @Nullable public final String errorBody;
+        @Nullable public final Throwable error;
+
+        Outcome(String jobId, String kind, int code, @Nullable Object body,
+                @Nullable String errorBody, @Nullable Throwable error) {
+            this.jobId = jobId;
+            this.kind = kind;
+            this.code = code;
+            this.body = body;
+            this.errorBody = errorBody;
+            this.error = error;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+
+    private static final class Job {
+        final UploadJobDao.Job data;
+        final boolean persistent;
+        volatile boolean cancelled;
+        volatile Call<?> call;
+        ScheduledFuture<?> retry;
+        boolean waitingForNetwork;
+        // An earlier attempt may have reached the server: it failed, or the process died during it
+        boolean mayBeApplied;
+
+        Job(UploadJobDao.Job data, boolean persistent) {
+            this.data = data;
+            this.persistent = persistent;
+        }
+    }
+
+    private static volatile UploadQueue instance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "upload-queue");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Context appContext;
+    private final AppDatabase db;
+    private final Retrofit retrofit;
+    private final File dir;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Main thread only
+    private final Map<String, Observer> observers = new HashMap<>();
+    private volatile boolean online;
+    // Bumped by cancelAll(), so a restore that was already under way does not revive jobs
+    private volatile int generation;
+
+    private UploadQueue(Context context) {
+        this(context, ApiClient.getServiceLast(context));
+    }
+
+    // Tests point the queue at their own server
+    UploadQueue(Context context, Retrofit retrofit) {
+        appContext = context.getApplicationContext();
+        db = AppDatabase.getInstance(appContext);
+        this.retrofit = retrofit;
+        dir = new File(appContext.getFilesDir(), DIR);
+
+        ConnectivityManager cm = appContext.getSystemService(ConnectivityManager.class);
+        online = cm.getActiveNetwork() != null;
+        cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                online = true;
+                executor.execute(UploadQueue.this::resumeAll);
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                online = false;
+            }
+        });
+
+        restore();
+    }
+
+    /** Creating the queue also picks up jobs left over from an earlier process. */
+    public static UploadQueue getInstance(Context context) {
+        UploadQueue q = instance;
+        if (q == null) {
+            synchronized (UploadQueue.class) {
+                q = instance;
+                if (q == null) {
+                    q = new UploadQueue(context);
+                    instance = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    /**
+     * Queues a two-image upload and returns its job ID. Text {@code fields} are keyed by
+     * their multipart part name. For persistent kinds the images are copied first, so the
+     * caller's files may be deleted afterwards.
+     */
+    public String enqueue(String kind, Map<String, String> fields, File front, File back) {
+        UploadJobDao.Job data = new UploadJobDao.Job();
+        data.id = UUID.randomUUID().toString();
+        data.kind = kind;
+        data.fields.putAll(fields);
+        data.frontPath = front.getAbsolutePath();
+        data.backPath = back.getAbsolutePath();
+        data.createdAt = System.currentTimeMillis();
+        Job job = new Job(data, !KIND_VEHICLE_OCR.equals(kind));
+        jobs.put(data.id, job);
+
+        executor.execute(() -> {
+            if (job.persistent) {
+                try {
+                    data.frontPath = keep(front, data.id + "-front.jpg");
+                    data.backPath = keep(back, data.id + "-back.jpg");
+                } catch (IOException e) {
+                    finish(job, new Outcome(data.id, kind, 0, null, null, e));
+                    return;
+                }
+                if (job.cancelled) {
+                    deleteKept(data.frontPath);
+                    deleteKept(data.backPath);
+                    return;
+                }
+                db.write(() -> db.uploadJobs().insert(data));
+            }
+            run(job);
+        });
+        return data.id;
+    }
+
+    /**
+     * Delivers the job's progress and outcome to {@code observer} until {@code owner} is
+     * destroyed. A memory-only job is cancelled with its owner; a persistent one keeps
+     * going and reports its outcome with a toast instead.
+     */
+    public void observe(LifecycleOwner owner, String jobId, Observer observer) {
+        observers.put(jobId, observer);
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event != Lifecycle.Event.ON_DESTROY) return;
+            if (observers.get(jobId) == observer) observers.remove(jobId);
+            Job job = jobs.get(jobId);
+            if (job != null && !job.persistent) cancel(job);
+        });
+    }
+
+    /** Main thread: stops the job and drops it without an outcome. */
+    public void cancel(String jobId) {
+        observers.remove(jobId);
+        Job job = jobs.get(jobId);
+        if (job != null) cancel(job);
+    }
+
+    /**
+     * Stops and forgets every job, including the persistent ones, and deletes their kept
+     * images. Called on logout: a job queued for one account must never be sent with the
+     * next account's token. Any thread.
+     */
+    public void cancelAll() {
+        generation++;
+        for (Job job : jobs.values()) {
+            job.cancelled = true;
+            Call<?> call = job.call;
+            if (call != null) call.cancel();
+        }
+        mainHandler.post(observers::clear);
+        executor.execute(() -> {
+            for (Job job : jobs.values()) {
+                if (!job.cancelled) continue; // enqueued after this call
+                if (job.retry != null) job.retry.cancel(false);
+                jobs.remove(job.data.id);
+                if (job.persistent) {
+                    db.write(() -> db.uploadJobs().delete(job.data.id));
+                    deleteKept(job.data.frontPath);
+                    deleteKept(job.data.backPath);
+                }
+            }
+            deleteOrphans();
+        });
+    }
+
+    private void cancel(Job job) {
+        job.cancelled = true;
+        Call<?> call = job.call;
+        if (call != null) call.cancel();
+        executor.execute(() -> {
+            if (job.retry != null) job.retry.cancel(false);
+            jobs.remove(job.data.id);
+            if (job.persistent) {
+                db.write(() -> db.uploadJobs().delete(job.data.id));
+                deleteKept(job.data.frontPath);
+                deleteKept(job.data.backPath);
+            }
+        });
+    }
+
+    private void restore() {
+        int restoring = generation;
+        db.read(() -> db.uploadJobs().findAll(), stored -> executor.execute(() -> {
+            if (restoring != generation) return; // logged out meanwhile; rows are being cleared
+            for (UploadJobDao.Job data : stored) {
+                if (jobs.containsKey(data.id)) continue;
+                Job job = new Job(data, true);
+                job.mayBeApplied = true;
+                jobs.put(data.id, job);
+                Log.i(TAG, "Resuming " + data.kind + " " + data.id + " after " + data.attempts + " attempts");
+                run(job);
+            }
+            deleteOrphans();
+        }));
+    }
+
+    /** Queue thread: the network is back, so jobs sleeping in backoff go now. */
+    private void resumeAll() {
+        for (Job job : jobs.values()) {
+            if (job.waitingForNetwork || (job.retry != null && job.retry.cancel(false))) {
+                job.retry = null;
+                run(job);
+            }
+        }
+    }
+
+    /** Queue thread. */
+    private void run(Job job) {
+        if (job.cancelled) return;
+        if (!online) {
+            if (!job.waitingForNetwork) notifyWaiting(job);
+            job.waitingForNetwork = true;
+            return;
+        }
+        job.waitingForNetwork = false;
+
+        UploadJobDao.Job data = job.data;
+        Response<?> response;
+        try {
+            Call<?> call = newCall(data);
+            job.call = call;
+            if (job.cancelled) return; // cancelled before the call could be
+            response = call.execute();
+        } catch (IOException | RuntimeException e) {
+            if (job.cancelled) return;
+            retryLater(job, e, 0, null);
+            return;
+        } finally {
+            job.call = null;
+        }
+
+        String errorBody = null;
+        if (!response.isSuccessful() && response.errorBody() != null) {
+            try {
+                errorBody = response.errorBody().string();
+            } catch (IOException ignored) {
+                // status code alone still decides what happens next
+            }
+        }
+        int code = response.code();
+        if (code == 408 || code == 429 || code >= 500) {
+            retryLater(job, null, code, errorBody);
+            return;
+        }
+        if (code == 400 && job.mayBeApplied && KIND_REGISTER_VEHICLE.equals(data.kind)
+                && errorBody != null && errorBody.contains(VEHICLE_ALREADY_EXISTS)) {
+            Boolean registered = alreadyRegistered(data.fields.get("LicensePlate"));
+            if (registered == null) {
+                retryLater(job, null, code, errorBody); // could not tell; ask again after the backoff
+                return;
+            }
+            if (registered) {
+                Log.i(TAG, data.id + " was applied by an earlier attempt whose response was lost");
+                MessageServerResponse created = new MessageServerResponse();
+                created.setMessage(VEHICLE_CREATED_SUCCESSFULLY);
+                finish(job, new Outcome(data.id, data.kind, 200, created, null, null));
+                return;
+            }
+        }
+        finish(job, new Outcome(data.id, data.kind, code, response.body(), errorBody, null));
+    }
+
+    /**
+     * Queue thread: whether {@code plate} is one of the user's own vehicles, i.e. an earlier
+     * attempt of this registration was applied; null if the list could not be fetched.
+     */
+    @Nullable
+    private Boolean alreadyRegistered(@Nullable String plate) {
+        String key = StringUtils.normalizePlate(plate);
+        if (key == null) return false;
+        Response<List<VehicleSummaryDto>> response;
+        try {
+            response = retrofit.create(IVehicleApi.class)
+                    .getMyVehicles(null, null, HttpCacheProvider.NO_CACHE)
+                    .execute();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        if (!response.isSuccessful() || response.body() == null) return null;
+        for (VehicleSummaryDto vehicle : response.body()) {
+            if (key.equals(StringUtils.normalizePlate(vehicle.getLicensePlate()))) return true;
+        }
+        return false;
+    }
+
+    private void retryLater(Job job, @Nullable Throwable error, int code, @Nullable String errorBody) {
+        UploadJobDao.Job data = job.data;
+        job.mayBeApplied = true;
+        data.attempts++;
+        if (data.attempts >= MAX_ATTEMPTS) {
+            Log.w(TAG, data.kind + " " + data.id + " gave up after " + data.attempts + " attempts", error);
+            finish(job, new Outcome(data.id, data.kind, code, null, errorBody, error));
+            return;
+        }
+        if (job.persistent) {
+            int attempts = data.attempts;
+            db.write(() -> db.uploadJobs().updateAttempts(data.id, attempts));
+        }
+
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << (data.attempts - 1));
+        // Full jitter in the upper half, so retries from many clients do not line up
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        Log.i(TAG, data.kind + " " + data.id + " attempt " + data.attempts + " failed ("
+                + (error != null ? error.getClass().getSimpleName() : "HTTP " + code) + "), retry in " + delay + " ms");
+        job.retry = executor.schedule(() -> {
+            job.retry = null;
+            run(job);
+        }, delay, TimeUnit.MILLISECONDS);
+
+        notifyWaiting(job);
+    }
+
+    private void notifyWaiting(Job job) {
+        String id = job.data.id;
+        int attempt = job.data.attempts;
+        mainHandler.post(() -> {
+            Observer observer = observers.get(id);
+            if (observer != null) observer.onWaiting(attempt);
+        });
+    }
+
+    private void finish(Job job, Outcome outcome) {
+        UploadJobDao.Job data = job.data;
+        jobs.remove(data.id);
+        if (job.persistent) {
+            db.write(() -> db.uploadJobs().delete(data.id));
+            deleteKept(data.frontPath);
+            deleteKept(data.backPath);
+        }
+        if (job.cancelled) return;
+
+        mainHandler.post(() -> {
+            Observer observer = observers.remove(data.id);
+            if (observer != null) {
+                observer.onFinished(outcome);
+            } else if (job.persistent) {
+                // The screen that started it is gone; still tell the user how it ended
+                String message = outcome.isSuccessful()
+                        ? appContext.getString(KIND_REGISTER_VEHICLE.equals(data.kind)
+                        ? R.string.toast_vehicle_registration_sent : R.string.toast_profile_request_submitted)
+                        : appContext.getString(R.string.toast_upload_failed,
+                        outcome.code != 0 ? "HTTP " + outcome.code : String.valueOf(outcome.error));
+                Toast.makeText(appContext, message, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private Call<?> newCall(UploadJobDao.Job data) {
+        UploadRequestBody.Progress progress = new UploadRequestBody.Progress(percent -> {
+            Observer observer = observers.get(data.id);
+            if (observer != null) observer.onProgress(percent);
+        });
+        RequestBody front = UploadRequestBody.jpeg(new File(data.frontPath), progress);
+        RequestBody back = UploadRequestBody.jpeg(new File(data.backPath), progress);
+        Map<String, String> f = data.fields;
+
+        switch (data.kind) {
+            case KIND_REGISTER_VEHICLE:
+                return retrofit.create(OcrService.class).registerVehicle(
+                        data.id,
+                        MultipartBody.Part.createFormData("FrontVehicleRegistrationCertImage", "front.jpg", front),
+                        MultipartBody.Part.createFormData("BackVehicleRegistrationCertImage", "back.jpg", back),
+                        text(f, "LicensePlate"), text(f, "Brand"), text(f, "Model"),
+                        text(f, "EngineNumber"), text(f, "ChassisNumber"), text(f, "Color"),
+                        text(f, "OwnerVehicleFullName"), text(f, "VehicleType"));
+            case KIND_UPDATE_CLIENT_PROFILE:
+                return retrofit.create(OcrService.class).updateClientProfile(
+                        data.id,
+                        MultipartBody.Part.createFormData("FrontCitizenCardImage", "front.jpg", front),
+                        MultipartBody.Part.createFormData("BackCitizenCardImage", "back.jpg", back),
+                        text(f, "CitizenId"), text(f, "DateOfBirth"), text(f, "Sex"),
+                        text(f, "Nationality"), text(f, "PlaceOfOrigin"), text(f, "PlaceOfResidence"),
+                        text(f, "FullName"), text(f, "Phone"), text(f, "Id"));
+            case KIND_VEHICLE_OCR:
+                return retrofit.create(IVehicleRegistraionCertOrcApi.class)
+                        .uploadVehicleRegistration(
+                                MultipartBody.Part.createFormData("frontImage", "front.jpg", front),
+                                MultipartBody.Part.createFormData("backImage", "back.jpg", back));
+            default:
+                throw new IllegalArgumentException("Unknown upload kind " + data.kind);
+        }
+    }
+
+    private static RequestBody text(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return RequestBody.create(value != null ? value : "", TEXT);
+    }
+
+    private String keep(File source, String name) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File target = new File(dir, name);
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return target.getAbsolutePath();
+    }
+
+    private void deleteKept(String path) {
+        File file = new File(path);
+        if (dir.equals(file.getParentFile())) file.delete(); // never the caller's original
+    }
+
+    /** Queue thread: removes files whose job row is gone, e.g. after logout cleared the table. */
+    private void deleteOrphans() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            int dash = name.lastIndexOf('-');
+            if (dash < 0 || !jobs.containsKey(name.substring(0, dash))) {
+                file.delete();
+            }
+        }
+    }
+}
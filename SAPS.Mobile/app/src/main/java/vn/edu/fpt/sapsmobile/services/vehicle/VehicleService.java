@@ -1,10 +1,12 @@
 package vn.edu.fpt.sapsmobile.services.vehicle;
 
 import android.content.Context;
+import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -14,8 +16,11 @@ import vn.edu.fpt.sapsmobile.enums.ShareVehicleStatus;
 import vn.edu.fpt.sapsmobile.network.api.ISharedvehicle;
 import vn.edu.fpt.sapsmobile.network.api.IVehicleApi;
 import vn.edu.fpt.sapsmobile.network.client.ApiClient;
+import vn.edu.fpt.sapsmobile.network.client.HttpCacheProvider;
 
 public class VehicleService {
+    private static final String TAG = "VehicleService";
+
     // API Services
     private IVehicleApi vehicleApi;
     private ISharedvehicle sharedVehicleApi;
@@ -38,42 +43,89 @@ public class VehicleService {
     }
 
     public void loadMyVehicles(VehicleCallBack callBack) {
-        Call<List<VehicleSummaryDto>> call = vehicleApi.getMyVehicles(null, null);
+        loadMyVehicles(callBack, false);
+    }
+
+    /** {@code refresh}: user asked for it (or just changed something), so skip the cached copy. */
+    public void loadMyVehicles(VehicleCallBack callBack, boolean refresh) {
+        // Render the cached copy first (if any), then reconcile with the network
+        AtomicBoolean freshDelivered = new AtomicBoolean(false);
+        AtomicBoolean cacheDelivered = new AtomicBoolean(false);
+        if (!refresh) {
+            vehicleApi.getMyVehiclesCached(null, null).enqueue(new Callback<List<VehicleSummaryDto>>() {
+                @Override
+                public void onResponse(Call<List<VehicleSummaryDto>> call, Response<List<VehicleSummaryDto>> response) {
+                    if (response.isSuccessful() && response.body() != null && !freshDelivered.get()) {
+                        cacheDelivered.set(true);
+                        callBack.OnVehicleFetchSuccess(response.body());
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<List<VehicleSummaryDto>> call, Throwable t) {
+                    // Cache miss is not an error, the network call below will answer
+                }
+            });
+        }
+
+        Call<List<VehicleSummaryDto>> call = vehicleApi.getMyVehicles(null, null,
+                refresh ? HttpCacheProvider.NO_CACHE : null);
         call.enqueue(new Callback<List<VehicleSummaryDto>>() {
             @Override
             public void onResponse(Call<List<VehicleSummaryDto>> call, Response<List<VehicleSummaryDto>> response) {
                 if (response.isSuccessful() && response.body() != null) {
+                    freshDelivered.set(true);
                     callBack.OnVehicleFetchSuccess(response.body());
-                } else {
+                } else if (!cacheDelivered.get()) {
                     callBack.OnVehicleFetchFailure(handleApiError("Network error loading vehicles", response.code(), null));
                 }
             }
 
             @Override
             public void onFailure(Call<List<VehicleSummaryDto>> call, Throwable t) {
+                if (cacheDelivered.get()) {
+                    Log.w(TAG, "loadMyVehicles: keeping cached data, network failed", t);
+                    return;
+                }
                 callBack.OnVehicleFetchFailure(handleApiError("Network error loading vehicles", -1, t));
             }
         });
     }
 
     public void loadSharedVehicles(String userId, VehicleCallBack callBack) {
-        Call<List<VehicleSummaryDto>> call = sharedVehicleApi.getShareVehicles(userId);
+        loadSharedVehicles(userId, callBack, false);
+    }
+
+    public void loadSharedVehicles(String userId, VehicleCallBack callBack, boolean refresh) {
+        // Render the cached copy first (if any), then reconcile with the network
+        AtomicBoolean freshDelivered = new AtomicBoolean(false);
+        AtomicBoolean cacheDelivered = new AtomicBoolean(false);
+        if (!refresh) {
+            sharedVehicleApi.getShareVehiclesCached(userId).enqueue(new Callback<List<VehicleSummaryDto>>() {
+                @Override
+                public void onResponse(Call<List<VehicleSummaryDto>> call, Response<List<VehicleSummaryDto>> response) {
+                    if (response.isSuccessful() && response.body() != null && !freshDelivered.get()) {
+                        cacheDelivered.set(true);
+                        callBack.OnSharedVehicleFetchSuccess(filterAcceptedShares(response.body()));
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<List<VehicleSummaryDto>> call, Throwable t) {
+                    // Cache miss is not an error, the network call below will answer
+                }
+            });
+        }
+
+        Call<List<VehicleSummaryDto>> call = sharedVehicleApi.getShareVehicles(userId,
+                refresh ? HttpCacheProvider.NO_CACHE : null);
         call.enqueue(new Callback<List<VehicleSummaryDto>>() {
             @Override
             public void onResponse(Call<List<VehicleSummaryDto>> call, Response<List<VehicleSummaryDto>> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    List<VehicleSummaryDto> list = new ArrayList<>(response.body());
-
-                    Iterator<VehicleSummaryDto> iterator = list.iterator();
-                    while (iterator.hasNext()) {
-                        var s = iterator.next();
-                        if (ShareVehicleStatus.PENDING.getValue().equals(s.getSharingStatus()) ||
-                                ShareVehicleStatus.AVAILABLE.getValue().equals(s.getSharingStatus())) {
-                            iterator.remove();
-                        }
-                    }
-                    callBack.OnSharedVehicleFetchSuccess(list);
-                } else {
+                    freshDelivered.set(true);
+                    callBack.OnSharedVehicleFetchSuccess(filterAcceptedShares(response.body()));
+                } else if (!cacheDelivered.get()) {
                     callBack.OnVehicleFetchFailure(
                             handleApiError("Failed to load shared vehicles", response.code(), null)
                     );
@@ -82,6 +134,10 @@ public class VehicleService {
 
             @Override
             public void onFailure(Call<List<VehicleSummaryDto>> call, Throwable t) {
+                if (cacheDelivered.get()) {
+                    Log.w(TAG, "loadSharedVehicles: keeping cached data, network failed", t);
+                    return;
+                }
                 callBack.OnSharedVehicleFetchFailure(
                         handleApiError("Network error loading shared vehicles", -1, t)
                 );
@@ -89,6 +145,20 @@ public class VehicleService {
         });
     }
 
+    private List<VehicleSummaryDto> filterAcceptedShares(List<VehicleSummaryDto> body) {
+        List<VehicleSummaryDto> list = new ArrayList<>(body);
+
+        Iterator<VehicleSummaryDto> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            var s = iterator.next();
+            if (ShareVehicleStatus.PENDING.getValue().equals(s.getSharingStatus()) ||
+                    ShareVehicleStatus.AVAILABLE.getValue().equals(s.getSharingStatus())) {
+                iterator.remove();
+            }
+        }
+        return list;
+    }
+
     private String handleApiError(String message, int responseCode, Throwable throwable) {
         String errorMessage = message;
 
@@ -1,5 +1,8 @@
 package vn.edu.fpt.sapsmobile.utils;
 
+import android.util.Log;
+
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
@@ -7,31 +10,18 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 
 public class DateTimeHelper {
+    private static final String TAG = "DateTimeHelper";
 
     // Output format for Vietnamese locale
     private static final DateTimeFormatter OUTPUT_FORMAT =
             DateTimeFormatter.ofPattern("HH'h'mm dd/MM/yyyy", new Locale("vi"));
     private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
 
-    private static final DateTimeFormatter FORMATTER_WITH_SPACE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    // Input formatters for various datetime patterns
-    private static final List<DateTimeFormatter> INPUT_FORMATTERS = new ArrayList<>();
-
-    static {
-        INPUT_FORMATTERS.add(DateTimeFormatter.ISO_LOCAL_DATE_TIME);            // 2025-07-03T14:30:00
-        INPUT_FORMATTERS.add(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm")); // 2025-07-03T14:30
-        INPUT_FORMATTERS.add(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")); // 2025-07-03 14:30:00
-        INPUT_FORMATTERS.add(DateTimeFormatter.ofPattern("yyyy-MM-dd"));         // 2025-07-03 (-> 00:00)
-        // Add UTC formats
-        INPUT_FORMATTERS.add(DateTimeFormatter.ISO_OFFSET_DATE_TIME);            // 2025-07-03T14:30:00Z or +00:00
-        INPUT_FORMATTERS.add(DateTimeFormatter.ISO_INSTANT);                     // 2025-07-03T14:30:00Z
-    }
+    // Input shapes (2025-07-03, 2025-07-03T14:30[:00[.1234567]], space instead of 'T',
+    // optional Z / +07:00) are recognised by TimestampParser in one pass
 
     /**
      * Format datetime string (supports UTC input) to local device timezone.
@@ -64,15 +54,12 @@ public class DateTimeHelper {
      * Output: "14h30 ngày 03/07/2025" in Vietnam timezone.
      */
     public static ZonedDateTime changeToUCT7(String input) {
-
-        LocalDateTime localDateTime = LocalDateTime.parse(input);
-
-        // Treat the input as UTC (map to UTC 0)
-        ZonedDateTime entry = localDateTime.atZone(ZoneOffset.UTC);
-        if (entry == null) return null;
-        ZonedDateTime vietnamDateTime = entry.withZoneSameInstant(VIETNAM_ZONE);
-
-        return vietnamDateTime;
+        // Treat input without offset as UTC (map to UTC 0)
+        ZonedDateTime entry = parse(input, ZoneOffset.UTC);
+        if (entry == null) {
+            throw new DateTimeParseException("Unrecognised timestamp", String.valueOf(input), 0);
+        }
+        return entry.withZoneSameInstant(VIETNAM_ZONE);
     }
 
     // Alternative method - more flexible with automatic format detection
@@ -81,46 +68,23 @@ public class DateTimeHelper {
             return null;
         }
 
-        try {
-            String cleanInput = input.trim();
-            LocalDateTime localDateTime;
-
-            // Replace space with 'T' if needed to make it ISO compliant
-            if (cleanInput.contains(" ") && !cleanInput.contains("T")) {
-                cleanInput = cleanInput.replace(" ", "T");
-            }
-
-            // Try parsing with different approaches
-            try {
-                localDateTime = LocalDateTime.parse(cleanInput);
-            } catch (DateTimeParseException e) {
-                // Try with the space format
-                localDateTime = LocalDateTime.parse(input.trim(), FORMATTER_WITH_SPACE);
-            }
-
-            // Convert UTC to Vietnam timezone
-            ZonedDateTime utcDateTime = localDateTime.atZone(ZoneOffset.UTC);
-            return utcDateTime.withZoneSameInstant(VIETNAM_ZONE);
-
-        } catch (Exception e) {
-            System.err.println("Failed to parse datetime: " + input + " - " + e.getMessage());
+        // Convert UTC to Vietnam timezone
+        ZonedDateTime utcDateTime = parse(input, ZoneOffset.UTC);
+        if (utcDateTime == null) {
+            Log.w(TAG, "Failed to parse datetime: " + input);
             return null;
         }
+        return utcDateTime.withZoneSameInstant(VIETNAM_ZONE);
     }
 
     public static String formatDateTime(String input) {
         if (input == null || input.trim().isEmpty()) return "";
 
-        try {
-            // Convert to Vietnam timezone (UTC+7)
-            ZonedDateTime vietnamDateTime = changeToUCT7(input).withZoneSameInstant(VIETNAM_ZONE);
+        ZonedDateTime utcDateTime = parse(input, ZoneOffset.UTC);
+        if (utcDateTime == null) return input; // fallback
 
-            // Format output
-            return vietnamDateTime.format(OUTPUT_FORMAT);
-        } catch (DateTimeParseException e) {
-            e.printStackTrace();
-            return input; // fallback
-        }
+        // Convert to Vietnam timezone (UTC+7)
+        return utcDateTime.withZoneSameInstant(VIETNAM_ZONE).format(OUTPUT_FORMAT);
     }
 
 
@@ -172,8 +136,8 @@ public class DateTimeHelper {
     public static String calculateDuration(String entryDateTimeStr, String exitDateTimeStr) {
         if (entryDateTimeStr == null || entryDateTimeStr.trim().isEmpty()) return "";
 
-
-        ZonedDateTime vietnamDateTime = changeToUCT7(entryDateTimeStr).withZoneSameInstant(VIETNAM_ZONE);
+        ZonedDateTime entry = parse(entryDateTimeStr, ZoneOffset.UTC);
+        if (entry == null) return "";
 
         ZonedDateTime exit;
         if (exitDateTimeStr == null || exitDateTimeStr.trim().isEmpty()) {
@@ -185,7 +149,7 @@ public class DateTimeHelper {
         }
 
         // Convert both to same timezone for accurate calculation
-        ZonedDateTime entryLocal = vietnamDateTime.withZoneSameInstant(ZoneId.systemDefault());
+        ZonedDateTime entryLocal = entry.withZoneSameInstant(ZoneId.systemDefault());
         ZonedDateTime exitLocal = exit.withZoneSameInstant(ZoneId.systemDefault());
 
         Duration duration = Duration.between(entryLocal, exitLocal);
@@ -242,72 +206,36 @@ public class DateTimeHelper {
         return trimmed.endsWith("Z") || trimmed.contains("+00:00") || trimmed.contains("-00:00");
     }
 
-    // --- Helper methods ---
-
-    private static ZonedDateTime tryParseToZonedDateTime(String input) {
-        String trimmed = input.trim();
-
-        // Try parsing with timezone info first
-        try {
-            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-        } catch (DateTimeParseException ignored) {
-        }
-
-        try {
-            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_ZONED_DATE_TIME);
-        } catch (DateTimeParseException ignored) {
-        }
-
-        // Try as instant (UTC)
-        try {
-            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignored) {
-        }
-
-        // If no timezone info, try parsing as local datetime and assume device timezone
-        LocalDateTime localDateTime = tryParseToLocalDateTime(trimmed);
-        if (localDateTime != null) {
-            return localDateTime.atZone(ZoneId.systemDefault());
-        }
-
-        return null;
+    /**
+     * Epoch millis of a server timestamp (UTC when it has no offset), or -1 if it can't be parsed.
+     * Used as a sortable key for stored rows.
+     */
+    public static long toEpochMillis(String dateTimeStr) {
+        TimestampParser.Result parsed = new TimestampParser.Result();
+        return TimestampParser.parse(dateTimeStr, parsed) ? parsed.epochMillis() : -1;
     }
 
-    private static ZonedDateTime tryParseAsUtc(String input) {
-        String trimmed = input.trim();
-
-        // Add Z suffix if not present to indicate UTC
-        if (!isUtcFormat(trimmed) && !trimmed.contains("+") && !trimmed.contains("Z")) {
-            trimmed = trimmed + "Z";
-        }
-
-        try {
-            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignored) {
-        }
+    // --- Helper methods ---
 
-        try {
-            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC));
-        } catch (DateTimeParseException ignored) {
+    /** Parses {@code input}; a timestamp without offset is read in {@code zoneWithoutOffset}. */
+    private static ZonedDateTime parse(String input, ZoneId zoneWithoutOffset) {
+        TimestampParser.Result parsed = new TimestampParser.Result();
+        if (!TimestampParser.parse(input, parsed)) return null;
+        if (parsed.hasOffset) {
+            return ZonedDateTime.ofInstant(Instant.ofEpochSecond(parsed.epochSecond(), parsed.nano),
+                    ZoneOffset.ofTotalSeconds(parsed.offsetSeconds));
         }
-
-        return null;
+        return LocalDateTime.ofEpochSecond(parsed.localEpochSecond, parsed.nano, ZoneOffset.UTC)
+                .atZone(zoneWithoutOffset);
     }
 
-    private static LocalDateTime tryParseToLocalDateTime(String input) {
-        String trimmed = input.trim();
-
-        for (DateTimeFormatter f : INPUT_FORMATTERS) {
-            try {
-                if (f == DateTimeFormatter.ofPattern("yyyy-MM-dd")) {
-                    java.time.LocalDate date = java.time.LocalDate.parse(trimmed, f);
-                    return date.atStartOfDay();
-                }
-                return LocalDateTime.parse(trimmed, f);
-            } catch (DateTimeParseException ignored) {
-            }
-        }
+    // If no timezone info, assume device timezone
+    private static ZonedDateTime tryParseToZonedDateTime(String input) {
+        return parse(input, ZoneId.systemDefault());
+    }
 
-        return null;
+    private static ZonedDateTime tryParseAsUtc(String input) {
+        ZonedDateTime parsed = parse(input, ZoneOffset.UTC);
+        return parsed != null ? parsed.withZoneSameInstant(ZoneOffset.UTC) : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide pool for image decode/compress work, shared by every upload screen.
+ * Threads are sized to the CPU (decoding is CPU and memory bound, so more threads
+ * only raise peak heap), and the queue is bounded: when it is full a job fails
+ * right away instead of piling up bitmaps.
+ *
+ * Screens submit through a {@link Scope} bound to their lifecycle. Jobs are keyed
+ * per scope, so picking a new photo for the same slot cancels the job for the old one,
+ * and everything still pending is cancelled when the owner is destroyed. Results are
+ * delivered on the main thread, never after cancellation.
+ */
+public final class ImagePipeline {
+    private static final String TAG = "ImagePipeline";
+    private static final int POOL_SIZE = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 3));
+    private static final int QUEUE_CAPACITY = 6;
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "image-pipeline-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    public interface Job<T> {
+        T run() throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onSuccess(T result);
+
+        void onError(Exception e);
+    }
+
+    private ImagePipeline() {
+    }
+
+    /**
+     * Jobs submitted through the scope are cancelled when {@code owner} is destroyed, and
+     * the decode buffer {@link ImagePreparer} keeps between photos is released with it.
+     */
+    public static Scope scope(LifecycleOwner owner) {
+        Scope scope = new Scope();
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                scope.cancelAll();
+                ImagePreparer.trimMemory();
+            }
+        });
+        return scope;
+    }
+
+    /** For work that outlives a screen (e.g. prefetching for the next one); never cancelled by itself. */
+    public static Scope detachedScope() {
+        return new Scope();
+    }
+
+    /** Main-thread handle for one screen's jobs. */
+    public static final class Scope {
+        private final Map<String, Task> running = new HashMap<>();
+        private boolean cancelled;
+
+        private Scope() {
+        }
+
+        /**
+         * Runs {@code job} on the pool, replacing any job still pending under {@code key}.
+         * If the pool is saturated the callback gets a {@link RejectedExecutionException}.
+         */
+        public <T> void submit(@NonNull String key, @NonNull Job<T> job, @NonNull Callback<T> callback) {
+            if (cancelled) return;
+            cancel(key);
+            Task task = new Task();
+            try {
+                task.future = EXECUTOR.submit(() -> {
+                    if (task.cancelled) return;
+                    T result;
+                    try {
+                        result = job.run();
+                    } catch (Exception e) {
+                        deliver(key, task, () -> callback.onError(e));
+                        return;
+                    }
+                    deliver(key, task, () -> callback.onSuccess(result));
+                });
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Pool saturated, rejecting " + key);
+                callback.onError(e);
+                return;
+            }
+            running.put(key, task);
+        }
+
+        public void cancel(@NonNull String key) {
+            Task previous = running.remove(key);
+            if (previous != null) previous.cancel();
+        }
+
+        public void cancelAll() {
+            cancelled = true;
+            for (Task task : running.values()) {
+                task.cancel();
+            }
+            running.clear();
+        }
+
+        private void deliver(String key, Task task, Runnable result) {
+            if (task.cancelled) return;
+            MAIN.post(() -> {
+                if (task.cancelled) return;
+                running.remove(key, task);
+                result.run();
+            });
+        }
+    }
+
+    private static final class Task {
+        volatile boolean cancelled;
+        Future<?> future;
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Turns a picked photo into an upload JPEG and a preview thumbnail with a single decode.
+ * The JPEG is written straight to the caller's stream (see {@link UploadImageStore}).
+ * <ul>
+ *   <li>inSampleSize does the power-of-two part of the downscale and inDensity/inTargetDensity
+ *       the rest, so the decoder writes the final size directly (no createScaledBitmap copy).</li>
+ *   <li>The decode target is reused across calls through inBitmap.</li>
+ *   <li>The preview is drawn from the same decoded pixels.</li>
+ * </ul>
+ * Only a bounds-only header read precedes the decode. Call off the main thread
+ * (e.g. through {@link ImagePipeline}).
+ */
+public final class ImagePreparer {
+    private static final String TAG = "ImagePreparer";
+
+    // One reusable decode target; a second concurrent caller just allocates its own.
+    // Released when an upload screen is destroyed and on memory trim (see trimMemory)
+    private static final AtomicReference<Bitmap> REUSABLE = new AtomicReference<>();
+
+    public static final class Prepared {
+        @Nullable public final Bitmap preview;
+        public final int width;
+        public final int height;
+
+        Prepared(@Nullable Bitmap preview, int width, int height) {
+            this.preview = preview;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private ImagePreparer() {
+    }
+
+    /**
+     * @param maxWidth       upload image bounds; the aspect ratio is kept
+     * @param previewMaxSide longest preview side, or 0 for no preview
+     * @param jpegOut        receives the upload JPEG; not closed
+     */
+    public static Prepared prepare(ContentResolver resolver, Uri uri, int maxWidth, int maxHeight,
+                                   int jpegQuality, int previewMaxSide, OutputStream jpegOut) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream is = resolver.openInputStream(uri)) {
+            if (is == null) throw new IOException("Cannot open " + uri);
+            BitmapFactory.decodeStream(is, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Failed to decode image");
+        }
+
+        int[] target = fitInside(bounds.outWidth, bounds.outHeight, maxWidth, maxHeight);
+        BitmapFactory.Options options = decodeOptions(bounds.outWidth, target[0]);
+
+        Bitmap reuse = REUSABLE.getAndSet(null);
+        Bitmap decoded = decode(resolver, uri, options, reuse);
+        if (reuse != null && decoded != reuse) {
+            reuse.recycle(); // did not fit, drop it rather than keep two around
+        }
+
+        try {
+            if (!decoded.compress(Bitmap.CompressFormat.JPEG, jpegQuality, jpegOut)) {
+                throw new IOException("Failed to encode image");
+            }
+            Bitmap preview = previewMaxSide > 0 ? scaleDown(decoded, previewMaxSide) : null;
+
+            Log.d(TAG, bounds.outWidth + "x" + bounds.outHeight + " -> " + decoded.getWidth() + "x" + decoded.getHeight()
+                    + " (sample " + options.inSampleSize + "), decode buffer " + decoded.getAllocationByteCount() / 1024
+                    + " KB in " + (SystemClock.elapsedRealtime() - start) + " ms");
+            return new Prepared(preview, decoded.getWidth(), decoded.getHeight());
+        } finally {
+            // An interrupted caller was cancelled with its screen; don't park the buffer after trimMemory ran
+            if (Thread.currentThread().isInterrupted() || !REUSABLE.compareAndSet(null, decoded)) {
+                decoded.recycle();
+            }
+        }
+    }
+
+    /**
+     * Drops the cached decode buffer. Called when a screen's {@link ImagePipeline.Scope}
+     * ends and from the trim callbacks {@link UploadImageStore} registers.
+     */
+    public static void trimMemory() {
+        Bitmap b = REUSABLE.getAndSet(null);
+        if (b != null) b.recycle();
+    }
+
+    private static Bitmap decode(ContentResolver resolver, Uri uri, BitmapFactory.Options options,
+                                 @Nullable Bitmap reuse) throws IOException {
+        if (reuse != null) {
+            options.inBitmap = reuse;
+            try (InputStream is = resolver.openInputStream(uri)) {
+                Bitmap bitmap = BitmapFactory.decodeStream(is, null, options);
+                if (bitmap != null) return bitmap;
+            } catch (IllegalArgumentException e) {
+                // reuse bitmap too small for this image
+            }
+            options.inBitmap = null;
+        }
+        try (InputStream is = resolver.openInputStream(uri)) {
+            Bitmap bitmap = BitmapFactory.decodeStream(is, null, options);
+            if (bitmap == null) throw new IOException("Failed to decode image");
+            return bitmap;
+        }
+    }
+
+    /**
+     * Largest power-of-two sample that stays at or above the target width, then density
+     * scaling for the remaining ratio, so the decoder emits {@code targetWidth} directly.
+     */
+    private static BitmapFactory.Options decodeOptions(int srcWidth, int targetWidth) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        int sample = 1;
+        while (srcWidth / (sample * 2) >= targetWidth) {
+            sample *= 2;
+        }
+        options.inSampleSize = sample;
+        options.inMutable = true; // required for inBitmap
+        int sampledWidth = srcWidth / sample;
+        if (sampledWidth > targetWidth) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = targetWidth;
+        } else {
+            options.inScaled = false;
+        }
+        return options;
+    }
+
+    private static int[] fitInside(int width, int height, int maxWidth, int maxHeight) {
+        if (width <= maxWidth && height <= maxHeight) {
+            return new int[]{width, height};
+        }
+        float ratio = Math.min((float) maxWidth / width, (float) maxHeight / height);
+        return new int[]{Math.max(1, Math.round(width * ratio)), Math.max(1, Math.round(height * ratio))};
+    }
+
+    private static Bitmap scaleDown(Bitmap source, int maxSide) {
+        int[] size = fitInside(source.getWidth(), source.getHeight(), maxSide, maxSide);
+        Bitmap preview = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+        new Canvas(preview).drawBitmap(source, null, new Rect(0, 0, size[0], size[1]),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        return preview;
+    }
+}
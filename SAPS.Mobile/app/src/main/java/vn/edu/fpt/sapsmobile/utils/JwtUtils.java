@@ -5,9 +5,97 @@ import com.auth0.android.jwt.JWT;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
 
 public final class JwtUtils {
 
+    private static final Pattern BEARER_PREFIX = Pattern.compile("(?i)^Bearer\\s+");
+    private static final DateTimeFormatter EXPIRED_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.of("UTC"));
+
+    // Only a couple of tokens are ever live (current + the one being replaced)
+    private static final int CACHE_SIZE = 4;
+    private static final Map<String, ParsedToken> CACHE =
+            new LinkedHashMap<String, ParsedToken>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ParsedToken> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+    private static volatile ParsedToken lastParsed;
+
+    // Tests skew this instead of waiting for a token to expire
+    static volatile LongSupplier clock = System::currentTimeMillis;
+
+    /** {@link #millisUntilExpiry} of a token without a readable {@code exp}. */
+    public static final long UNKNOWN_EXPIRY = Long.MIN_VALUE;
+
+    /** Claims we read on hot paths, decoded once per token. */
+    private static final class ParsedToken {
+        final String token;
+        final String bearerHeader;
+        final boolean valid;
+        final Long expSeconds;
+        final Date expiresAt;
+        final Date issuedAt;
+        final String userId;
+        final String shareCode;
+
+        ParsedToken(String token, JWT jwt) {
+            this.token = token;
+            this.bearerHeader = "Bearer " + stripBearer(token);
+            this.valid = jwt != null;
+            this.expSeconds = jwt != null ? jwt.getClaim("exp").asLong() : null;
+            this.expiresAt = jwt != null ? jwt.getExpiresAt() : null;
+            this.issuedAt = jwt != null ? jwt.getIssuedAt() : null;
+            this.userId = jwt != null ? jwt.getClaim(CLAIM_NAME_IDENTIFIER).asString() : null;
+            this.shareCode = jwt != null ? jwt.getClaim(CLAIM_SHARE_CODE).asString() : null;
+        }
+
+        /** Same rule as {@link JWT#isExpired(long)}. */
+        boolean isExpired(long leewaySeconds) {
+            long todayTime = (clock.getAsLong() / 1000) * 1000;
+            Date futureToday = new Date(todayTime + leewaySeconds * 1000);
+            Date pastToday = new Date(todayTime - leewaySeconds * 1000);
+            boolean expValid = expiresAt == null || !pastToday.after(expiresAt);
+            boolean iatValid = issuedAt == null || !futureToday.before(issuedAt);
+            return !expValid || !iatValid;
+        }
+    }
+
+    /** Returns the cached decode of the token, decoding it on first use. */
+    private static ParsedToken parse(String token) {
+        ParsedToken last = lastParsed;
+        if (last != null && last.token.equals(token)) return last;
+
+        ParsedToken parsed;
+        synchronized (CACHE) {
+            parsed = CACHE.get(token);
+        }
+        if (parsed == null) {
+            JWT jwt;
+            try {
+                jwt = new JWT(stripBearer(token));
+            } catch (Exception e) {
+                jwt = null; // cache the failure too, so bad tokens are not re-decoded
+            }
+            parsed = new ParsedToken(token, jwt);
+            synchronized (CACHE) {
+                CACHE.put(token, parsed);
+            }
+        }
+        lastParsed = parsed;
+        return parsed;
+    }
+
+    private static String stripBearer(String token) {
+        return BEARER_PREFIX.matcher(token).replaceFirst("");
+    }
+
     private static final String CLAIM_NAME_IDENTIFIER =
             "http://schemas.xmlsoap.org/ws/2005/05/identity/claims/nameidentifier";
     
@@ -20,18 +108,8 @@ public final class JwtUtils {
      * @return The UserId as String, or null if not present/invalid.
      */
     public static String getUserIdFromToken(String accessToken) {
-        try {
-            if (accessToken == null || accessToken.trim().isEmpty()) return null;
-
-            // Remove "Bearer " if present
-            String raw = accessToken.replaceFirst("(?i)^Bearer\\s+", "");
-
-            JWT jwt = new JWT(raw);
-            return jwt.getClaim(CLAIM_NAME_IDENTIFIER).asString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        if (accessToken == null || accessToken.trim().isEmpty()) return null;
+        return parse(accessToken).userId;
     }
 
     /**
@@ -40,18 +118,8 @@ public final class JwtUtils {
      * @return The Share Code as String, or null if not present/invalid.
      */
     public static String getShareCodeFromToken(String accessToken) {
-        try {
-            if (accessToken == null || accessToken.trim().isEmpty()) return null;
-
-            // Remove "Bearer " if present
-            String raw = accessToken.replaceFirst("(?i)^Bearer\\s+", "");
-
-            JWT jwt = new JWT(raw);
-            return jwt.getClaim(CLAIM_SHARE_CODE).asString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        if (accessToken == null || accessToken.trim().isEmpty()) return null;
+        return parse(accessToken).shareCode;
     }
 
     // keep your existing readClaims method if you want to debug/inspect all claims
@@ -76,47 +144,32 @@ public final class JwtUtils {
     /** Returns true if token is expired, with optional leeway (seconds). */
     public static boolean isExpired(String token, int leewaySeconds) {
         if (token == null || token.trim().isEmpty()) return true;
-        String raw = token.replaceFirst("(?i)^Bearer\\s+", "");
-        try {
-            JWT jwt = new JWT(raw);
-            return jwt.isExpired(leewaySeconds);
-        } catch (Exception e) {
-            return true; // treat parse errors as expired
-        }
+        ParsedToken parsed = parse(token);
+        return !parsed.valid || parsed.isExpired(leewaySeconds); // treat parse errors as expired
     }
-    public static String getExpired(String token) {
-
-        String raw = token.replaceFirst("(?i)^Bearer\\s+", "");
-
-        try {
-            JWT jwt = new JWT(raw);
-
-            // "exp" is a numeric date in seconds since epoch
-            Long expAt = jwt.getClaim("exp").asLong();
-            if (expAt == null) return "N/A";
-
-            // Convert to Instant
-            Instant instant = Instant.ofEpochSecond(expAt);
 
-            return DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
-                    .withZone(ZoneId.of("UTC"))
-                    .format(instant);
+    public static String getExpired(String token) {
+        if (token == null) return "N/A";
+        ParsedToken parsed = parse(token);
 
-        } catch (Exception e) {
-            return "N/A"; // treat parse errors as expired
-        }
+        // "exp" is a numeric date in seconds since epoch
+        if (parsed.expSeconds == null) return "N/A";
+        return EXPIRED_FORMAT.format(Instant.ofEpochSecond(parsed.expSeconds));
     }
 
-    /** Returns milliseconds until expiry (negative if already expired). */
+    /**
+     * Returns milliseconds until expiry (negative if already expired), or
+     * {@link #UNKNOWN_EXPIRY} when the token has no exp or cannot be decoded.
+     */
     public static long millisUntilExpiry(String token) {
-        if (token == null) return -1;
-        String raw = token.replaceFirst("(?i)^Bearer\\s+", "");
-        try {
-            JWT jwt = new JWT(raw);
-            if (jwt.getExpiresAt() == null) return -1;
-            return jwt.getExpiresAt().getTime() - System.currentTimeMillis();
-        } catch (Exception e) {
-            return -1;
-        }
+        if (token == null) return UNKNOWN_EXPIRY;
+        ParsedToken parsed = parse(token);
+        if (parsed.expiresAt == null) return UNKNOWN_EXPIRY;
+        return parsed.expiresAt.getTime() - clock.getAsLong();
+    }
+
+    /** Prepends "Bearer " to the raw token, stripping any prefix it already has. */
+    public static String toBearer(String token) {
+        return parse(token).bearerHeader;
     }
 }
@@ -13,6 +13,7 @@ import vn.edu.fpt.sapsmobile.R;
 public class LoadingDialog {
     private final Activity activity;
     private Dialog dialog;
+    private TextView messageText;
     private Runnable cancelCallback;
 
     public LoadingDialog(Context context) {
@@ -51,7 +52,7 @@ public class LoadingDialog {
         dialog.setCancelable(showCancel);
         this.cancelCallback = onCancel;
 
-        TextView messageText = view.findViewById(R.id.loading_message);
+        messageText = view.findViewById(R.id.loading_message);
         messageText.setText(message != null ? message : "Loading...");
 
         MaterialButton btnCancel = view.findViewById(R.id.btn_cancel);
@@ -73,10 +74,18 @@ public class LoadingDialog {
         dialog.show();
     }
 
+    /** Updates the text of the dialog already showing, e.g. upload progress. */
+    public void setMessage(String message) {
+        if (dialog != null && dialog.isShowing() && messageText != null) {
+            messageText.setText(message);
+        }
+    }
+
     public void dismiss() {
         if (dialog != null) {
             if (dialog.isShowing()) dialog.dismiss();
             dialog = null;
+            messageText = null;
             cancelCallback = null;
         }
     }
@@ -0,0 +1,89 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size, non-blocking log sink. Callers on network threads only copy a string
+ * into the ring; a daemon thread drains new entries to logcat. When producers outrun
+ * the drain the oldest entries are overwritten instead of blocking the caller.
+ * The last {@link #CAPACITY} entries stay available through {@link #snapshot()}.
+ */
+public final class LogRingBuffer {
+    private static final int CAPACITY = 512;
+    private static final LogRingBuffer INSTANCE = new LogRingBuffer();
+
+    private final String[] tags = new String[CAPACITY];
+    private final String[] messages = new String[CAPACITY];
+    private long written;  // total entries ever added
+    private long flushed;  // entries already handed to logcat
+    private long dropped;  // entries overwritten before they were flushed
+
+    private LogRingBuffer() {
+        Thread drainer = new Thread(this::drainLoop, "log-ring-drain");
+        drainer.setDaemon(true);
+        drainer.setPriority(Thread.MIN_PRIORITY);
+        drainer.start();
+    }
+
+    public static LogRingBuffer getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void add(String tag, String message) {
+        int slot = (int) (written % CAPACITY);
+        tags[slot] = tag;
+        messages[slot] = message;
+        written++;
+        if (written - flushed > CAPACITY) {
+            dropped += written - flushed - CAPACITY;
+            flushed = written - CAPACITY;
+        }
+        notifyAll();
+    }
+
+    /** Most recent entries, oldest first, formatted as "tag: message". */
+    public synchronized List<String> snapshot() {
+        long from = Math.max(0, written - CAPACITY);
+        List<String> out = new ArrayList<>((int) (written - from));
+        for (long i = from; i < written; i++) {
+            int slot = (int) (i % CAPACITY);
+            out.add(tags[slot] + ": " + messages[slot]);
+        }
+        return out;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    private void drainLoop() {
+        List<String> pendingTags = new ArrayList<>();
+        List<String> pendingMessages = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                while (flushed == written) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                for (long i = flushed; i < written; i++) {
+                    int slot = (int) (i % CAPACITY);
+                    pendingTags.add(tags[slot]);
+                    pendingMessages.add(messages[slot]);
+                }
+                flushed = written;
+            }
+            // logcat I/O happens outside the lock
+            for (int i = 0; i < pendingTags.size(); i++) {
+                Log.d(pendingTags.get(i), pendingMessages.get(i));
+            }
+            pendingTags.clear();
+            pendingMessages.clear();
+        }
+    }
+}
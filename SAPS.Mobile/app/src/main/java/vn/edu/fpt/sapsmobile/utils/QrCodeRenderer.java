@@ -0,0 +1,116 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.journeyapps.barcodescanner.BarcodeEncoder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * QR codes for payment payloads, encoded once and cached by payload hash and pixel size:
+ * in memory for the running process and as PNG files under the cache dir, so reopening
+ * the payment screen for the same session neither re-encodes nor re-compresses. The PNG
+ * is also what "save to gallery" copies.
+ *
+ * {@link #peek} may be called anywhere; {@link #render} does disk and encode work and
+ * must run off the main thread (e.g. through {@link ImagePipeline}).
+ */
+public final class QrCodeRenderer {
+    private static final String TAG = "QrCodeRenderer";
+    private static final String DIR = "qr";
+    private static final long MAX_AGE_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final LruCache<String, Rendered> MEMORY = new LruCache<String, Rendered>(4 * 1024) {
+        @Override
+        protected int sizeOf(String key, Rendered value) {
+            return value.bitmap.getAllocationByteCount() / 1024;
+        }
+    };
+    private static volatile boolean trimmed;
+
+    public static final class Rendered {
+        public final Bitmap bitmap;
+        public final File png;
+
+        Rendered(Bitmap bitmap, File png) {
+            this.bitmap = bitmap;
+            this.png = png;
+        }
+    }
+
+    private QrCodeRenderer() {
+    }
+
+    /** The in-memory copy, if this payload was rendered at this size before. */
+    @Nullable
+    public static Rendered peek(String payload, int sizePx) {
+        return MEMORY.get(key(payload, sizePx));
+    }
+
+    public static Rendered render(Context context, String payload, int sizePx) throws IOException, WriterException {
+        String key = key(payload, sizePx);
+        Rendered cached = MEMORY.get(key);
+        if (cached != null) return cached;
+
+        File dir = new File(context.getApplicationContext().getCacheDir(), DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        trimOnce(dir);
+
+        File png = new File(dir, key + ".png");
+        Bitmap bitmap = png.exists() ? BitmapFactory.decodeFile(png.getPath()) : null;
+        if (bitmap == null) {
+            bitmap = new BarcodeEncoder().encodeBitmap(payload, BarcodeFormat.QR_CODE, sizePx, sizePx);
+            File tmp = File.createTempFile(key, ".tmp", dir);
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            }
+            if (!tmp.renameTo(png)) {
+                tmp.delete();
+                throw new IOException("Cannot store QR image");
+            }
+            Log.d(TAG, "Encoded " + sizePx + "px QR (" + png.length() / 1024 + " KB)");
+        } else {
+            png.setLastModified(System.currentTimeMillis());
+        }
+
+        Rendered rendered = new Rendered(bitmap, png);
+        MEMORY.put(key, rendered);
+        return rendered;
+    }
+
+    private static String key(String payload, int sizePx) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            return StringUtils.toHex(digest) + "_" + sizePx;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // always present on Android
+        }
+    }
+
+    private static void trimOnce(File dir) {
+        if (trimmed) return;
+        trimmed = true;
+        long cutoff = System.currentTimeMillis() - MAX_AGE_MS;
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File f : files) {
+            if (f.lastModified() < cutoff) f.delete();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+
+import vn.edu.fpt.sapsmobile.models.User;
+
+/**
+ * Process-wide in-memory copy of the signed-in session (tokens, decoded user and the
+ * JWT claims we read on hot paths). Loaded from SharedPreferences once, then every
+ * write goes to memory first and is persisted asynchronously (write-through).
+ * Readers never touch SharedPreferences or Gson after the first load.
+ *
+ * The state is an immutable {@link Snapshot} swapped atomically on every write, so
+ * readers are lock-free and always see a consistent token pair.
+ */
+public final class SessionStore {
+    private static final String PREFS_NAME = "auth_prefs";
+    private static final String ACCESS_TOKEN_KEY = "access_token";
+    private static final String REFRESH_TOKEN_KEY = "refresh_token";
+    private static final String USER_DATA_KEY = "user_data";
+
+    private static final Gson GSON = new Gson();
+    private static volatile SessionStore instance;
+
+    private final SharedPreferences prefs;
+    private volatile Snapshot snapshot;
+
+    /** Claims decoded once per access token. */
+    public static final class Claims {
+        public final String userId;
+        public final String shareCode;
+        public final long expiresAtMillis; // -1 if unknown
+
+        Claims(String userId, String shareCode, long expiresAtMillis) {
+            this.userId = userId;
+            this.shareCode = shareCode;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class Snapshot {
+        final String accessToken;
+        final String refreshToken;
+        final String userJson;
+        final User user;
+        volatile Claims claims; // decoded lazily, tied to accessToken
+
+        Snapshot(String accessToken, String refreshToken, String userJson, User user) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.userJson = userJson;
+            this.user = user;
+        }
+    }
+
+    private SessionStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String userJson = prefs.getString(USER_DATA_KEY, null);
+        snapshot = new Snapshot(
+                prefs.getString(ACCESS_TOKEN_KEY, null),
+                prefs.getString(REFRESH_TOKEN_KEY, null),
+                userJson,
+                userJson != null ? GSON.fromJson(userJson, User.class) : null);
+    }
+
+    public static SessionStore getInstance(Context context) {
+        SessionStore s = instance;
+        if (s == null) {
+            synchronized (SessionStore.class) {
+                s = instance;
+                if (s == null) {
+                    s = new SessionStore(context);
+                    instance = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    public String getAccessToken() {
+        return snapshot.accessToken;
+    }
+
+    public String getRefreshToken() {
+        return snapshot.refreshToken;
+    }
+
+    /** Shared instance: call {@link #saveUser(User)} after mutating it. */
+    public User getUser() {
+        return snapshot.user;
+    }
+
+    /** Detached copy for screens that edit the user before deciding to save. */
+    public User copyUser() {
+        String json = snapshot.userJson;
+        return json != null ? GSON.fromJson(json, User.class) : null;
+    }
+
+    public Claims getClaims() {
+        Snapshot s = snapshot;
+        if (s.accessToken == null) return null;
+        Claims c = s.claims;
+        if (c == null) {
+            long untilExpiry = JwtUtils.millisUntilExpiry(s.accessToken);
+            c = new Claims(
+                    JwtUtils.getUserIdFromToken(s.accessToken),
+                    JwtUtils.getShareCodeFromToken(s.accessToken),
+                    untilExpiry == JwtUtils.UNKNOWN_EXPIRY ? -1 : System.currentTimeMillis() + untilExpiry);
+            s.claims = c;
+        }
+        return c;
+    }
+
+    public synchronized void saveTokens(String accessToken, String refreshToken) {
+        Snapshot s = snapshot;
+        snapshot = new Snapshot(accessToken, refreshToken, s.userJson, s.user);
+        prefs.edit()
+                .putString(ACCESS_TOKEN_KEY, accessToken)
+                .putString(REFRESH_TOKEN_KEY, refreshToken)
+                .apply();
+    }
+
+    public synchronized void saveUser(User user) {
+        Snapshot s = snapshot;
+        String userJson = user != null ? GSON.toJson(user) : null;
+        Snapshot next = new Snapshot(s.accessToken, s.refreshToken, userJson, user);
+        next.claims = s.claims;
+        snapshot = next;
+        prefs.edit().putString(USER_DATA_KEY, userJson).apply();
+    }
+
+    public synchronized void clear() {
+        snapshot = new Snapshot(null, null, null, null);
+        prefs.edit().clear().apply();
+    }
+}
@@ -7,6 +7,31 @@ import java.text.NumberFormat;
 import java.util.Locale;
 
 public class StringUtils {
+
+    /**
+     * Key for joining vehicles and sessions by license plate: upper-case with spaces,
+     * dashes and dots removed, so "51a-123.45" and "51A12345" match. Null stays null.
+     */
+    public static String normalizePlate(String plate) {
+        if (plate == null) return null;
+        StringBuilder key = new StringBuilder(plate.length());
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            if (c == '-' || c == '.' || Character.isWhitespace(c)) continue;
+            key.append(Character.toUpperCase(c));
+        }
+        return key.length() > 0 ? key.toString() : null;
+    }
+
+    /** Lower-case hex, e.g. for naming cache files after a digest. */
+    public static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
     public static String getErrorMessage(Context context, String errorCode) {
         int resId = context.getResources().getIdentifier(errorCode, "string", context.getPackageName());
         if (resId != 0) {
@@ -0,0 +1,175 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+/**
+ * Single-pass parser for the timestamp shapes the server sends, used by
+ * {@link DateTimeHelper} on every list bind. Validation is done by hand, so an
+ * unparseable string costs a {@code false} rather than a thrown
+ * {@code DateTimeParseException} per candidate format.
+ *
+ * Accepted: {@code yyyy-MM-dd}, optionally followed by {@code T} (or a space) and
+ * {@code HH:mm}, {@code HH:mm:ss} or {@code HH:mm:ss.f} (up to 9 fraction digits),
+ * optionally followed by {@code Z}, {@code ±HH}, {@code ±HH:mm} or {@code ±HH:mm:ss}. Fields are range-checked
+ * the way {@code DateTimeFormatter.ISO_*} does (no Feb 30, no hour 24).
+ */
+public final class TimestampParser {
+
+    /** Parse output; reusable across calls. */
+    public static final class Result {
+        /** Seconds since the epoch of the wall-clock date-time read as if it were UTC. */
+        public long localEpochSecond;
+        public int nano;
+        /** Offset from UTC in seconds; only meaningful when {@link #hasOffset}. */
+        public int offsetSeconds;
+        public boolean hasOffset;
+        /** False for a bare date, which stands for its start of day. */
+        public boolean hasTime;
+
+        /** The instant, taking a timestamp without offset to be UTC. */
+        public long epochSecond() {
+            return hasOffset ? localEpochSecond - offsetSeconds : localEpochSecond;
+        }
+
+        public long epochMillis() {
+            return epochSecond() * 1000 + nano / 1_000_000;
+        }
+    }
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+
+    private TimestampParser() {
+    }
+
+    /** Fills {@code out} and returns true, or returns false (leaving {@code out} undefined). */
+    public static boolean parse(CharSequence text, Result out) {
+        if (text == null) return false;
+        int p = 0;
+        int end = text.length();
+        // Same whitespace as String.trim()
+        while (p < end && text.charAt(p) <= ' ') p++;
+        while (end > p && text.charAt(end - 1) <= ' ') end--;
+
+        if (end - p < 10) return false;
+        int year = digits(text, p, 4);
+        int month = digits(text, p + 5, 2);
+        int day = digits(text, p + 8, 2);
+        if (year < 0 || text.charAt(p + 4) != '-' || text.charAt(p + 7) != '-'
+                || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return false;
+        }
+        p += 10;
+
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int nano = 0;
+        out.hasTime = p < end;
+        out.hasOffset = false;
+        out.offsetSeconds = 0;
+        if (out.hasTime) {
+            char sep = text.charAt(p);
+            if (sep != 'T' && sep != 't' && sep != ' ') return false;
+            p++;
+            if (end - p < 5) return false;
+            hour = digits(text, p, 2);
+            minute = digits(text, p + 3, 2);
+            if (hour < 0 || hour > 23 || text.charAt(p + 2) != ':' || minute < 0 || minute > 59) return false;
+            p += 5;
+
+            if (p < end && text.charAt(p) == ':') {
+                second = end - p >= 3 ? digits(text, p + 1, 2) : -1;
+                if (second < 0 || second > 59) return false;
+                p += 3;
+                if (p < end && text.charAt(p) == '.') {
+                    p++;
+                    int count = 0;
+                    while (p < end && count < 9 && isDigit(text.charAt(p))) {
+                        nano = nano * 10 + (text.charAt(p) - '0');
+                        count++;
+                        p++;
+                    }
+                    for (; count < 9; count++) nano *= 10;
+                }
+            }
+
+            if (p < end) {
+                int offset = parseOffset(text, p, end);
+                if (offset == Integer.MIN_VALUE) return false;
+                out.hasOffset = true;
+                out.offsetSeconds = offset;
+            }
+        }
+
+        out.localEpochSecond = epochDay(year, month, day) * SECONDS_PER_DAY
+                + hour * 3600 + minute * 60 + second;
+        out.nano = nano;
+        return true;
+    }
+
+    /** {@code Z} or {@code ±HH[:mm[:ss]]} filling exactly [p, end), or MIN_VALUE. */
+    private static int parseOffset(CharSequence text, int p, int end) {
+        char sign = text.charAt(p);
+        if (sign == 'Z' || sign == 'z') {
+            return p + 1 == end ? 0 : Integer.MIN_VALUE;
+        }
+        if (sign != '+' && sign != '-') return Integer.MIN_VALUE;
+        int length = end - p;
+        if (length != 3 && length != 6 && length != 9) return Integer.MIN_VALUE;
+        int hours = digits(text, p + 1, 2);
+        if (hours < 0) return Integer.MIN_VALUE;
+        int minutes = 0;
+        if (length >= 6) {
+            minutes = digits(text, p + 4, 2);
+            if (text.charAt(p + 3) != ':' || minutes < 0 || minutes > 59) return Integer.MIN_VALUE;
+        }
+        int seconds = 0;
+        if (length == 9) {
+            seconds = digits(text, p + 7, 2);
+            if (text.charAt(p + 6) != ':' || seconds < 0 || seconds > 59) return Integer.MIN_VALUE;
+        }
+        int total = hours * 3600 + minutes * 60 + seconds;
+        if (total > MAX_OFFSET_SECONDS) return Integer.MIN_VALUE;
+        return sign == '-' ? -total : total;
+    }
+
+    /** The {@code count} ASCII digits at {@code p} as a number, or -1. */
+    private static int digits(CharSequence text, int p, int count) {
+        int value = 0;
+        for (int i = p; i < p + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar (as LocalDate.toEpochDay)
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400L);
+        long yearOfEra = y - era * 400;
+        int shiftedMonth = month > 2 ? month - 3 : month + 9;
+        long dayOfYear = (153 * shiftedMonth + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -1,63 +1,67 @@
 package vn.edu.fpt.sapsmobile.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-
-import com.google.gson.Gson;
 
 import vn.edu.fpt.sapsmobile.models.User;
+import vn.edu.fpt.sapsmobile.network.interceptor.TokenRenewalScheduler;
 
 
+/**
+ * Thin facade over the process-wide {@link SessionStore}; cheap to construct anywhere.
+ */
 public class TokenManager {
-    private static final String PREFS_NAME = "auth_prefs";
-    private static final String ACCESS_TOKEN_KEY = "access_token";
-    private static final String REFRESH_TOKEN_KEY = "refresh_token";
-    private static final String USER_DATA_KEY = "user_data";
-    
-    private SharedPreferences prefs;
-    private SharedPreferences.Editor editor;
+    private final SessionStore store;
 
     public TokenManager(Context context) {
-        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        editor = prefs.edit();
+        store = SessionStore.getInstance(context);
     }
 
     public void saveTokens(String accessToken, String refreshToken) {
-        editor.putString(ACCESS_TOKEN_KEY, accessToken);
-        editor.putString(REFRESH_TOKEN_KEY, refreshToken);
-        editor.apply();
+        store.saveTokens(accessToken, refreshToken);
+        TokenRenewalScheduler.getInstance().schedule(accessToken);
     }
 
     public String getAccessToken() {
-        return prefs.getString(ACCESS_TOKEN_KEY, null);
+        return store.getAccessToken();
     }
 
     public String getRefreshToken() {
-        return prefs.getString(REFRESH_TOKEN_KEY, null);
+        return store.getRefreshToken();
     }
 
     public void saveUserData(User user) {
-        Gson gson = new Gson();
-        String userJson = gson.toJson(user);
-        editor.putString(USER_DATA_KEY, userJson);
-        editor.apply();
+        store.saveUser(user);
     }
 
+    /** Shared in-memory instance; call {@link #saveUserData(User)} after changing it. */
     public User getUserData() {
-        String userJson = prefs.getString(USER_DATA_KEY, null);
-        if (userJson != null) {
-            Gson gson = new Gson();
-            return gson.fromJson(userJson, User.class);
-        }
-        return null;
+        return store.getUser();
+    }
+
+    /** Detached copy for editing screens, so unsaved edits never leak into the session. */
+    public User getUserDataCopy() {
+        return store.copyUser();
+    }
+
+    /** Share code claim of the current access token, decoded once per token. */
+    public String getShareCode() {
+        SessionStore.Claims claims = store.getClaims();
+        return claims != null ? claims.shareCode : null;
+    }
+
+    /** User id claim of the current access token, decoded once per token. */
+    public String getTokenUserId() {
+        SessionStore.Claims claims = store.getClaims();
+        return claims != null ? claims.userId : null;
     }
 
+    /** Tokens only; signing out goes through {@link vn.edu.fpt.sapsmobile.services.SessionTeardown}. */
     public void clearTokens() {
-        editor.clear();
-        editor.apply();
+        store.clear();
+        TokenRenewalScheduler.getInstance().cancel();
     }
 
     public boolean isLoggedIn() {
         return getAccessToken() != null;
     }
-}
\ No newline at end of file
+}
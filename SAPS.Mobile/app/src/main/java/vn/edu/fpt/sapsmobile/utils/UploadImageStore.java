@@ -0,0 +1,160 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Upload-ready JPEGs on disk, so image bytes never sit in the heap as one array and are
+ * streamed to OkHttp from the file (see {@code UploadRequestBody}).
+ *
+ * Files are named by the SHA-256 of their content, computed while encoding. Preparing
+ * the same picked photo with the same settings again returns the existing file without
+ * decoding (e.g. OCR then profile update on the same ID card), and screens can compare
+ * {@link UploadImage#sha256} to skip re-sending an image the server already processed.
+ *
+ * Call {@link #prepare} off the main thread.
+ */
+public class UploadImageStore {
+    private static final String TAG = "UploadImageStore";
+    private static final String DIR = "uploads";
+    private static final long MAX_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    private static volatile UploadImageStore instance;
+
+    public static final class UploadImage {
+        public final File file;
+        public final String sha256;
+        // Only set when this call decoded the photo
+        @Nullable public final Bitmap preview;
+
+        UploadImage(File file, String sha256, @Nullable Bitmap preview) {
+            this.file = file;
+            this.sha256 = sha256;
+            this.preview = preview;
+        }
+    }
+
+    private final File dir;
+    // "uri|maxWidth|maxHeight|quality" -> prepared file
+    private final Map<String, UploadImage> prepared = new ConcurrentHashMap<>();
+    private volatile boolean trimmed;
+
+    private UploadImageStore(Context context) {
+        Context app = context.getApplicationContext();
+        dir = new File(app.getCacheDir(), DIR);
+        // The decoder keeps its last buffer for the next photo; give it back once the UI is gone
+        app.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) ImagePreparer.trimMemory();
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                ImagePreparer.trimMemory();
+            }
+        });
+    }
+
+    public static UploadImageStore getInstance(Context context) {
+        UploadImageStore s = instance;
+        if (s == null) {
+            synchronized (UploadImageStore.class) {
+                s = instance;
+                if (s == null) {
+                    s = new UploadImageStore(context);
+                    instance = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Encodes {@code uri} to an upload JPEG file, or returns the file from an earlier call
+     * with the same arguments. A preview is only produced when the photo is decoded, so
+     * pass {@code previewMaxSide = 0} when the caller does not need one.
+     */
+    public UploadImage prepare(Context context, Uri uri, int maxWidth, int maxHeight, int jpegQuality,
+                               int previewMaxSide) throws IOException {
+        String key = uri + "|" + maxWidth + "|" + maxHeight + "|" + jpegQuality;
+        UploadImage known = prepared.get(key);
+        if (known != null && known.file.exists() && previewMaxSide <= 0) {
+            return known;
+        }
+
+        ensureDir();
+        File tmp = File.createTempFile("encode", ".tmp", dir);
+        MessageDigest digest = sha256();
+        ImagePreparer.Prepared result;
+        try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), digest)) {
+            result = ImagePreparer.prepare(context.getContentResolver(), uri, maxWidth, maxHeight,
+                    jpegQuality, previewMaxSide, out);
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        String hash = StringUtils.toHex(digest.digest());
+        File file = new File(dir, hash + ".jpg");
+        if (file.exists()) {
+            // Same content already on disk, e.g. the photo was picked for both slots
+            tmp.delete();
+            file.setLastModified(System.currentTimeMillis());
+        } else if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot store upload image");
+        }
+        Log.d(TAG, uri + " -> " + hash.substring(0, 12) + " (" + file.length() / 1024 + " KB)");
+
+        UploadImage image = new UploadImage(file, hash, result.preview);
+        prepared.put(key, new UploadImage(file, hash, null));
+        return image;
+    }
+
+    private void ensureDir() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        if (!trimmed) {
+            // Once per process: the files only need to outlive one upload flow
+            trimmed = true;
+            long cutoff = System.currentTimeMillis() - MAX_AGE_MS;
+            File[] files = dir.listFiles();
+            if (files == null) return;
+            for (File f : files) {
+                if (f.lastModified() < cutoff) f.delete();
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // always present on Android
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package vn.edu.fpt.sapsmobile;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Small timing loop for the old-vs-new comparisons kept next to the equivalence tests
+ * (the app module has no JMH or microbenchmark setup). Each side is warmed up first and
+ * the best of a few rounds is kept, so a GC pause or a cold JIT does not decide the result.
+ */
+public final class Bench {
+    private static final int ROUNDS = 5;
+
+    // Results are folded in here so the JIT cannot drop the measured work
+    private static volatile int sink;
+
+    private Bench() {
+    }
+
+    /** Best-of-rounds nanoseconds per call of {@code op}. */
+    public static double nanosPerOp(int iterations, Callable<?> op) throws Exception {
+        run(iterations, op); // warm-up
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            run(iterations, op);
+            best = Math.min(best, (double) (System.nanoTime() - start) / iterations);
+        }
+        return best;
+    }
+
+    /** Prints both timings and returns how many times faster {@code newNanos} is. */
+    public static double report(String name, double oldNanos, double newNanos) {
+        double speedup = oldNanos / newNanos;
+        System.out.println(String.format(Locale.ROOT, "%s: old %.1f us/op, new %.1f us/op, %.1fx",
+                name, oldNanos / 1000, newNanos / 1000, speedup));
+        return speedup;
+    }
+
+    private static void run(int iterations, Callable<?> op) throws Exception {
+        int h = 0;
+        for (int i = 0; i < iterations; i++) {
+            Object result = op.call();
+            h += System.identityHashCode(result);
+        }
+        sink += h;
+    }
+}
@@ -0,0 +1,27 @@
+package vn.edu.fpt.sapsmobile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/** Unsigned JWTs with just the claims the app reads, for tests. */
+public final class TestTokens {
+
+    private TestTokens() {
+    }
+
+    /** A token that expires {@code seconds} from now (negative for already expired). */
+    public static String expiringIn(long seconds) {
+        long now = System.currentTimeMillis() / 1000;
+        return jwt("{\"jti\":\"" + UUID.randomUUID() + "\",\"iat\":" + (now - 60) + ",\"exp\":" + (now + seconds)
+                + ",\"share_code\":\"SC-1\""
+                + ",\"http://schemas.xmlsoap.org/ws/2005/05/identity/claims/nameidentifier\":\"user-1\"}");
+    }
+
+    public static String jwt(String payloadJson) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(payloadJson.getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".signature";
+    }
+}
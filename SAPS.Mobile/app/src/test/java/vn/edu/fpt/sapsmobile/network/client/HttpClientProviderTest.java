@@ -0,0 +1,83 @@
+package vn.edu.fpt.sapsmobile.network.client;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class HttpClientProviderTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void derivedClientsShareOnePoolAndDispatcher() {
+        OkHttpClient base = HttpClientProvider.getBaseClient();
+        OkHttpClient api = base.newBuilder().addInterceptor(chain -> chain.proceed(chain.request())).build();
+        OkHttpClient refresh = base.newBuilder().build();
+
+        assertSame(base, HttpClientProvider.getBaseClient());
+        assertSame(base.connectionPool(), api.connectionPool());
+        assertSame(base.connectionPool(), refresh.connectionPool());
+        assertSame(base.dispatcher(), api.dispatcher());
+        assertSame(base.dispatcher(), refresh.dispatcher());
+    }
+
+    @Test
+    public void refreshClientReusesTheApiConnection() throws IOException, InterruptedException {
+        OkHttpClient base = HttpClientProvider.getBaseClient();
+        OkHttpClient api = base.newBuilder().addInterceptor(chain -> chain.proceed(chain.request())).build();
+        OkHttpClient refresh = base.newBuilder().build();
+        server.enqueue(new MockResponse().setBody("sessions"));
+        server.enqueue(new MockResponse().setBody("token"));
+
+        execute(api, "/api/parkingsession/owned/1");
+        execute(refresh, "/api/auth/refresh-token");
+
+        // The sequence number counts requests per connection: 1 means the second rode the first's socket
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void sequentialCallsReuseOneConnection() throws IOException, InterruptedException {
+        OkHttpClient client = HttpClientProvider.getBaseClient().newBuilder().build();
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody("ok " + i));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            execute(client, "/ping/" + i);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber());
+        }
+    }
+
+    private void execute(OkHttpClient client, String path) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string(); // a fully read body returns the connection to the pool
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class RetryInterceptorTest {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private MockWebServer server;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .retryOnConnectionFailure(false) // only the interceptor may resend
+                .addInterceptor(new RetryInterceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void idempotentPostSucceedsAfterFirstAttemptsFail() throws Exception {
+        // The server applies the request but the response is lost, twice
+        failNext(2);
+        server.enqueue(new MockResponse().setBody("{\"ok\":true}"));
+
+        try (Response response = client.newCall(checkout("key-1", "3")).execute()) {
+            assertEquals(200, response.code());
+        }
+
+        assertEquals(3, server.getRequestCount());
+        for (int i = 0; i < 3; i++) {
+            RecordedRequest request = server.takeRequest();
+            assertEquals("key-1", request.getHeader(RetryInterceptor.IDEMPOTENCY_KEY));
+            assertEquals("{\"sessionId\":\"s-1\"}", request.getBody().readUtf8());
+            assertNull(request.getHeader(RetryInterceptor.RETRY_HEADER)); // marker stays on the client
+        }
+    }
+
+    @Test
+    public void givesUpAfterTheRetryBudget() {
+        failNext(5);
+
+        try {
+            client.newCall(checkout("key-2", "3")).execute().close();
+            fail("expected the transport failure to surface");
+        } catch (IOException expected) {
+            // first attempt plus 3 retries
+        }
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void postWithoutIdempotencyKeyIsNotResent() {
+        failNext(1);
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        try {
+            client.newCall(checkout(null, "3")).execute().close();
+            fail("expected the transport failure to surface");
+        } catch (IOException expected) {
+            // could have been applied, so it must not be sent twice
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void requestsWithoutTheMarkerAreNotRetried() {
+        failNext(1);
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        try {
+            client.newCall(checkout("key-3", null)).execute().close();
+            fail("expected the transport failure to surface");
+        } catch (IOException expected) {
+            // opt-in only
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void getIsRetriedWithoutKey() throws Exception {
+        failNext(1);
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        Request request = new Request.Builder()
+                .url(server.url("/api/vehicle"))
+                .header(RetryInterceptor.RETRY_HEADER, "2")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void httpErrorsAreReturnedAsIs() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        try (Response response = client.newCall(checkout("key-4", "3")).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private void failNext(int attempts) {
+        for (int i = 0; i < attempts; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        }
+    }
+
+    private Request checkout(String idempotencyKey, String retries) {
+        Request.Builder builder = new Request.Builder()
+                .url(server.url("/api/parkingsession/check-out"))
+                .post(RequestBody.create("{\"sessionId\":\"s-1\"}", JSON));
+        if (idempotencyKey != null) builder.header(RetryInterceptor.IDEMPOTENCY_KEY, idempotencyKey);
+        if (retries != null) builder.header(RetryInterceptor.RETRY_HEADER, retries);
+        return builder.build();
+    }
+}
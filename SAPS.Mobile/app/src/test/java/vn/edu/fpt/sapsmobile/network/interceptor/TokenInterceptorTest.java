@@ -0,0 +1,113 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import vn.edu.fpt.sapsmobile.TestTokens;
+import vn.edu.fpt.sapsmobile.utils.TokenManager;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class TokenInterceptorTest {
+    private static final int CALLERS = 50;
+    private static final String REFRESH_PATH = "/api/auth/refresh-token";
+
+    private MockWebServer server;
+    private TokenManager tokenManager;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        tokenManager = new TokenManager(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void parallel401sTriggerExactlyOneRefresh() throws Exception {
+        // Not expired, so it is sent as is; the server has revoked it
+        String staleToken = TestTokens.expiringIn(3600);
+        String freshToken = TestTokens.expiringIn(3600);
+        tokenManager.saveTokens(staleToken, "refresh-1");
+
+        AtomicInteger refreshCalls = new AtomicInteger();
+        CountDownLatch allRejected = new CountDownLatch(CALLERS);
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) throws InterruptedException {
+                if (REFRESH_PATH.equals(request.getPath())) {
+                    refreshCalls.incrementAndGet();
+                    // Answer only once every caller holds its 401, so they all overlap the refresh
+                    allRejected.await(10, TimeUnit.SECONDS);
+                    return new MockResponse().setBody("{\"accessToken\":\"" + freshToken
+                            + "\",\"refreshToken\":\"refresh-2\"}");
+                }
+                if (("Bearer " + freshToken).equals(request.getHeader("Authorization"))) {
+                    return new MockResponse().setBody("ok");
+                }
+                allRejected.countDown();
+                return new MockResponse().setResponseCode(401);
+            }
+        });
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new TokenInterceptor(RuntimeEnvironment.getApplication(), server.url("/").toString()))
+                .build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                String path = "/api/vehicle/" + i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    Request request = new Request.Builder().url(server.url(path)).build();
+                    try (Response response = client.newCall(request).execute()) {
+                        return response.code();
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(200, (int) future.get(20, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, refreshCalls.get());
+        assertEquals(freshToken, tokenManager.getAccessToken());
+        // 50 rejected, 1 refresh, 50 retried
+        assertEquals(2 * CALLERS + 1, server.getRequestCount());
+    }
+}
@@ -0,0 +1,182 @@
+package vn.edu.fpt.sapsmobile.network.interceptor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import vn.edu.fpt.sapsmobile.TestTokens;
+import vn.edu.fpt.sapsmobile.utils.TokenManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TokenRefreshCoordinatorTest {
+    private static final int CALLERS = 50;
+
+    private TokenManager tokenManager;
+    private String staleToken;
+
+    @Before
+    public void setUp() {
+        tokenManager = new TokenManager(RuntimeEnvironment.getApplication());
+        staleToken = TestTokens.expiringIn(3600);
+        tokenManager.saveTokens(staleToken, "refresh-1");
+    }
+
+    @Test
+    public void concurrentCallersShareOneRefresh() throws Exception {
+        String freshToken = TestTokens.expiringIn(3600);
+        AtomicInteger refreshes = new AtomicInteger();
+        TokenRefreshCoordinator coordinator = new TokenRefreshCoordinator(tokenManager, (refreshToken, stale) -> {
+            refreshes.incrementAndGet();
+            sleep(500); // long enough for every caller to arrive while it runs
+            tokenManager.saveTokens(freshToken, "refresh-2");
+            return freshToken;
+        }, 30_000);
+
+        List<String> results = runConcurrently(() -> coordinator.refresh(staleToken));
+
+        assertEquals(1, refreshes.get());
+        for (String result : results) {
+            assertEquals(freshToken, result);
+        }
+    }
+
+    @Test
+    public void failedRefreshIsSharedAndNotRepeated() throws Exception {
+        AtomicInteger refreshes = new AtomicInteger();
+        TokenRefreshCoordinator coordinator = new TokenRefreshCoordinator(tokenManager, (refreshToken, stale) -> {
+            refreshes.incrementAndGet();
+            sleep(500);
+            return null;
+        }, 30_000);
+
+        List<String> results = runConcurrently(() -> coordinator.refresh(staleToken));
+
+        assertEquals(1, refreshes.get());
+        for (String result : results) {
+            assertNull(result);
+        }
+    }
+
+    @Test
+    public void refreshesProactivelyOnlyNearExpiry() {
+        TokenRefreshCoordinator coordinator = new TokenRefreshCoordinator(tokenManager, (r, s) -> null, 30_000);
+
+        assertTrue(coordinator.shouldRefreshProactively(TestTokens.expiringIn(10)));
+        assertFalse(coordinator.shouldRefreshProactively(TestTokens.expiringIn(3600)));
+    }
+
+    /** A token without exp has nothing to renew ahead of; it must not cost a refresh per request. */
+    @Test
+    public void tokenWithoutExpiryIsNotRefreshedProactively() {
+        TokenRefreshCoordinator coordinator = new TokenRefreshCoordinator(tokenManager, (r, s) -> null, 30_000);
+
+        assertFalse(coordinator.shouldRefreshProactively(TestTokens.jwt("{\"sub\":\"user-1\"}")));
+        assertFalse(coordinator.shouldRefreshProactively("not-a-jwt"));
+        assertTrue(coordinator.shouldRefreshProactively(TestTokens.expiringIn(-5))); // expired is not unknown
+    }
+
+    @Test
+    public void failedProactiveRefreshBacksOff() {
+        String nearExpiry = TestTokens.expiringIn(10);
+        tokenManager.saveTokens(nearExpiry, "refresh-1");
+        AtomicLong now = new AtomicLong(1_000_000);
+        AtomicInteger refreshes = new AtomicInteger();
+        TokenRefreshCoordinator coordinator = new TokenRefreshCoordinator(tokenManager, (r, s) -> {
+            refreshes.incrementAndGet();
+            return null; // e.g. the refresh endpoint is down
+        }, 30_000, now::get);
+
+        assertTrue(coordinator.shouldRefreshProactively(nearExpiry));
+        assertNull(coordinator.refreshProactively(nearExpiry));
+        assertEquals(1, refreshes.get());
+
+        // Requests during the backoff go out with the current token
+        assertFalse(coordinator.shouldRefreshProactively(nearExpiry));
+        now.addAndGet(TokenRefreshCoordinator.PROACTIVE_BACKOFF_MS - 1);
+        assertFalse(coordinator.shouldRefreshProactively(nearExpiry));
+        now.addAndGet(1);
+        assertTrue(coordinator.shouldRefreshProactively(nearExpiry));
+
+        // A second failure waits twice as long
+        assertNull(coordinator.refreshProactively(nearExpiry));
+        now.addAndGet(2 * TokenRefreshCoordinator.PROACTIVE_BACKOFF_MS - 1);
+        assertFalse(coordinator.shouldRefreshProactively(nearExpiry));
+        now.addAndGet(1);
+        assertTrue(coordinator.shouldRefreshProactively(nearExpiry));
+        assertEquals(2, refreshes.get());
+    }
+
+    @Test
+    public void proactiveBackoffIsCappedAndClearedBySuccess() {
+        String nearExpiry = TestTokens.expiringIn(10);
+        String freshToken = TestTokens.expiringIn(3600);
+        tokenManager.saveTokens(nearExpiry, "refresh-1");
+        AtomicLong now = new AtomicLong(1_000_000);
+        AtomicBoolean serverUp = new AtomicBoolean();
+        TokenRefreshCoordinator coordinator = new TokenRefreshCoordinator(tokenManager, (r, s) -> {
+            if (!serverUp.get()) return null;
+            tokenManager.saveTokens(freshToken, "refresh-2");
+            return freshToken;
+        }, 30_000, now::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertNull(coordinator.refreshProactively(nearExpiry));
+            now.addAndGet(TokenRefreshCoordinator.MAX_PROACTIVE_BACKOFF_MS);
+            assertTrue(coordinator.shouldRefreshProactively(nearExpiry)); // never more than the cap
+        }
+
+        serverUp.set(true);
+        assertEquals(freshToken, coordinator.refreshProactively(nearExpiry));
+        tokenManager.saveTokens(nearExpiry, "refresh-1");
+        assertTrue(coordinator.shouldRefreshProactively(nearExpiry)); // no backoff left over
+    }
+
+    private static List<String> runConcurrently(Callable<String> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import vn.edu.fpt.sapsmobile.Bench;
+import vn.edu.fpt.sapsmobile.dtos.parkingsession.OwnedSessionResponse.OwnedParkingSessionDto;
+import vn.edu.fpt.sapsmobile.dtos.vehicle.VehicleSummaryDto;
+import vn.edu.fpt.sapsmobile.models.ParkingSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The plate index and ID set in {@link ParkingSessionService} against the linear scans
+ * they replaced, on a synthetic fleet account of 10k sessions and 1k vehicles.
+ */
+public class ParkingSessionJoinTest {
+    private static final int SESSIONS = 10_000;
+    private static final int VEHICLES = 1_000;
+
+    private final Random random = new Random(7);
+    private final List<VehicleSummaryDto> own = new ArrayList<>();
+    private final List<VehicleSummaryDto> shared = new ArrayList<>();
+    private final List<OwnedParkingSessionDto> sessions = new ArrayList<>();
+
+    public ParkingSessionJoinTest() {
+        for (int i = 0; i < VEHICLES; i++) {
+            String plate = plate();
+            VehicleSummaryDto vehicle = new VehicleSummaryDto("v" + i,
+                    random.nextBoolean() ? plate : flipCase(plate), "Honda", "Wave", null, null, null);
+            (random.nextInt(4) == 0 ? shared : own).add(vehicle);
+        }
+        for (int i = 0; i < SESSIONS; i++) {
+            List<VehicleSummaryDto> source = random.nextBoolean() ? own : shared;
+            OwnedParkingSessionDto dto = new OwnedParkingSessionDto();
+            // a few IDs repeat (both status calls return the session) and a few are missing
+            dto.setId(random.nextInt(20) == 0 ? null : "s" + random.nextInt(SESSIONS));
+            dto.setLicensePlate(random.nextInt(10) == 0
+                    ? plate() // a vehicle the user no longer has
+                    : flipCase(source.get(random.nextInt(source.size())).getLicensePlate()));
+            sessions.add(dto);
+        }
+    }
+
+    @Test
+    public void joinMatchesLinearScan() {
+        List<VehicleSummaryDto> all = linearMerge(own, shared);
+        List<ParkingSession> mapped = ParkingSessionService.mapDtosToSessions(sessions, plateIndex());
+
+        assertEquals(sessions.size(), mapped.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            OwnedParkingSessionDto dto = sessions.get(i);
+            VehicleSummaryDto expected = linearMatch(all, dto.getLicensePlate());
+            ParkingSession session = mapped.get(i);
+            assertSame(dto.getId(), session.getId());
+            if (expected != null) {
+                assertEquals(dto.getLicensePlate(), expected.getId(), session.getVehicleId());
+                assertEquals(expected.getLicensePlate(), session.getVehicle().getLicensePlate());
+            } else {
+                assertNull(dto.getLicensePlate(), session.getVehicleId());
+                assertEquals(dto.getLicensePlate(), session.getVehicle().getLicensePlate());
+            }
+        }
+    }
+
+    /** Own vehicles win over a shared one with the same plate, whatever the case or separators. */
+    @Test
+    public void ownVehicleWinsOverShared() {
+        VehicleSummaryDto mine = new VehicleSummaryDto("own", "51A-123.45", null, null, null, null, null);
+        VehicleSummaryDto theirs = new VehicleSummaryDto("shared", "51a12345", null, null, null, null, null);
+        Map<String, VehicleSummaryDto> index = new HashMap<>();
+        ParkingSessionService.indexByPlate(index, listOf(mine));
+        ParkingSessionService.indexByPlate(index, listOf(theirs));
+
+        OwnedParkingSessionDto dto = new OwnedParkingSessionDto();
+        dto.setLicensePlate("51A 123 45");
+        assertEquals("own", ParkingSessionService.mapDtosToSessions(listOf(dto), index).get(0).getVehicleId());
+    }
+
+    @Test
+    public void addUniqueItemsMatchesLinearDedupe() {
+        List<OwnedParkingSessionDto> first = sessions.subList(0, SESSIONS / 2);
+        List<OwnedParkingSessionDto> second = sessions.subList(SESSIONS / 2, SESSIONS);
+
+        List<OwnedParkingSessionDto> expected = new ArrayList<>();
+        linearAddUnique(expected, first);
+        linearAddUnique(expected, second);
+
+        List<OwnedParkingSessionDto> actual = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        ParkingSessionService.addUniqueItems(actual, seen, first);
+        ParkingSessionService.addUniqueItems(actual, seen, second);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void benchmarkJoin() throws Exception {
+        double linear = Bench.nanosPerOp(2, () -> {
+            List<OwnedParkingSessionDto> unique = new ArrayList<>();
+            linearAddUnique(unique, sessions);
+            List<VehicleSummaryDto> all = linearMerge(own, shared);
+            List<VehicleSummaryDto> matches = new ArrayList<>(unique.size());
+            for (OwnedParkingSessionDto dto : unique) {
+                matches.add(linearMatch(all, dto.getLicensePlate()));
+            }
+            return matches;
+        });
+        double indexed = Bench.nanosPerOp(20, () -> {
+            List<OwnedParkingSessionDto> unique = new ArrayList<>();
+            ParkingSessionService.addUniqueItems(unique, new HashSet<>(), sessions);
+            return ParkingSessionService.mapDtosToSessions(unique, plateIndex());
+        });
+
+        double speedup = Bench.report("10k sessions x 1k vehicles join", linear, indexed);
+        // Quadratic against linear; a wide margin so a slow CI machine does not flake
+        assertTrue("indexed join only " + speedup + "x faster", speedup > 5);
+    }
+
+    private Map<String, VehicleSummaryDto> plateIndex() {
+        Map<String, VehicleSummaryDto> index = new HashMap<>();
+        ParkingSessionService.indexByPlate(index, own);
+        ParkingSessionService.indexByPlate(index, shared);
+        return index;
+    }
+
+    // The code the index replaced: shared vehicles merged with anyMatch, then a scan per session
+
+    private static List<VehicleSummaryDto> linearMerge(List<VehicleSummaryDto> own, List<VehicleSummaryDto> shared) {
+        List<VehicleSummaryDto> all = new ArrayList<>(own);
+        for (VehicleSummaryDto s : shared) {
+            boolean exists = all.stream().anyMatch(v ->
+                    v.getLicensePlate() != null && s.getLicensePlate() != null
+                            && v.getLicensePlate().equalsIgnoreCase(s.getLicensePlate()));
+            if (!exists) all.add(s);
+        }
+        return all;
+    }
+
+    private static VehicleSummaryDto linearMatch(List<VehicleSummaryDto> vehicles, String plate) {
+        for (VehicleSummaryDto v : vehicles) {
+            if (v.getLicensePlate() != null && v.getLicensePlate().equalsIgnoreCase(plate)) return v;
+        }
+        return null;
+    }
+
+    private static void linearAddUnique(List<OwnedParkingSessionDto> target, List<OwnedParkingSessionDto> source) {
+        for (OwnedParkingSessionDto dto : source) {
+            boolean exists = target.stream()
+                    .anyMatch(existing -> existing.getId() != null && existing.getId().equals(dto.getId()));
+            if (!exists) target.add(dto);
+        }
+    }
+
+    // Without separators, where case is the only difference the old join ignored
+    private String plate() {
+        return String.format("%02d%c%05d", 11 + random.nextInt(89),
+                (char) ('A' + random.nextInt(26)), random.nextInt(100_000));
+    }
+
+    private String flipCase(String plate) {
+        StringBuilder out = new StringBuilder(plate.length());
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            out.append(random.nextBoolean() ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return out.toString();
+    }
+
+    @SafeVarargs
+    private static <T> List<T> listOf(T... items) {
+        List<T> list = new ArrayList<>();
+        for (T item : items) list.add(item);
+        return list;
+    }
+}
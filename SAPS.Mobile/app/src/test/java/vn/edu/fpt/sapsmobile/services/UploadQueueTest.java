@@ -0,0 +1,201 @@
+package vn.edu.fpt.sapsmobile.services;
+
+import android.app.Application;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class UploadQueueTest {
+    private static final int IMAGE_BYTES = 512 * 1024; // large enough to be cut off half way
+
+    private MockWebServer server;
+    private Application app;
+    private UploadQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        app = RuntimeEnvironment.getApplication();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                // No transparent OkHttp retry: the queue's own backoff must do the resend
+                .client(new OkHttpClient.Builder().retryOnConnectionFailure(false).build())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+        queue = new UploadQueue(app, retrofit);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void connectionDroppedMidBodyIsResentWithTheSameKey() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_REQUEST_BODY));
+        server.enqueue(new MockResponse().setBody("{\"message\":\"Vehicle created successfully\"}"));
+
+        File front = image("front.jpg");
+        File back = image("back.jpg");
+        Map<String, String> fields = new HashMap<>();
+        fields.put("LicensePlate", "51A-123.45");
+        RecordingObserver observer = new RecordingObserver();
+
+        String jobId = queue.enqueue(UploadQueue.KIND_REGISTER_VEHICLE, fields, front, back);
+        queue.observe(new ResumedOwner(), jobId, observer);
+        UploadQueue.Outcome outcome = observer.await(20_000);
+
+        assertNotNull("upload did not finish", outcome);
+        assertTrue("HTTP " + outcome.code, outcome.isSuccessful());
+        assertEquals(1, (int) observer.waiting.get(0)); // one failed attempt, then the resend
+        assertEquals(2, server.getRequestCount());
+
+        RecordedRequest dropped = server.takeRequest();
+        RecordedRequest resent = server.takeRequest();
+        assertEquals(jobId, dropped.getHeader("Idempotency-Key"));
+        assertEquals(jobId, resent.getHeader("Idempotency-Key"));
+        assertTrue(dropped.getBodySize() < resent.getBodySize());
+        assertTrue(resent.getBodySize() > 2L * IMAGE_BYTES); // both images, read again from the kept copies
+        assertTrue(resent.getBody().readUtf8().contains("51A-123.45"));
+
+        // Kept copies are cleaned up once the job ends; the caller's files are left alone
+        File[] kept = new File(app.getFilesDir(), "upload-queue").listFiles();
+        assertTrue(kept == null || kept.length == 0);
+        assertTrue(front.exists() && back.exists());
+    }
+
+    /** The server ignores Idempotency-Key: a resend of an applied registration comes back as a duplicate. */
+    @Test
+    public void duplicateAfterLostResponseCountsAsRegistered() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"message\":\"VEHICLE_ALREADY_EXISTS\"}"));
+        server.enqueue(new MockResponse().setBody("[{\"id\":\"v1\",\"licensePlate\":\"51A12345\"}]"));
+
+        UploadQueue.Outcome outcome = register("51A-123.45");
+
+        assertNotNull("upload did not finish", outcome);
+        assertTrue("HTTP " + outcome.code, outcome.isSuccessful());
+        assertEquals(3, server.getRequestCount());
+        server.takeRequest();
+        server.takeRequest();
+        assertEquals("/api/vehicle/my-vehicles", server.takeRequest().getRequestUrl().encodedPath());
+    }
+
+    @Test
+    public void duplicateOfSomeoneElsesPlateStaysAnError() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"message\":\"VEHICLE_ALREADY_EXISTS\"}"));
+        server.enqueue(new MockResponse().setBody("[{\"id\":\"v1\",\"licensePlate\":\"30E99999\"}]"));
+
+        UploadQueue.Outcome outcome = register("51A-123.45");
+
+        assertNotNull("upload did not finish", outcome);
+        assertEquals(400, outcome.code);
+        assertTrue(outcome.errorBody.contains("VEHICLE_ALREADY_EXISTS"));
+    }
+
+    @Test
+    public void duplicateOnTheFirstAttemptIsNotChecked() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"message\":\"VEHICLE_ALREADY_EXISTS\"}"));
+
+        UploadQueue.Outcome outcome = register("51A-123.45");
+
+        assertNotNull("upload did not finish", outcome);
+        assertEquals(400, outcome.code);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private UploadQueue.Outcome register(String plate) throws Exception {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("LicensePlate", plate);
+        RecordingObserver observer = new RecordingObserver();
+        String jobId = queue.enqueue(UploadQueue.KIND_REGISTER_VEHICLE, fields, image("front.jpg"), image("back.jpg"));
+        queue.observe(new ResumedOwner(), jobId, observer);
+        return observer.await(20_000);
+    }
+
+    private File image(String name) throws IOException {
+        byte[] bytes = new byte[IMAGE_BYTES];
+        new Random(name.hashCode()).nextBytes(bytes);
+        File file = new File(app.getCacheDir(), name);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private static final class RecordingObserver implements UploadQueue.Observer {
+        final List<Integer> waiting = new ArrayList<>();
+        UploadQueue.Outcome outcome;
+
+        @Override
+        public void onProgress(int percent) {
+        }
+
+        @Override
+        public void onWaiting(int attempt) {
+            waiting.add(attempt);
+        }
+
+        @Override
+        public void onFinished(UploadQueue.Outcome outcome) {
+            this.outcome = outcome;
+        }
+
+        /** Runs the main looper (observers are called there) until the outcome arrives. */
+        UploadQueue.Outcome await(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (outcome == null && System.currentTimeMillis() < deadline) {
+                shadowOf(Looper.getMainLooper()).idle();
+                Thread.sleep(20);
+            }
+            return outcome;
+        }
+    }
+
+    private static final class ResumedOwner implements LifecycleOwner {
+        private final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        ResumedOwner() {
+            registry.setCurrentState(Lifecycle.State.RESUMED);
+        }
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+}
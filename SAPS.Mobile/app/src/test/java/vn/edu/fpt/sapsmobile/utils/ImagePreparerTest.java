@@ -0,0 +1,190 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Random;
+
+import vn.edu.fpt.sapsmobile.Bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * A 12MP (4000x3000) photo through ImagePreparer and through the bounds + decode + preview
+ * decode it replaced in AddVehicleActivity, with AddVehicleActivity's limits. Native graphics,
+ * so BitmapFactory really decodes and scales.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ImagePreparerTest {
+    private static final int MAX_WIDTH = 1024;
+    private static final int MAX_HEIGHT = 768;
+    private static final int JPEG_QUALITY = 85;
+    private static final int PREVIEW_MAX_SIDE = 800;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ContentResolver resolver;
+    private Uri photo;
+
+    @Before
+    public void writePhoto() throws IOException {
+        resolver = RuntimeEnvironment.getApplication().getContentResolver();
+        File file = folder.newFile("photo.jpg");
+        Bitmap bitmap = Bitmap.createBitmap(4000, 3000, Bitmap.Config.ARGB_8888);
+        // Blocks of colour so the JPEG has real detail to decode, not one flat plane
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        Random random = new Random(5);
+        for (int i = 0; i < 2_000; i++) {
+            paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            int x = random.nextInt(4000);
+            int y = random.nextInt(3000);
+            canvas.drawRect(x, y, x + 20 + random.nextInt(400), y + 20 + random.nextInt(300), paint);
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 92, out);
+        }
+        bitmap.recycle();
+        photo = Uri.fromFile(file);
+    }
+
+    @After
+    public void releaseBuffer() {
+        ImagePreparer.trimMemory();
+    }
+
+    @Test
+    public void preparesUploadAndPreviewAtTheirSizes() throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImagePreparer.Prepared prepared = ImagePreparer.prepare(resolver, photo, MAX_WIDTH, MAX_HEIGHT,
+                JPEG_QUALITY, PREVIEW_MAX_SIDE, jpeg);
+
+        assertEquals(MAX_WIDTH, prepared.width);
+        assertEquals(MAX_HEIGHT, prepared.height);
+        assertNotNull(prepared.preview);
+        assertEquals(PREVIEW_MAX_SIDE, prepared.preview.getWidth());
+        assertEquals(600, prepared.preview.getHeight());
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        byte[] bytes = jpeg.toByteArray();
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, bounds);
+        assertEquals(MAX_WIDTH, bounds.outWidth);
+        assertEquals(MAX_HEIGHT, bounds.outHeight);
+    }
+
+    /**
+     * Reports only: the numbers depend on the host's codec, and with these limits the old path
+     * decoded at a quarter size (1000x750) where the new one decodes at half size and scales.
+     */
+    @Test
+    public void measure12MpPhoto() throws Exception {
+        LegacyResult legacy = legacyPrepare();
+        long legacyPeak = legacy.peakPixelBytes;
+        legacy.preview.recycle();
+
+        // The decode buffer and the preview are both alive until prepare returns
+        ImagePreparer.Prepared prepared = ImagePreparer.prepare(resolver, photo, MAX_WIDTH, MAX_HEIGHT,
+                JPEG_QUALITY, PREVIEW_MAX_SIDE, new ByteArrayOutputStream());
+        long peak = (long) prepared.width * prepared.height * 4 + prepared.preview.getAllocationByteCount();
+        prepared.preview.recycle();
+
+        double legacyNanos = Bench.nanosPerOp(1, () -> {
+            LegacyResult result = legacyPrepare();
+            result.preview.recycle();
+            return result.jpeg;
+        });
+        double nanos = Bench.nanosPerOp(1, () -> {
+            ImagePreparer.Prepared result = ImagePreparer.prepare(resolver, photo, MAX_WIDTH, MAX_HEIGHT,
+                    JPEG_QUALITY, PREVIEW_MAX_SIDE, new ByteArrayOutputStream());
+            result.preview.recycle();
+            return result;
+        });
+
+        Bench.report("12MP upload + preview", legacyNanos, nanos);
+        System.out.println(String.format(Locale.ROOT, "12MP pixel buffers alive at once: old %d KB, new %d KB",
+                legacyPeak / 1024, peak / 1024));
+    }
+
+    private static final class LegacyResult {
+        byte[] jpeg;
+        Bitmap preview;
+        long peakPixelBytes;
+    }
+
+    // AddVehicleActivity.compressImage and createPreviewBitmap before ImagePreparer, with the
+    // pixel bytes held at once tracked alongside
+
+    private LegacyResult legacyPrepare() throws IOException {
+        LegacyResult result = new LegacyResult();
+
+        BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+        boundsOptions.inJustDecodeBounds = true;
+        try (InputStream is = resolver.openInputStream(photo)) {
+            BitmapFactory.decodeStream(is, null, boundsOptions);
+        }
+
+        int sampleSize = 1;
+        while (boundsOptions.outWidth / sampleSize > MAX_WIDTH || boundsOptions.outHeight / sampleSize > MAX_HEIGHT) {
+            sampleSize *= 2;
+        }
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inSampleSize = sampleSize;
+
+        Bitmap bitmap;
+        try (InputStream is = resolver.openInputStream(photo)) {
+            bitmap = BitmapFactory.decodeStream(is, null, decodeOptions);
+        }
+        long live = bitmap.getAllocationByteCount();
+        long peak = live;
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (width > MAX_WIDTH || height > MAX_HEIGHT) {
+            float ratio = Math.min((float) MAX_WIDTH / width, (float) MAX_HEIGHT / height);
+            Bitmap resized = Bitmap.createScaledBitmap(bitmap, Math.round(width * ratio),
+                    Math.round(height * ratio), true);
+            peak = Math.max(peak, live + resized.getAllocationByteCount());
+            bitmap.recycle();
+            bitmap = resized;
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, baos);
+        bitmap.recycle();
+        result.jpeg = baos.toByteArray();
+
+        BitmapFactory.Options previewOptions = new BitmapFactory.Options();
+        previewOptions.inSampleSize = 4;
+        try (InputStream is = resolver.openInputStream(photo)) {
+            result.preview = BitmapFactory.decodeStream(is, null, previewOptions);
+        }
+        result.peakPixelBytes = Math.max(peak, result.preview.getAllocationByteCount());
+        return result;
+    }
+}
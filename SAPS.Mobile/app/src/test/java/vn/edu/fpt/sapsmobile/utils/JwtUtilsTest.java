@@ -0,0 +1,114 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import com.auth0.android.jwt.JWT;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import vn.edu.fpt.sapsmobile.Bench;
+import vn.edu.fpt.sapsmobile.TestTokens;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// Robolectric: the JWT decoder uses android.util.Base64
+@RunWith(RobolectricTestRunner.class)
+public class JwtUtilsTest {
+
+    @After
+    public void restoreClock() {
+        JwtUtils.clock = System::currentTimeMillis;
+    }
+
+    @Test
+    public void readsClaims() {
+        String token = TestTokens.jwt("{\"exp\":1767225600,\"share_code\":\"SC-9\","
+                + "\"http://schemas.xmlsoap.org/ws/2005/05/identity/claims/nameidentifier\":\"user-9\"}");
+
+        assertEquals("user-9", JwtUtils.getUserIdFromToken(token));
+        assertEquals("SC-9", JwtUtils.getShareCodeFromToken(token));
+        assertEquals("2026-01-01 00:00:00", JwtUtils.getExpired(token));
+        assertEquals("Bearer " + token, JwtUtils.toBearer("Bearer " + token));
+    }
+
+    @Test
+    public void repeatedLookupsHitTheCache() {
+        String token = TestTokens.expiringIn(3600);
+        String other = TestTokens.expiringIn(3600);
+
+        String header = JwtUtils.toBearer(token);
+        // The header is built once per decode, so the same instance means no second decode
+        assertSame(header, JwtUtils.toBearer(token));
+        JwtUtils.toBearer(other);
+        assertSame(header, JwtUtils.toBearer(token));
+    }
+
+    @Test
+    public void evictedTokenIsDecodedAgain() {
+        String token = TestTokens.expiringIn(3600);
+        String header = JwtUtils.toBearer(token);
+        for (int i = 0; i < 8; i++) {
+            JwtUtils.toBearer(TestTokens.expiringIn(3600));
+        }
+
+        String again = JwtUtils.toBearer(token);
+        assertEquals(header, again);
+        assertNotSame(header, again);
+    }
+
+    @Test
+    public void expiryIsEvaluatedOnEveryCallNotCached() {
+        String token = TestTokens.expiringIn(1);
+        assertFalse(JwtUtils.isExpired(token, 0));
+        long before = JwtUtils.millisUntilExpiry(token);
+
+        long later = System.currentTimeMillis() + 2_100;
+        JwtUtils.clock = () -> later;
+
+        assertTrue(JwtUtils.isExpired(token, 0));
+        assertTrue(JwtUtils.millisUntilExpiry(token) < before);
+        // Leeway still applies to the cached decode
+        assertFalse(JwtUtils.isExpired(token, 60));
+    }
+
+    @Test
+    public void malformedTokenCountsAsExpired() {
+        assertTrue(JwtUtils.isExpired("not-a-jwt", 0));
+        assertTrue(JwtUtils.isExpired("not-a-jwt", 0)); // cached failure, same answer
+        assertNull(JwtUtils.getUserIdFromToken("not-a-jwt"));
+        assertEquals("N/A", JwtUtils.getExpired("not-a-jwt"));
+        assertTrue(JwtUtils.isExpired(null, 0));
+    }
+
+    @Test
+    public void missingExpiryIsUnknownNotExpired() {
+        assertEquals(JwtUtils.UNKNOWN_EXPIRY, JwtUtils.millisUntilExpiry("not-a-jwt"));
+        assertEquals(JwtUtils.UNKNOWN_EXPIRY, JwtUtils.millisUntilExpiry(TestTokens.jwt("{\"sub\":\"user-1\"}")));
+        assertEquals(JwtUtils.UNKNOWN_EXPIRY, JwtUtils.millisUntilExpiry(null));
+        long expired = JwtUtils.millisUntilExpiry(TestTokens.expiringIn(-1));
+        assertTrue(expired < 0 && expired != JwtUtils.UNKNOWN_EXPIRY);
+    }
+
+    @Test
+    public void benchmarkClaimLookup() throws Exception {
+        String token = "Bearer " + TestTokens.expiringIn(3600);
+        String claim = "http://schemas.xmlsoap.org/ws/2005/05/identity/claims/nameidentifier";
+
+        // What every interceptor and screen did before the cache: strip, decode, read
+        double decodeEachTime = Bench.nanosPerOp(10_000, () -> {
+            JWT jwt = new JWT(token.replaceFirst("(?i)^Bearer\\s+", ""));
+            return jwt.isExpired(0) ? null : jwt.getClaim(claim).asString();
+        });
+        double cached = Bench.nanosPerOp(10_000, () ->
+                JwtUtils.isExpired(token, 0) ? null : JwtUtils.getUserIdFromToken(token));
+
+        double speedup = Bench.report("JWT expiry + claim lookup", decodeEachTime, cached);
+        assertTrue("cached lookup only " + speedup + "x faster", speedup > 5);
+    }
+}
@@ -0,0 +1,56 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StringUtilsTest {
+    private static final String ALPHABET = "ABCDEFGHKLMNPSTUVXYZabcdefghklmnpstuvxyz0123456789";
+    private static final String SEPARATORS = "-. ";
+
+    @Test
+    public void normalizesCaseAndSeparators() {
+        assertEquals("51A12345", StringUtils.normalizePlate("51a-123.45"));
+        assertEquals("51A12345", StringUtils.normalizePlate(" 51A 123 45 "));
+        assertEquals("30E99999", StringUtils.normalizePlate("30E99999"));
+        assertNull(StringUtils.normalizePlate(null));
+        assertNull(StringUtils.normalizePlate(" - . "));
+    }
+
+    /** Every pair the old equalsIgnoreCase join matched still gets the same key. */
+    @Test
+    public void keepsEveryCaseInsensitiveMatch() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String plate = randomPlate(random);
+            String variant = flipCase(plate, random);
+            assertEquals(plate + " / " + variant,
+                    StringUtils.normalizePlate(plate), StringUtils.normalizePlate(variant));
+        }
+    }
+
+    // Plate characters with the odd separator, e.g. "51a-123.45"
+    private static String randomPlate(Random random) {
+        StringBuilder plate = new StringBuilder();
+        int length = 6 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && random.nextInt(5) == 0) {
+                plate.append(SEPARATORS.charAt(random.nextInt(SEPARATORS.length())));
+            }
+            plate.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return plate.toString();
+    }
+
+    private static String flipCase(String plate, Random random) {
+        StringBuilder out = new StringBuilder(plate.length());
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            out.append(random.nextBoolean() ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,235 @@
+package vn.edu.fpt.sapsmobile.utils;
+
+import org.junit.Test;
+
+import vn.edu.fpt.sapsmobile.Bench;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Equivalence corpus: the hand-rolled parser must agree with the java.time parsers the
+ * old DateTimeHelper cascade was built on, for every shape the server sends and for the
+ * malformed ones it must reject.
+ */
+public class TimestampParserTest {
+    private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final DateTimeFormatter OUTPUT_FORMAT =
+            DateTimeFormatter.ofPattern("HH'h'mm dd/MM/yyyy", new Locale("vi"));
+
+    private static final DateTimeFormatter[] SHAPES = {
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+            DateTimeFormatter.ISO_INSTANT,
+    };
+
+    private static final List<String> FIXED_CORPUS = Arrays.asList(
+            "2025-07-03T14:30:00",
+            "2025-07-03T14:30",
+            "2025-07-03 14:30:00",
+            "2025-07-03t14:30:00",
+            "2025-07-03",
+            "2025-07-03T14:30:00Z",
+            "2025-07-03T14:30Z",
+            "2025-07-03T14:30:00+07:00",
+            "  2025-07-03T14:30:00-05:30  ",
+            "2025-07-03T14:30:00+07",
+            "2025-07-03T14:30:00+07:00:30",
+            "2025-07-03T14:30:00.1234567",
+            "2025-07-03T14:30:00.1234567Z",
+            "2025-07-03T14:30:00.",
+            "1969-12-31T23:59:59.5",
+            "0000-01-01T00:00",
+            "9999-12-31T23:59:59.999999999Z",
+            "2024-02-29T00:00",
+            // rejected
+            "2023-02-29T00:00",
+            "2025-13-01",
+            "2025-07-03T24:00",
+            "2025-07-03T14:60",
+            "2025-07-03T14:30:00.1234567890",
+            "2025-07-03T14:30:00+18:01",
+            "2025-07-03Z",
+            "2025-07-03T",
+            "2025-07-03T14:30:00[Asia/Ho_Chi_Minh]",
+            "25-07-03",
+            "abc",
+            "",
+            "   ");
+
+    @Test
+    public void fixedCorpusMatchesJavaTime() {
+        for (String text : FIXED_CORPUS) {
+            assertMatches(text);
+        }
+    }
+
+    @Test
+    public void generatedCorpusMatchesJavaTime() {
+        Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            assertMatches(randomTimestamp(random));
+        }
+    }
+
+    @Test
+    public void rejectsNull() {
+        assertFalse(TimestampParser.parse(null, new TimestampParser.Result()));
+        assertEquals(-1, DateTimeHelper.toEpochMillis(null));
+    }
+
+    @Test
+    public void reportsOffsetAndTimeFlags() {
+        TimestampParser.Result result = new TimestampParser.Result();
+
+        assertTrue(TimestampParser.parse("2025-07-03T14:30:00+07:00", result));
+        assertTrue(result.hasOffset);
+        assertTrue(result.hasTime);
+        assertEquals(7 * 3600, result.offsetSeconds);
+
+        assertTrue(TimestampParser.parse("2025-07-03", result));
+        assertFalse(result.hasOffset);
+        assertFalse(result.hasTime);
+    }
+
+    /** What changeToUCT7 and formatDateTime did before: LocalDateTime.parse, read as UTC. */
+    @Test
+    public void vietnamConversionMatchesTheOldHelper() {
+        Random random = new Random(2);
+        for (int i = 0; i < 10_000; i++) {
+            String text = LocalDateTime.ofEpochSecond(randomEpochSecond(random), random.nextInt(1_000_000_000),
+                    ZoneOffset.UTC).toString();
+            assertEquals(text, LocalDateTime.parse(text).atZone(ZoneOffset.UTC).withZoneSameInstant(VIETNAM_ZONE),
+                    DateTimeHelper.changeToUCT7(text));
+            assertEquals(text, LocalDateTime.parse(text).atZone(ZoneOffset.UTC).withZoneSameInstant(VIETNAM_ZONE)
+                    .format(OUTPUT_FORMAT), DateTimeHelper.formatDateTime(text));
+        }
+    }
+
+    @Test
+    public void benchmarkAgainstTheOldCascade() throws Exception {
+        Random random = new Random(3);
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            corpus.add(randomTimestamp(random));
+        }
+
+        double cascade = Bench.nanosPerOp(20, () -> {
+            long sum = 0;
+            for (String text : corpus) {
+                ZonedDateTime parsed = legacyParse(text);
+                if (parsed != null) sum += parsed.toInstant().toEpochMilli();
+            }
+            return sum;
+        });
+        double onePass = Bench.nanosPerOp(20, () -> {
+            long sum = 0;
+            for (String text : corpus) {
+                sum += DateTimeHelper.toEpochMillis(text);
+            }
+            return sum;
+        });
+
+        double speedup = Bench.report("1k server timestamps", cascade, onePass);
+        assertTrue("one-pass parser only " + speedup + "x faster", speedup > 3);
+    }
+
+    private static void assertMatches(String text) {
+        TimestampParser.Result result = new TimestampParser.Result();
+        boolean parsed = TimestampParser.parse(text, result);
+        Long expected = reference(text);
+        assertEquals(text, expected, parsed ? result.epochMillis() : null);
+        assertEquals(text, expected != null ? expected : -1L, DateTimeHelper.toEpochMillis(text));
+    }
+
+    /** Epoch millis by java.time, a timestamp without offset taken as UTC; null if unparseable. */
+    private static Long reference(String text) {
+        String trimmed = text.trim();
+        try {
+            return OffsetDateTime.parse(trimmed).toInstant().toEpochMilli();
+        } catch (RuntimeException ignored) {
+        }
+        try {
+            return LocalDateTime.parse(trimmed.replace(' ', 'T')).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (RuntimeException ignored) {
+        }
+        try {
+            return LocalDate.parse(trimmed).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (RuntimeException ignored) {
+        }
+        return null;
+    }
+
+    // The shapes the server sends: with and without fraction, offset, seconds or time
+    private static String randomTimestamp(Random random) {
+        long epochSecond = randomEpochSecond(random);
+        int nano = random.nextBoolean() ? 0 : random.nextInt(1_000_000_000);
+        int offsetSeconds = (random.nextInt(37) - 18) * 3600 + (random.nextBoolean() ? 0 : 1800);
+        offsetSeconds = Math.max(-18 * 3600, Math.min(18 * 3600, offsetSeconds));
+        OffsetDateTime time = OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano),
+                ZoneOffset.ofTotalSeconds(offsetSeconds));
+        return time.format(SHAPES[random.nextInt(SHAPES.length)]);
+    }
+
+    private static long randomEpochSecond(Random random) {
+        // 1900 .. 2100
+        return -2_208_988_800L + (long) (random.nextDouble() * 6_311_433_600L);
+    }
+
+    // DateTimeHelper.tryParseToZonedDateTime before TimestampParser, kept to time against
+
+    private static final List<DateTimeFormatter> LEGACY_FORMATTERS = Arrays.asList(
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+            DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+            DateTimeFormatter.ISO_INSTANT);
+
+    private static ZonedDateTime legacyParse(String input) {
+        String trimmed = input.trim();
+        try {
+            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return ZonedDateTime.parse(trimmed, DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC));
+        } catch (DateTimeParseException ignored) {
+        }
+        for (DateTimeFormatter f : LEGACY_FORMATTERS) {
+            try {
+                if (f == DateTimeFormatter.ofPattern("yyyy-MM-dd")) {
+                    return LocalDate.parse(trimmed, f).atStartOfDay().atZone(ZoneOffset.UTC);
+                }
+                return LocalDateTime.parse(trimmed, f).atZone(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return null;
+    }
+}